@@ -0,0 +1,68 @@
+package com.hivefi.bench;
+
+import com.hivefi.db.DatabaseManager;
+import com.hivefi.db.ExpenseDAO;
+import com.hivefi.models.Expense;
+import com.hivefi.models.Money;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/** Deterministic synthetic datasets for the benchmarks. */
+public final class BenchData {
+    public static final String[] CATEGORIES = {
+            "Food", "Lodging", "Transport", "Entertainment", "Groceries", "Rent", "Utilities", "Health"
+    };
+    public static final String[] CURRENCIES = { "USD", "EUR", "GBP", "JPY", "CHF", "CAD" };
+    private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final LocalDate START = LocalDate.of(2020, 1, 1);
+
+    private final Random rnd;
+
+    public BenchData(long seed) {
+        this.rnd = new Random(seed);
+    }
+
+    public Expense nextExpense() {
+        String currency = CURRENCIES[rnd.nextInt(CURRENCIES.length)];
+        long minor = 100 + rnd.nextInt(50_000);
+        return new Expense(CATEGORIES[rnd.nextInt(CATEGORIES.length)],
+                Money.ofMinor(minor, currency),
+                "bench expense " + rnd.nextInt(1000),
+                START.plusDays(rnd.nextInt(5 * 365)).format(FMT));
+    }
+
+    /** Point HIVEFI_DB_URL at a fresh database file in a temp directory and return that directory. */
+    public static Path freshDatabase(String name) throws IOException {
+        Path dir = Files.createTempDirectory("hivefi-bench-");
+        System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + dir.resolve(name + ".db"));
+        return dir;
+    }
+
+    /** Insert {@code rows} expenses in a single transaction. */
+    public void populate(ExpenseDAO dao, int rows) throws SQLException {
+        try (Connection c = DatabaseManager.getConnection()) {
+            c.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) dao.insert(c, nextExpense());
+            c.commit();
+        }
+    }
+
+    public static void deleteQuietly(Path dir) {
+        DatabaseManager.shutdown();
+        if (dir == null) return;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException ignore) {
+            // temp dir; best effort
+        }
+    }
+}
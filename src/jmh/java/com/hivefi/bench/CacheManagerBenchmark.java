@@ -0,0 +1,63 @@
+package com.hivefi.bench;
+
+import com.hivefi.services.CacheManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/** getIfFresh / put on a shared cache, alone and with readers and writers racing. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheManagerBenchmark {
+
+    private static final int KEYS = 1024;
+    private static final long TTL = TimeUnit.MINUTES.toMillis(30);
+
+    private CacheManager<String, Double> cache;
+    private String[] keys;
+
+    @Setup
+    public void setUp() {
+        cache = new CacheManager<>();
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = BenchData.CURRENCIES[i % BenchData.CURRENCIES.length] + "->X" + i;
+            cache.put(keys[i], 1.0 + i, TTL);
+        }
+    }
+
+    private String anyKey() {
+        return keys[ThreadLocalRandom.current().nextInt(KEYS)];
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Double getIfFresh() {
+        return cache.getIfFresh(anyKey());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void put() {
+        cache.put(anyKey(), 1.5, TTL);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public Double mixedRead() {
+        return cache.getIfFresh(anyKey());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public void mixedWrite() {
+        cache.put(anyKey(), 2.5, TTL);
+    }
+}
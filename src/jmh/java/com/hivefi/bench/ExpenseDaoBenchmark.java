@@ -0,0 +1,86 @@
+package com.hivefi.bench;
+
+import com.hivefi.db.ExpenseDAO;
+import com.hivefi.db.Page;
+import com.hivefi.models.Expense;
+import com.hivefi.models.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseDaoBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private Path dir;
+    private ExpenseDAO dao;
+    private BenchData data;
+    private String knownId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = BenchData.freshDatabase("dao-" + rows);
+        dao = new ExpenseDAO();
+        data = new BenchData(42);
+        data.populate(dao, rows);
+        Expense probe = data.nextExpense();
+        dao.insert(probe);
+        knownId = probe.getID();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchData.deleteQuietly(dir);
+    }
+
+    @Benchmark
+    public void insert() {
+        dao.insert(data.nextExpense());
+    }
+
+    @Benchmark
+    public Object findById() {
+        return dao.findById(knownId);
+    }
+
+    @Benchmark
+    public Page<Expense> firstPage() {
+        return dao.pageAll(null, 50);
+    }
+
+    @Benchmark
+    public void streamByCategory(Blackhole bh) {
+        try (Stream<Expense> s = dao.streamByCategory("Food")) {
+            s.forEach(bh::consume);
+        }
+    }
+
+    @Benchmark
+    public void streamByDateRange(Blackhole bh) {
+        try (Stream<Expense> s = dao.streamByDateRange(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 3, 31))) {
+            s.forEach(bh::consume);
+        }
+    }
+
+    @Benchmark
+    public long count() {
+        return dao.count();
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Money>> sumByCategoryAndCurrency() {
+        return dao.sumByCategoryAndCurrency(null, null);
+    }
+}
@@ -0,0 +1,89 @@
+package com.hivefi.bench;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.hivefi.models.RateTable;
+import com.hivefi.services.fx.FrankfurterProvider;
+import com.hivefi.services.fx.FxProvider;
+import com.hivefi.services.fx.GenericProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/** Streaming parse of FX responses from raw bytes, as they arrive off the wire, once per response shape. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FxParseBenchmark {
+    private static final JsonFactory JSON = new JsonFactory();
+
+    @Param({"frankfurter", "convert_result", "info_rate", "flat_rate", "data_code", "data_value"})
+    public String shape;
+
+    private byte[] body;
+    private byte[] table;
+    private final FxProvider generic = new GenericProvider("http://localhost/?from=%s&to=%s", null, null, null);
+    private final FxProvider frankfurter = new FrankfurterProvider();
+
+    @Setup
+    public void setUp() {
+        String json;
+        switch (shape) {
+            case "frankfurter":
+                json = "{\"amount\":1.0,\"base\":\"EUR\",\"date\":\"2025-09-01\",\"rates\":{" + manyRates() + "}}";
+                break;
+            case "convert_result":
+                json = "{\"success\":true,\"query\":{\"from\":\"EUR\",\"to\":\"USD\",\"amount\":1},\"result\":1.0842}";
+                break;
+            case "info_rate":
+                json = "{\"success\":true,\"info\":{\"timestamp\":1725148800,\"rate\":1.0842},\"date\":\"2025-09-01\"}";
+                break;
+            case "flat_rate":
+                json = "{\"from\":\"EUR\",\"to\":\"USD\",\"rate\":1.0842}";
+                break;
+            case "data_code":
+                json = "{\"data\":{" + manyRates() + "}}";
+                break;
+            default:
+                json = "{\"meta\":{\"last_updated_at\":\"2025-09-01T23:59:59Z\"},\"data\":{\"USD\":{\"code\":\"USD\",\"value\":1.0842}}}";
+        }
+        body = json.getBytes(StandardCharsets.UTF_8);
+        table = ("{\"amount\":1.0,\"base\":\"EUR\",\"date\":\"2025-09-01\",\"rates\":{" + manyRates() + "}}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** A full base-currency table with the target near the end. */
+    private static String manyRates() {
+        String[] codes = {"AUD", "BGN", "BRL", "CAD", "CHF", "CNY", "CZK", "DKK", "GBP", "HKD", "HUF", "IDR",
+                "ILS", "INR", "ISK", "JPY", "KRW", "MXN", "MYR", "NOK", "NZD", "PHP", "PLN", "RON",
+                "SEK", "SGD", "THB", "TRY", "USD", "ZAR"};
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < codes.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('"').append(codes[i]).append("\":").append(1.0 + i * 0.137);
+        }
+        return sb.toString();
+    }
+
+    /** Shape-agnostic pair parse (the generic adapter). */
+    @Benchmark
+    public Double parsePair() throws IOException {
+        try (JsonParser p = JSON.createParser(new ByteArrayInputStream(body))) {
+            return generic.parsePair(p, "EUR", "USD");
+        }
+    }
+
+    /** Whole base table through the dedicated adapter; independent of {@code shape}. */
+    @Benchmark
+    public RateTable parseTable() throws IOException {
+        try (JsonParser p = JSON.createParser(new ByteArrayInputStream(table))) {
+            return frankfurter.parseTable(p, "EUR");
+        }
+    }
+}
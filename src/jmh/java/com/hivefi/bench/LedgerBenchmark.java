@@ -0,0 +1,53 @@
+package com.hivefi.bench;
+
+import com.hivefi.db.ExpenseDAO;
+import com.hivefi.models.Expense;
+import com.hivefi.services.LedgerService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** recordExpense end to end: idempotency mark, insert, hash chain append, commit. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerBenchmark {
+
+    private Path dir;
+    private LedgerService ledger;
+
+    @State(Scope.Thread)
+    public static class Source {
+        final BenchData data = new BenchData(Thread.currentThread().getId());
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = BenchData.freshDatabase("ledger");
+        ledger = new LedgerService(new ExpenseDAO());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ledger.close();
+        BenchData.deleteQuietly(dir);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Expense recordExpense(Source src) {
+        Expense e = src.data.nextExpense();
+        return ledger.recordExpense(e.getCategory(), e.getMoney(), e.getDescription(), e.getDate(), null);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Expense recordExpenseContended(Source src) {
+        Expense e = src.data.nextExpense();
+        return ledger.recordExpense(e.getCategory(), e.getMoney(), e.getDescription(), e.getDate(), null);
+    }
+}
@@ -0,0 +1,31 @@
+package com.hivefi.bench;
+
+import com.hivefi.models.Expense;
+import com.hivefi.models.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Building a CREATE record, which hashes the full snapshot plus the previous hash. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionHashBenchmark {
+
+    private Expense expense;
+    private String prevHash;
+
+    @Setup
+    public void setUp() {
+        expense = new BenchData(7).nextExpense();
+        prevHash = new Transaction(Transaction.Action.CREATE, expense, "").getTxHash();
+    }
+
+    @Benchmark
+    public String createTransaction() {
+        return new Transaction(Transaction.Action.CREATE, expense, prevHash).getTxHash();
+    }
+}
@@ -1,22 +1,34 @@
 package com.hivefi;
 
 import com.hivefi.db.ExpenseDAO;
+import com.hivefi.db.Page;
+import com.hivefi.models.ConvertedTotals;
 import com.hivefi.models.Expense;
+import com.hivefi.models.Money;
+import com.hivefi.models.RateQuote;
 import com.hivefi.models.Transaction;
 import com.hivefi.services.LedgerService;
 import com.hivefi.services.FXService;
+import com.hivefi.server.LedgerServer;
+import com.hivefi.utils.Settings;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
 
 public class App {
 
     private static final DateTimeFormatter OUT_FMT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int PAGE_SIZE = 20;
     private static final List<DateTimeFormatter> IN_FMTS = List.of(
             DateTimeFormatter.ofPattern("d/M/yyyy"),
             DateTimeFormatter.ofPattern("d-M-yyyy")
@@ -24,7 +36,13 @@ public class App {
 
     public static void main(String[] args) {
         try {
-            if (args.length >= 4) {
+            if (args.length == 1 && args[0].equals("archive")) {
+                runArchive();
+            } else if (args.length >= 1 && args.length <= 2 && args[0].equals("serve")) {
+                runServer(args.length == 2 ? args[1] : null);
+            } else if (args.length == 4 && args[0].equals("fx-backfill")) {
+                runFxBackfill(args[1], args[2], args[3]);
+            } else if (args.length >= 4) {
                 runWithArgs(args);
             } else {
                 menuLoop();
@@ -44,11 +62,61 @@ public class App {
 
         validate(category, amount, currency);
         
+        // one insert and out: no full-table count here, it would cost more than the insert itself
+        try (LedgerService ledger = new LedgerService(new ExpenseDAO())) {
+            Expense e = ledger.recordExpense(category, currency, amount, description, date, null);
+            System.out.println(e);
+        }
+    }
+
+    private static void runArchive() {
+        try (LedgerService ledger = new LedgerService(new ExpenseDAO())) {
+            long moved = ledger.archiveOldTransactions();
+            System.out.println("Archived " + moved + " transaction(s).");
+            System.out.println(ledger.verifyChain());
+        }
+    }
+
+    private static void runFxBackfill(String base, String from, String to) {
+        LocalDate start, end;
+        try {
+            start = LocalDate.parse(from);
+            end = LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Dates must be yyyy-MM-dd");
+        }
+        if (end.isBefore(start)) throw new IllegalArgumentException("End date is before start date");
+        int rows = new FXService().backfill(base.toUpperCase(Locale.ROOT), start, end).join();
+        System.out.println("Stored " + rows + " rate(s) for " + base.toUpperCase(Locale.ROOT) + ", " + start + " to " + end + ".");
+    }
+
+    // One JVM, one set of DAOs, caches and pool for every request; runs until the process is stopped.
+    private static void runServer(String portArg) throws IOException, InterruptedException {
+        int port = portArg != null ? positiveInt(portArg, "Port") : Settings.getInt("HIVEFI_HTTP_PORT", 8080);
+        int workers = Settings.getInt("HIVEFI_HTTP_WORKERS", 2 * Runtime.getRuntime().availableProcessors());
+        int queue = Settings.getInt("HIVEFI_HTTP_QUEUE", 256);
+
         LedgerService ledger = new LedgerService(new ExpenseDAO());
-        Expense e = ledger.recordExpense(category, currency, amount, description, date, null);
+        ledger.enableSnapshot();
+        FXService fx = new FXService();
+        fx.startWarmupFromEnv();
+        LedgerServer server = new LedgerServer(ledger, fx, new InetSocketAddress(port), workers, queue).start();
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            ledger.close();
+            stopped.countDown();
+        }, "hivefi-shutdown"));
+        System.out.println("Listening on http://localhost:" + server.port() + " (" + workers + " workers)");
+        stopped.await();
+    }
 
-        System.out.println(e);
-        System.out.println("Total expenses in DB: " + ledger.count());
+    private static int positiveInt(String raw, String what) {
+        try {
+            int v = Integer.parseInt(raw.trim());
+            if (v > 0) return v;
+        } catch (NumberFormatException ignored) {}
+        throw new IllegalArgumentException(what + " must be a positive number.");
     }
 
     // Menu
@@ -66,6 +134,7 @@ public class App {
                 System.out.println("  [6] FX: get rate (FROM to TO)");
                 System.out.println("  [7] FX: convert amount (AMOUNT FROM to TO)");
                 System.out.println("  [8] View transaction log");
+                System.out.println("  [9] Totals by category in one currency");
                 System.out.println("  [0] Exit");
                 System.out.print("Choose: ");
 
@@ -75,16 +144,16 @@ public class App {
                         addExpenseFlow(sc, ledger);
                         break;
                     case "2":
-                        printExpenses(ledger.listAll());
+                        browseHistory(sc, ledger);
                         break;
                     case "3":
                         String cat = promptNonEmpty(sc, "Category");
-                        printExpenses(ledger.listByCategory(cat));
+                        printExpenses(ledger.streamByCategory(cat));
                         break;
                     case "4":
                         LocalDate from = promptDateAsLocal(sc, "From date (e.g., 01/09/2025 or 1-9-2025)");
                         LocalDate to   = promptDateAsLocal(sc, "To date (e.g., 30/09/2025 or 30-9-2025)");
-                        printExpenses(ledger.listByDateRange(from, to));
+                        printExpenses(ledger.streamByDateRange(from, to));
                         break;
                     case "5":
                         System.out.println("Total expenses in DB: " + ledger.count());
@@ -95,6 +164,12 @@ public class App {
                     case "7":
                         fxConvertFlow(sc, fx); 
                         break;
+                    case "8":
+                        browseTransactions(sc, ledger);
+                        break;
+                    case "9":
+                        convertedTotalsFlow(sc, ledger, fx);
+                        break;
                     case "0":
                         System.out.println("Bye!");
                         return;
@@ -125,12 +200,22 @@ public class App {
     private static void fxRateFlow(Scanner sc, FXService fx) {
         String from = promptCurrency(sc, "From currency (e.g., USD)");
         String to   = promptCurrency(sc, "To currency   (e.g., EUR)");
-        double rate = fx.getRate(from, to);
-        System.out.printf("1 %s = %.6f %s%n", from, rate, to);
+        RateQuote q = fx.getQuote(from, to);
+        System.out.printf("1 %s = %.6f %s (as of %d min ago%s)%n", from, q.getRate(), to,
+                q.getAge().toMinutes(), q.isStale() ? ", refreshing" : "");
         double inv = fx.getRate(to, from);
         System.out.printf("1 %s = %.6f %s%n", to, inv, from);
     }
 
+    private static void convertedTotalsFlow(Scanner sc, LedgerService ledger, FXService fx) {
+        String currency = promptCurrency(sc, "Report currency (e.g., EUR)");
+        LocalDate from = promptDateAsLocal(sc, "From date (e.g., 01/09/2025 or 1-9-2025)");
+        LocalDate to   = promptDateAsLocal(sc, "To date (e.g., 30/09/2025 or 30-9-2025)");
+        ConvertedTotals totals = ledger.convertedTotals(currency, from, to, fx);
+        totals.getByCategory().forEach((cat, sum) -> System.out.printf("  %-16s %s%n", cat, sum));
+        System.out.println("Total: " + totals.getTotal() + (totals.isStale() ? " (some rates are stale)" : ""));
+    }
+
     private static void fxConvertFlow(Scanner sc, FXService fx) {
         double amount = promptAmount(sc);
         String from   = promptCurrency(sc, "From currency (e.g., USD)");
@@ -157,7 +242,7 @@ public class App {
             dao.insert(e);
 
             System.out.println("Saved: " + e);
-            System.out.println("Total expenses in DB: " + dao.findAll().size());
+            System.out.println("Total expenses in DB: " + dao.count());
         }
     }
 
@@ -284,17 +369,56 @@ public class App {
         if (!currency.matches("[A-Z]{3}")) {
             throw new IllegalArgumentException("Currency must be a 3-letter code (e.g., USD).");
         }
+        Money.exact(amount, currency); // no silent rounding: 0.001 USD is refused, not stored as 0.00
+    }
+
+    private static void browseHistory(Scanner sc, LedgerService ledger) {
+        String token = null;
+        int i = 1;
+        while (true) {
+            Page<Expense> page = ledger.pageAll(token, PAGE_SIZE);
+            for (Expense e : page.getItems()) {
+                System.out.println(i++ + ". " + e.toString());
+            }
+            token = page.getNextToken();
+            if (token == null) break;
+            System.out.print("-- [Enter] next page, [q] back: ");
+            if (sc.nextLine().trim().equalsIgnoreCase("q")) break;
+        }
+        if (i == 1) System.out.println("(no expenses found)");
+    }
+
+    private static void printExpenses(Stream<Expense> items) {
+        int i = 1;
+        try (items) {
+            for (Iterator<Expense> it = items.iterator(); it.hasNext(); ) {
+                System.out.println(i++ + ". " + it.next().toString());
+            }
+        }
+        if (i == 1) System.out.println("(no expenses found)");
     }
 
-    private static void printExpenses(List<Expense> items) {
-        if (items.isEmpty()) {
-            System.out.println("(no expenses found)");
+    private static void browseTransactions(Scanner sc, LedgerService ledger) {
+        System.out.print("Expense id (blank for the full log): ");
+        String expenseId = sc.nextLine().trim();
+        if (!expenseId.isEmpty()) {
+            printTransactions(ledger.historyOf(expenseId));
             return;
         }
+        String token = null;
         int i = 1;
-        for (Expense e : items) {
-            System.out.println(i++ + ". " + e.toString());
+        while (true) {
+            Page<Transaction> page = ledger.pageTransactions(token, PAGE_SIZE);
+            for (Transaction t : page.getItems()) {
+                System.out.println(i++ + ".");
+                System.out.println(t.toString());
+            }
+            token = page.getNextToken();
+            if (token == null) break;
+            System.out.print("-- [Enter] next page, [q] back: ");
+            if (sc.nextLine().trim().equalsIgnoreCase("q")) break;
         }
+        if (i == 1) System.out.println("(no transactions logged yet)");
     }
 
     private static void printTransactions(List<Transaction> txs) {
@@ -0,0 +1,98 @@
+package com.hivefi.db;
+
+import com.hivefi.models.Money;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One-off upgrade of a table from {@code amount REAL} to {@code amount_minor INTEGER}
+ * (minor units of each row's currency). A no-op once the REAL column is gone.
+ *
+ * Rows with more decimals than their currency has (12.345 USD) cannot be converted without
+ * changing them, and for the transaction log that would also break their hashes. The upgrade is
+ * refused, leaving the table as it was, until those rows are corrected.
+ */
+final class AmountMigration {
+    private static final double EPSILON = 1e-9; // relative; absorbs binary noise such as 10.1 * 100 = 1010.0000000000001
+    private static final int MAX_REPORTED = 5;
+
+    static void toMinorUnits(Connection c, String table, String... indexesOnAmount) throws SQLException {
+        if (!hasColumn(c, table, "amount")) return;
+
+        boolean auto = c.getAutoCommit();
+        c.setAutoCommit(false);
+        try (Statement st = c.createStatement()) {
+            List<String> currencies = new ArrayList<>();
+            try (ResultSet rs = st.executeQuery("SELECT DISTINCT currency FROM " + table)) {
+                while (rs.next()) currencies.add(rs.getString(1));
+            }
+            requireExact(c, table, currencies);
+
+            if (!hasColumn(c, table, "amount_minor")) {
+                st.execute("ALTER TABLE " + table + " ADD COLUMN amount_minor INTEGER NOT NULL DEFAULT 0");
+            }
+            String update = "UPDATE " + table + " SET amount_minor = CAST(ROUND(amount * ?) AS INTEGER) WHERE currency IS ?";
+            try (PreparedStatement ps = c.prepareStatement(update)) {
+                for (String cur : currencies) {
+                    ps.setLong(1, Money.scale(cur == null ? "" : cur));
+                    ps.setString(2, cur);
+                    ps.executeUpdate();
+                }
+            }
+
+            for (String idx : indexesOnAmount) st.execute("DROP INDEX IF EXISTS " + idx);
+            st.execute("ALTER TABLE " + table + " DROP COLUMN amount");
+            c.commit();
+        } catch (SQLException | RuntimeException e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(auto);
+        }
+    }
+
+    // Throws if any row's amount is not a whole number of its currency's minor units.
+    private static void requireExact(Connection c, String table, List<String> currencies) throws SQLException {
+        String sql = "SELECT id, amount FROM " + table + " WHERE currency IS ? "
+                + "AND ABS(amount * ? - ROUND(amount * ?)) > ? * MAX(1.0, ABS(amount * ?)) LIMIT " + (MAX_REPORTED + 1);
+        List<String> inexact = new ArrayList<>();
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            for (String cur : currencies) {
+                long scale = Money.scale(cur == null ? "" : cur);
+                ps.setString(1, cur);
+                ps.setLong(2, scale);
+                ps.setLong(3, scale);
+                ps.setDouble(4, EPSILON);
+                ps.setLong(5, scale);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next() && inexact.size() <= MAX_REPORTED) {
+                        inexact.add(rs.getString(1) + " (" + rs.getDouble(2) + " " + cur + ")");
+                    }
+                }
+            }
+        }
+        if (inexact.isEmpty()) return;
+        String shown = String.join(", ", inexact.subList(0, Math.min(MAX_REPORTED, inexact.size())))
+                + (inexact.size() > MAX_REPORTED ? ", ..." : "");
+        throw new IllegalStateException("Cannot convert " + table + " to minor units without rounding: " + shown
+                + ". Correct these amounts, then start again.");
+    }
+
+    static boolean hasColumn(Connection c, String table, String column) throws SQLException {
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) return true;
+            }
+            return false;
+        }
+    }
+
+    private AmountMigration() {}
+}
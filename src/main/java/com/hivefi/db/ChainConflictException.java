@@ -0,0 +1,13 @@
+package com.hivefi.db;
+
+/**
+ * An append lost the race for the next sequence number: another writer extended the chain
+ * after our cached head was read. The DAO has already reloaded its head; rebuild and retry.
+ */
+public class ChainConflictException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ChainConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
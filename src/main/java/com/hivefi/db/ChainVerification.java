@@ -0,0 +1,41 @@
+package com.hivefi.db;
+
+/** Outcome of a hash-chain audit. When {@code ok} is false, the break fields describe the first bad row. */
+public class ChainVerification {
+    private final boolean ok;
+    private final long checked;
+    private final long brokenAtIndex;
+    private final String brokenTxId;
+    private final String reason;
+
+    private ChainVerification(boolean ok, long checked, long brokenAtIndex, String brokenTxId, String reason) {
+        this.ok = ok;
+        this.checked = checked;
+        this.brokenAtIndex = brokenAtIndex;
+        this.brokenTxId = brokenTxId;
+        this.reason = reason;
+    }
+
+    static ChainVerification intact(long checked) {
+        return new ChainVerification(true, checked, -1, null, null);
+    }
+
+    static ChainVerification broken(long checked, long index, String txId, String reason) {
+        return new ChainVerification(false, checked, index, txId, reason);
+    }
+
+    public boolean isOk() { return ok; }
+    /** Rows verified (up to the break, if any). */
+    public long getChecked() { return checked; }
+    /** 0-based position of the first bad row in chain order, or -1. */
+    public long getBrokenAtIndex() { return brokenAtIndex; }
+    public String getBrokenTxId() { return brokenTxId; }
+    public String getReason() { return reason; }
+
+    @Override
+    public String toString() {
+        return ok
+                ? "chain OK (" + checked + " transactions)"
+                : "chain BROKEN at #" + brokenAtIndex + " (tx " + brokenTxId + "): " + reason;
+    }
+}
@@ -0,0 +1,99 @@
+package com.hivefi.db;
+
+import com.hivefi.models.Transaction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+
+/**
+ * Verifies a hash chain streamed in chain order.
+ *
+ * The reading thread cuts the stream into fixed-size segments and hands each to a fork-join
+ * pool, together with the hash the segment's first row must link to. Workers re-hash every
+ * row and check every prev_hash link inside their segment. At most a few segments are in
+ * flight at once, so memory stays bounded however long the log is.
+ */
+final class ChainVerifier {
+    static final int DEFAULT_SEGMENT_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+    private final int segmentSize;
+    private final int maxInFlight;
+
+    ChainVerifier(ForkJoinPool pool, int segmentSize) {
+        this.pool = pool;
+        this.segmentSize = Math.max(1, segmentSize);
+        this.maxInFlight = Math.max(2, pool.getParallelism() * 2);
+    }
+
+    /**
+     * @param rows         transactions in chain order
+     * @param expectedPrev hash the first row must point at ("" for the genesis row)
+     * @param firstIndex   chain position of the first row, used in the report
+     */
+    ChainVerification verify(Stream<Transaction> rows, String expectedPrev, long firstIndex) {
+        Deque<ForkJoinTask<ChainVerification>> inFlight = new ArrayDeque<>();
+        List<Transaction> segment = new ArrayList<>(segmentSize);
+        long segmentStart = firstIndex;
+        long checked = 0;
+        String linkTo = expectedPrev;
+
+        for (Iterator<Transaction> it = rows.iterator(); it.hasNext(); ) {
+            segment.add(it.next());
+            if (segment.size() == segmentSize) {
+                inFlight.add(pool.submit(segmentTask(segment, linkTo, segmentStart)));
+                linkTo = segment.get(segment.size() - 1).getTxHash();
+                segmentStart += segment.size();
+                segment = new ArrayList<>(segmentSize);
+
+                if (inFlight.size() >= maxInFlight) {
+                    ChainVerification r = inFlight.poll().join();
+                    if (!r.isOk()) return abandon(inFlight, r, checked);
+                    checked += r.getChecked();
+                }
+            }
+        }
+        if (!segment.isEmpty()) inFlight.add(pool.submit(segmentTask(segment, linkTo, segmentStart)));
+
+        while (!inFlight.isEmpty()) {
+            ChainVerification r = inFlight.poll().join();
+            if (!r.isOk()) return abandon(inFlight, r, checked);
+            checked += r.getChecked();
+        }
+        return ChainVerification.intact(checked);
+    }
+
+    private static ChainVerification abandon(Deque<ForkJoinTask<ChainVerification>> rest,
+                                             ChainVerification failure, long checkedBefore) {
+        for (ForkJoinTask<ChainVerification> t : rest) t.cancel(false);
+        return ChainVerification.broken(checkedBefore + failure.getChecked(),
+                failure.getBrokenAtIndex(), failure.getBrokenTxId(), failure.getReason());
+    }
+
+    private static Callable<ChainVerification> segmentTask(
+            List<Transaction> segment, String linkTo, long startIndex) {
+        return () -> verifySegment(segment, linkTo, startIndex);
+    }
+
+    static ChainVerification verifySegment(List<Transaction> segment, String linkTo, long startIndex) {
+        String prev = linkTo;
+        for (int i = 0; i < segment.size(); i++) {
+            Transaction t = segment.get(i);
+            if (!t.getPrevHash().equals(prev)) {
+                return ChainVerification.broken(i, startIndex + i, t.getId(), "prev_hash does not match previous tx_hash");
+            }
+            if (!t.hasValidHash()) {
+                return ChainVerification.broken(i, startIndex + i, t.getId(), "tx_hash does not match recomputed hash");
+            }
+            prev = t.getTxHash();
+        }
+        return ChainVerification.intact(segment.size());
+    }
+}
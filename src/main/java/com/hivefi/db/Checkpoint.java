@@ -0,0 +1,51 @@
+package com.hivefi.db;
+
+/**
+ * Audit checkpoint over a closed range of the transaction chain.
+ * Checkpoints are chained themselves: each hash covers the previous checkpoint's hash.
+ */
+public class Checkpoint {
+    private final long id;
+    private final long fromSeq;
+    private final long toSeq;
+    private final String headHash;
+    private final long txCount;
+    private final String createdAt;
+    private final String prevHash;
+    private final String checkpointHash;
+
+    public Checkpoint(long id, long fromSeq, long toSeq, String headHash, long txCount,
+                      String createdAt, String prevHash, String checkpointHash) {
+        this.id = id;
+        this.fromSeq = fromSeq;
+        this.toSeq = toSeq;
+        this.headHash = headHash;
+        this.txCount = txCount;
+        this.createdAt = createdAt;
+        this.prevHash = prevHash == null ? "" : prevHash;
+        this.checkpointHash = checkpointHash;
+    }
+
+    public long getId() { return id; }
+    /** First transaction sequence number covered (inclusive). */
+    public long getFromSeq() { return fromSeq; }
+    /** Last transaction sequence number covered (inclusive). */
+    public long getToSeq() { return toSeq; }
+    /** tx_hash of the transaction at {@link #getToSeq()}. */
+    public String getHeadHash() { return headHash; }
+    public long getTxCount() { return txCount; }
+    public String getCreatedAt() { return createdAt; }
+    public String getPrevHash() { return prevHash; }
+    public String getCheckpointHash() { return checkpointHash; }
+
+    /** The exact text that {@link #getCheckpointHash()} is computed over. */
+    String payload() {
+        return "from=" + fromSeq + "|to=" + toSeq + "|head=" + headHash + "|count=" + txCount
+                + "|at=" + createdAt + "|prev=" + prevHash;
+    }
+
+    @Override
+    public String toString() {
+        return "checkpoint #" + id + " [" + fromSeq + ".." + toSeq + "] head=" + headHash;
+    }
+}
@@ -0,0 +1,197 @@
+package com.hivefi.db;
+
+import com.hivefi.utils.Settings;
+import com.hivefi.utils.Sha256;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.sql.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stores audit checkpoints for the transaction chain (table tx_checkpoints).
+ *
+ * A checkpoint is written every {@code HIVEFI_CHECKPOINT_EVERY} transactions (default 1000) in the
+ * same database transaction as the rows it covers. Its hash is an HMAC-SHA256 keyed with
+ * {@code HIVEFI_CHECKPOINT_KEY} when that is set, otherwise a plain SHA-256. Only the keyed form
+ * stops someone who can write the database from forging a checkpoint.
+ */
+public class CheckpointDAO {
+    private static final int DEFAULT_EVERY = 1000;
+
+    private final int every;
+    private final byte[] key;
+    private Checkpoint last;       // newest committed checkpoint, null = none yet; guarded by this
+    private boolean lastLoaded;    // guarded by this
+
+    public CheckpointDAO() {
+        this(Settings.getInt("HIVEFI_CHECKPOINT_EVERY", DEFAULT_EVERY), readKey());
+    }
+
+    CheckpointDAO(int every, byte[] key) {
+        this.every = Math.max(1, every);
+        this.key = key;
+        SchemaManager.ensure();
+    }
+
+    public int every() {
+        return every;
+    }
+
+    /** Whether checkpoint hashes are keyed (HMAC) rather than plain digests. */
+    public boolean isSigned() {
+        return key != null;
+    }
+
+    // ---------- Writes ----------
+
+    /**
+     * Write every checkpoint that has become due after {@code after}, on the caller's connection so
+     * they commit (or roll back) with the transactions they cover. {@code after} is {@link #last()}
+     * or the checkpoint returned by an earlier call in the same transaction; {@code headSeq} is the
+     * chain head as seen on that connection, uncommitted rows included. Due-ness is arithmetic on
+     * the two, so nothing is read unless a checkpoint is written. Returns the newest checkpoint
+     * ({@code after} when none was due), to pass to {@link #advance} once the caller has committed.
+     */
+    Checkpoint checkpointIfDue(Connection c, Checkpoint after, long headSeq) {
+        long from = after == null ? 0 : after.getToSeq();
+        if (headSeq - from < every) return after; // the common case: no query at all
+        final String sql = "SELECT tx_hash FROM transactions WHERE seq = ?";
+        Checkpoint newest = after;
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            for (long toSeq = from + every; toSeq <= headSeq; toSeq += every) {
+                ps.setLong(1, toSeq);
+                String head;
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) throw new IllegalStateException("No transaction #" + toSeq + " below head #" + headSeq);
+                    head = rs.getString(1);
+                }
+                newest = insert(c, toSeq - every + 1, toSeq, head, every, newest == null ? "" : newest.getCheckpointHash());
+            }
+            return newest;
+        } catch (SQLException e) {
+            throw new RuntimeException("Write checkpoint failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Move the cached {@link #last()} from {@code from} to {@code to} after the caller committed
+     * them. If the cache no longer holds {@code from}, it is dropped and read again on next use.
+     */
+    public synchronized void advance(Checkpoint from, Checkpoint to) {
+        if (lastLoaded && last == from) last = to;
+        else lastLoaded = false;
+    }
+
+    /** Drop the cached {@link #last()}, e.g. after checkpoints were written without tracking it. */
+    synchronized void forgetLast() {
+        lastLoaded = false;
+    }
+
+    private Checkpoint insert(Connection c, long fromSeq, long toSeq, String head, long count, String prev)
+            throws SQLException {
+        final String sql = "INSERT INTO tx_checkpoints (from_seq, to_seq, head_hash, tx_count, created_at, "
+                + "prev_hash, checkpoint_hash) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String at = Instant.now().toString();
+        Checkpoint draft = new Checkpoint(0, fromSeq, toSeq, head, count, at, prev, null);
+        String hash = hash(draft);
+        try (PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setLong(1, fromSeq);
+            ps.setLong(2, toSeq);
+            ps.setString(3, head);
+            ps.setLong(4, count);
+            ps.setString(5, at);
+            ps.setString(6, prev);
+            ps.setString(7, hash);
+            ps.executeUpdate();
+            long id = 0;
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next()) id = keys.getLong(1);
+            }
+            return new Checkpoint(id, fromSeq, toSeq, head, count, at, prev, hash);
+        }
+    }
+
+    // ---------- Reads ----------
+
+    /** Newest committed checkpoint, read from the table once and then kept by {@link #advance}; null when none. */
+    public synchronized Checkpoint last() {
+        if (!lastLoaded) {
+            last = latest().orElse(null);
+            lastLoaded = true;
+        }
+        return last;
+    }
+
+    public Optional<Checkpoint> latest() {
+        try (Connection c = DatabaseManager.getConnection()) {
+            return latest(c);
+        } catch (SQLException e) {
+            throw new RuntimeException("Read checkpoint failed: " + e.getMessage(), e);
+        }
+    }
+
+    Optional<Checkpoint> latest(Connection c) {
+        final String sql = "SELECT * FROM tx_checkpoints ORDER BY to_seq DESC LIMIT 1";
+        try (PreparedStatement ps = c.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? Optional.of(map(rs)) : Optional.empty();
+        } catch (SQLException e) {
+            throw new RuntimeException("Read checkpoint failed: " + e.getMessage(), e);
+        }
+    }
+
+    public List<Checkpoint> findAll() {
+        final String sql = "SELECT * FROM tx_checkpoints ORDER BY to_seq ASC";
+        List<Checkpoint> out = new ArrayList<>();
+        try (Connection c = DatabaseManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) out.add(map(rs));
+            return out;
+        } catch (SQLException e) {
+            throw new RuntimeException("Read checkpoints failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** Whether the stored hash matches the checkpoint's contents (and key, if signed). */
+    public boolean isAuthentic(Checkpoint cp) {
+        return hash(cp).equals(cp.getCheckpointHash());
+    }
+
+    // ---------- Helpers ----------
+
+    private String hash(Checkpoint cp) {
+        if (key == null) return Sha256.local().append(cp.payload()).hex();
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return Sha256.toHex(mac.doFinal(cp.payload().getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("HMAC-SHA256 not available", e);
+        }
+    }
+
+    private static Checkpoint map(ResultSet rs) throws SQLException {
+        return new Checkpoint(
+                rs.getLong("id"),
+                rs.getLong("from_seq"),
+                rs.getLong("to_seq"),
+                rs.getString("head_hash"),
+                rs.getLong("tx_count"),
+                rs.getString("created_at"),
+                rs.getString("prev_hash"),
+                rs.getString("checkpoint_hash")
+        );
+    }
+
+    private static byte[] readKey() {
+        String raw = Settings.get("HIVEFI_CHECKPOINT_KEY");
+        return raw == null ? null : raw.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,249 @@
+package com.hivefi.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Bounded pool of long-lived SQLite connections.
+ * Connections are opened lazily up to {@code maxSize}, configured once with the
+ * pragmas below, and handed out as proxies whose {@code close()} returns them to the pool.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final String[] PRAGMAS = {
+            "PRAGMA journal_mode=WAL",
+            "PRAGMA synchronous=NORMAL",
+            "PRAGMA busy_timeout=5000",
+            "PRAGMA cache_size=-16000",      // ~16 MB page cache per connection
+            "PRAGMA mmap_size=268435456",    // 256 MB
+            "PRAGMA temp_store=MEMORY"
+    };
+
+    /** Explicit transactions take the write lock up front, so batches never fail on lock upgrade. */
+    private static final Properties CONNECTION_PROPS = new Properties();
+    static {
+        CONNECTION_PROPS.setProperty("transaction_mode", "IMMEDIATE");
+    }
+
+    private final String url;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final BlockingQueue<Connection> idle;
+    private final List<Connection> all = new ArrayList<>();
+    private final AtomicInteger opened = new AtomicInteger();
+    private final Semaphore permits;   // one per connection that may be lent out
+    private volatile boolean closed;
+
+    // stats
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    public ConnectionPool(String url, int maxSize, long borrowTimeoutMillis) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize must be >= 1");
+        this.url = url;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+        this.permits = new Semaphore(maxSize);
+    }
+
+    public String url() { return url; }
+
+    /** Borrow a connection; closing the returned handle gives it back to the pool. */
+    public Connection borrow() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+        borrows.incrementAndGet();
+
+        if (!permits.tryAcquire()) {
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+            long waited = System.nanoTime() - start;
+            waits.incrementAndGet();
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulate(waited);
+            if (!acquired) {
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a connection (pool size " + maxSize + ")");
+            }
+        }
+        try {
+            if (closed) throw new SQLException("Connection pool is closed");
+            Connection raw = idle.poll();
+            return wrap(raw != null ? raw : open());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Only called with a permit held, so at most maxSize connections are ever open.
+    private Connection open() throws SQLException {
+        opened.incrementAndGet();
+        try {
+            Connection c = DriverManager.getConnection(url, CONNECTION_PROPS);
+            try (Statement st = c.createStatement()) {
+                for (String p : PRAGMAS) st.execute(p);
+            }
+            synchronized (all) { all.add(c); }
+            return c;
+        } catch (SQLException e) {
+            opened.decrementAndGet();
+            throw e;
+        }
+    }
+
+    // The permit goes back last, once the connection is idle again or gone, so a waiter woken by it
+    // either finds the connection or has room to open a new one.
+    private void release(Connection raw) {
+        try {
+            if (raw.isClosed()) {
+                discard(raw);
+                return;
+            }
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            if (closed || !idle.offer(raw)) discard(raw);
+            else if (closed && idle.remove(raw)) discard(raw); // retired while it was being returned
+        } catch (SQLException e) {
+            discard(raw);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(Connection raw) {
+        synchronized (all) { all.remove(raw); }
+        opened.decrementAndGet();
+        try { raw.close(); } catch (SQLException ignore) { /* already broken */ }
+    }
+
+    private Connection wrap(Connection raw) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Handle(raw));
+    }
+
+    public Stats stats() {
+        return new Stats(maxSize, opened.get(), idle.size(), borrows.get(), waits.get(),
+                totalWaitNanos.get(), maxWaitNanos.get());
+    }
+
+    /**
+     * Stop lending without disturbing borrowers: idle connections are closed now, and each lent one
+     * when it is returned. Used when the pool is replaced while other threads may still hold connections.
+     */
+    public void retire() {
+        closed = true;
+        Connection c;
+        while ((c = idle.poll()) != null) discard(c);
+    }
+
+    /** Close every connection, including ones still lent out (e.g. on shutdown). */
+    @Override
+    public void close() {
+        closed = true;
+        List<Connection> snapshot;
+        synchronized (all) { snapshot = new ArrayList<>(all); all.clear(); }
+        idle.clear();
+        for (Connection c : snapshot) {
+            try { c.close(); } catch (SQLException ignore) { /* shutting down */ }
+        }
+    }
+
+    /** Proxy handler: {@code close()} returns the connection instead of closing it. */
+    private final class Handle implements InvocationHandler {
+        private final Connection raw;
+        private boolean returned;
+
+        Handle(Connection raw) { this.raw = raw; }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            switch (m.getName()) {
+                case "close":
+                    if (!returned) { returned = true; release(raw); }
+                    return null;
+                case "isClosed":
+                    return returned || raw.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(raw)) return raw;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled(" + raw + ")";
+                default:
+                    break;
+            }
+            if (returned) throw new SQLException("Connection already returned to pool");
+            try {
+                return m.invoke(raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /** Point-in-time pool counters. Wait figures only cover borrows that had to block. */
+    public static final class Stats {
+        public final int maxSize;
+        public final int open;
+        public final int idle;
+        public final long borrows;
+        public final long waits;
+        public final long totalWaitNanos;
+        public final long maxWaitNanos;
+
+        Stats(int maxSize, int open, int idle, long borrows, long waits, long totalWaitNanos, long maxWaitNanos) {
+            this.maxSize = maxSize;
+            this.open = open;
+            this.idle = idle;
+            this.borrows = borrows;
+            this.waits = waits;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public int inUse() { return open - idle; }
+
+        public double avgWaitMillis() {
+            return waits == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / waits;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("pool[size=%d/%d, idle=%d, inUse=%d, borrows=%d, waits=%d, avgWait=%.2fms, maxWait=%.2fms]",
+                    open, maxSize, idle, inUse(), borrows, waits, avgWaitMillis(), maxWaitNanos / 1_000_000.0);
+        }
+    }
+}
@@ -1,22 +1,57 @@
 package com.hivefi.db;
 
-import java.sql.Connection; 
-import java.sql.DriverManager; 
-import java.sql.SQLException; 
+import com.hivefi.utils.Settings;
+
+import java.sql.Connection;
+import java.sql.SQLException;
 
 public class DatabaseManager {
+    private static final int DEFAULT_POOL_SIZE = 8;
+    private static final int DEFAULT_BORROW_TIMEOUT_MS = 10_000;
+
+    private static volatile ConnectionPool pool;
+
     private static String resolveUrl() {
-        String prop = System.getProperty("HIVEFI_DB_URL");
-        if (prop != null && !prop.isBlank()) return prop;
-        String env = System.getenv("HIVEFI_DB_URL");
-        if (env != null && !env.isBlank()) return env;
-        return "jdbc:sqlite:hivefi.db"; 
+        return Settings.get("HIVEFI_DB_URL", "jdbc:sqlite:hivefi.db");
     }
 
+    /** Borrow a pooled connection. Callers must close it (try-with-resources) to hand it back. */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(resolveUrl());
+        return pool().borrow();
+    }
+
+    /**
+     * The pool for the currently configured URL; rebuilt if HIVEFI_DB_URL changed since last use.
+     * The old pool is retired, so connections other threads still hold stay usable until returned.
+     */
+    public static ConnectionPool pool() {
+        String url = resolveUrl();
+        ConnectionPool p = pool;
+        if (p != null && p.url().equals(url)) return p;
+        synchronized (DatabaseManager.class) {
+            p = pool;
+            if (p == null || !p.url().equals(url)) {
+                if (p != null) p.retire();
+                p = new ConnectionPool(url,
+                        Settings.getInt("HIVEFI_DB_POOL_SIZE", DEFAULT_POOL_SIZE),
+                        Settings.getInt("HIVEFI_DB_POOL_TIMEOUT_MS", DEFAULT_BORROW_TIMEOUT_MS));
+                pool = p;
+            }
+            return p;
+        }
+    }
+
+    public static ConnectionPool.Stats poolStats() {
+        return pool().stats();
+    }
+
+    /** Close every pooled connection (e.g. on shutdown). The next getConnection() starts a fresh pool. */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
     }
 
     private DatabaseManager() {}
 }
-
@@ -1,12 +1,19 @@
 package com.hivefi.db;
 
 import com.hivefi.models.Expense;
+import com.hivefi.models.Money;
 
 import java.sql.*; 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.time.format.DateTimeFormatter;
 
 public class ExpenseDAO {
@@ -14,51 +21,28 @@ public class ExpenseDAO {
     private static final DateTimeFormatter ISO_FMT = DateTimeFormatter.ISO_LOCAL_DATE;
 
     public ExpenseDAO() {
-        ensureSchema();
-    }
-
-    // ---------- Schema ----------
-    private void ensureSchema() {
-        final String createExpenses =
-                "CREATE TABLE IF NOT EXISTS expenses (" +
-                "  id TEXT PRIMARY KEY," +
-                "  category TEXT NOT NULL," +
-                "  currency TEXT NOT NULL," +
-                "  amount REAL NOT NULL," +
-                "  description TEXT," +
-                "  date_display TEXT NOT NULL," +   
-                "  date_iso TEXT NOT NULL" +        
-                ");";
-        final String idxCategory = "CREATE INDEX IF NOT EXISTS idx_expenses_category ON expenses(category);";
-        final String idxDate     = "CREATE INDEX IF NOT EXISTS idx_expenses_date ON expenses(date_iso);";
-        final String createProcessed =
-                "CREATE TABLE IF NOT EXISTS processed_requests (" +
-                "  id TEXT PRIMARY KEY," +
-                "  created_at TEXT NOT NULL" +
-                ");";
-
-        try (Connection c = DatabaseManager.getConnection();
-             Statement st = c.createStatement()) {
-            st.execute(createExpenses);
-            st.execute(idxCategory);
-            st.execute(idxDate);
-            st.execute(createProcessed);
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to ensure schema: " + e.getMessage(), e);
-        }
+        SchemaManager.ensure();
     }
 
     // ---------- CRUD ----------
     public void insert(Expense e) {
-        String sql = "INSERT INTO expenses (id, category, currency, amount, description, date_display, date_iso) " +
+        try (Connection c = DatabaseManager.getConnection()) {
+            insert(c, e);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Insert failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    /** Insert on the caller's connection, so it can join a wider transaction. */
+    public void insert(Connection c, Expense e) {
+        String sql = "INSERT INTO expenses (id, category, currency, amount_minor, description, date_display, date_iso) " +
                      "VALUES (?, ?, ?, ?, ?, ?, ?)";
         String iso = toIso(e.getDate());
-        try (Connection c = DatabaseManager.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, e.getID());
             ps.setString(2, e.getCategory());
             ps.setString(3, e.getCurrency());
-            ps.setDouble(4, e.getAmount());
+            ps.setLong(4, e.getAmountMinor());
             ps.setString(5, e.getDescription());
             ps.setString(6, e.getDate()); 
             ps.setString(7, iso);         
@@ -70,7 +54,7 @@ public class ExpenseDAO {
     }
 
     public Optional<Expense> findById(String id) {
-        String sql = "SELECT id, category, currency, amount, description, date_display FROM expenses WHERE id = ?";
+        String sql = "SELECT id, category, currency, amount_minor, description, date_display FROM expenses WHERE id = ?";
         try (Connection c = DatabaseManager.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, id);
@@ -84,57 +68,215 @@ public class ExpenseDAO {
     }
 
     public List<Expense> findAll() {
-        String sql = "SELECT id, category, currency, amount, description, date_display FROM expenses ORDER BY date_iso DESC";
-        List<Expense> out = new ArrayList<>();
-        try (Connection c = DatabaseManager.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) out.add(map(rs));
-            return out;
-        } catch (SQLException ex) {
-            throw new RuntimeException("findAll failed: " + ex.getMessage(), ex);
+        try (Stream<Expense> s = streamAll()) {
+            return s.collect(Collectors.toList());
         }
     }
 
     public List<Expense> findByCategory(String category) {
-        String sql = "SELECT id, category, currency, amount, description, date_display " +
+        try (Stream<Expense> s = streamByCategory(category)) {
+            return s.collect(Collectors.toList());
+        }
+    }
+
+    public List<Expense> findByDateRange(LocalDate fromInclusive, LocalDate toInclusive) {
+        try (Stream<Expense> s = streamByDateRange(fromInclusive, toInclusive)) {
+            return s.collect(Collectors.toList());
+        }
+    }
+
+    // ---------- Streaming ----------
+    // Rows are read from the cursor as the stream is consumed. Close the stream to release the connection.
+    public Stream<Expense> streamAll() {
+        String sql = "SELECT id, category, currency, amount_minor, description, date_display FROM expenses ORDER BY date_iso DESC";
+        return JdbcStreams.stream(sql, null, this::map, "findAll");
+    }
+
+    public Stream<Expense> streamByCategory(String category) {
+        String sql = "SELECT id, category, currency, amount_minor, description, date_display " +
                      "FROM expenses WHERE category = ? ORDER BY date_iso DESC";
-        List<Expense> out = new ArrayList<>();
+        return JdbcStreams.stream(sql, ps -> ps.setString(1, category), this::map, "findByCategory");
+    }
+
+    public Stream<Expense> streamByDateRange(LocalDate fromInclusive, LocalDate toInclusive) {
+        String sql = "SELECT id, category, currency, amount_minor, description, date_display " +
+                     "FROM expenses WHERE date_iso BETWEEN ? AND ? ORDER BY date_iso DESC";
+        return JdbcStreams.stream(sql, ps -> {
+            ps.setString(1, fromInclusive.format(ISO_FMT));
+            ps.setString(2, toInclusive.format(ISO_FMT));
+        }, this::map, "findByDateRange");
+    }
+
+    /** Visit every expense without holding the result set in memory. */
+    public void forEach(Consumer<? super Expense> action) {
+        try (Stream<Expense> s = streamAll()) {
+            s.forEach(action);
+        }
+    }
+
+    /** Receives the analytic columns of one row, without materializing an Expense. */
+    @FunctionalInterface
+    public interface ColumnVisitor {
+        void visit(String category, String currency, long amountMinor, String dateIso);
+    }
+
+    /** Full scan of (category, currency, amount_minor, date_iso), served from the covering date index. */
+    public void scanColumns(ColumnVisitor visitor) {
+        String sql = "SELECT category, currency, amount_minor, date_iso FROM expenses ORDER BY date_iso";
+        try (Connection c = DatabaseManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setFetchSize(JdbcStreams.DEFAULT_FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    visitor.visit(rs.getString(1), rs.getString(2), rs.getLong(3), rs.getString(4));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("scanColumns failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    // ---------- Keyset pagination ----------
+    // Newest first, ordered by (date_iso, id) DESC. The token carries the last row's key,
+    // so every page is an index seek regardless of how deep into the history it is.
+    public Page<Expense> pageAll(String pageToken, int pageSize) {
+        return page(null, null, null, pageToken, pageSize);
+    }
+
+    public Page<Expense> pageByCategory(String category, String pageToken, int pageSize) {
+        return page(category, null, null, pageToken, pageSize);
+    }
+
+    public Page<Expense> pageByDateRange(LocalDate fromInclusive, LocalDate toInclusive, String pageToken, int pageSize) {
+        return page(null, fromInclusive, toInclusive, pageToken, pageSize);
+    }
+
+    private Page<Expense> page(String category, LocalDate fromInclusive, LocalDate toInclusive,
+                               String pageToken, int pageSize) {
+        if (pageSize < 1) throw new IllegalArgumentException("pageSize must be >= 1");
+        List<String> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, category, currency, amount_minor, description, date_display, date_iso FROM expenses WHERE 1=1");
+        if (category != null) {
+            sql.append(" AND category = ?");
+            params.add(category);
+        }
+        if (fromInclusive != null) {
+            sql.append(" AND date_iso >= ?");
+            params.add(fromInclusive.format(ISO_FMT));
+        }
+        boolean resume = pageToken != null && !pageToken.isBlank();
+        if (resume) {
+            // The seek key already lies inside the range, so it replaces the upper bound
+            // and SQLite can start the index scan right at the key.
+            String[] key = Page.decodeToken(pageToken, 2);
+            sql.append(" AND (date_iso, id) < (?, ?)");
+            params.add(key[0]);
+            params.add(key[1]);
+        } else if (toInclusive != null) {
+            sql.append(" AND date_iso <= ?");
+            params.add(toInclusive.format(ISO_FMT));
+        }
+        sql.append(" ORDER BY date_iso DESC, id DESC LIMIT ?");
+
+        List<Expense> items = new ArrayList<>(pageSize);
+        String lastIso = null;
+        boolean more = false;
+        try (Connection c = DatabaseManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql.toString())) {
+            bind(ps, params);
+            ps.setInt(params.size() + 1, pageSize + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (items.size() == pageSize) { more = true; break; }
+                    items.add(map(rs));
+                    lastIso = rs.getString("date_iso");
+                }
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("page failed: " + ex.getMessage(), ex);
+        }
+        String next = more ? Page.encodeToken(lastIso, items.get(items.size() - 1).getID()) : null;
+        return new Page<>(items, next);
+    }
+
+    // ---------- Aggregates ----------
+    public long count() {
+        return count(null, null);
+    }
+
+    /** Row count, optionally bounded by date (either bound may be null). */
+    public long count(LocalDate fromInclusive, LocalDate toInclusive) {
+        List<String> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM expenses" + dateWhere(fromInclusive, toInclusive, params);
         try (Connection c = DatabaseManager.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, category);
+            bind(ps, params);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) out.add(map(rs));
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("count failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    /** category -> currency -> exact total, optionally bounded by date. */
+    public Map<String, Map<String, Money>> sumByCategoryAndCurrency(LocalDate fromInclusive, LocalDate toInclusive) {
+        List<String> params = new ArrayList<>();
+        String sql = "SELECT category, currency, SUM(amount_minor) FROM expenses"
+                + dateWhere(fromInclusive, toInclusive, params)
+                + " GROUP BY category, currency ORDER BY category, currency";
+        Map<String, Map<String, Money>> out = new LinkedHashMap<>();
+        try (Connection c = DatabaseManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.computeIfAbsent(rs.getString(1), k -> new LinkedHashMap<>())
+                       .put(rs.getString(2), Money.ofMinor(rs.getLong(3), rs.getString(2)));
+                }
             }
             return out;
         } catch (SQLException ex) {
-            throw new RuntimeException("findByCategory failed: " + ex.getMessage(), ex);
+            throw new RuntimeException("sumByCategoryAndCurrency failed: " + ex.getMessage(), ex);
         }
     }
 
-    public List<Expense> findByDateRange(LocalDate fromInclusive, LocalDate toInclusive) {
-        String sql = "SELECT id, category, currency, amount, description, date_display " +
-                     "FROM expenses WHERE date_iso BETWEEN ? AND ? ORDER BY date_iso DESC";
-        List<Expense> out = new ArrayList<>();
+    /** month -> currency -> exact total, optionally bounded by date. Months are in ascending order. */
+    public Map<YearMonth, Map<String, Money>> sumByMonth(LocalDate fromInclusive, LocalDate toInclusive) {
+        List<String> params = new ArrayList<>();
+        String sql = "SELECT substr(date_iso, 1, 7) AS month, currency, SUM(amount_minor) FROM expenses"
+                + dateWhere(fromInclusive, toInclusive, params)
+                + " GROUP BY month, currency ORDER BY month, currency";
+        Map<YearMonth, Map<String, Money>> out = new LinkedHashMap<>();
         try (Connection c = DatabaseManager.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, fromInclusive.format(ISO_FMT));
-            ps.setString(2, toInclusive.format(ISO_FMT));
+            bind(ps, params);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) out.add(map(rs));
+                while (rs.next()) {
+                    out.computeIfAbsent(YearMonth.parse(rs.getString(1)), k -> new LinkedHashMap<>())
+                       .put(rs.getString(2), Money.ofMinor(rs.getLong(3), rs.getString(2)));
+                }
             }
             return out;
         } catch (SQLException ex) {
-            throw new RuntimeException("findByDateRange failed: " + ex.getMessage(), ex);
+            throw new RuntimeException("sumByMonth failed: " + ex.getMessage(), ex);
         }
     }
 
     // ---------- Idempotency ----------
     /** Returns true if this request id was recorded (i.e., first time), false if it was already processed. */
     public boolean markProcessed(String requestId) {
+        try (Connection c = DatabaseManager.getConnection()) {
+            return markProcessed(c, requestId);
+        } catch (SQLException ex) {
+            throw new RuntimeException("markProcessed failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    public boolean markProcessed(Connection c, String requestId) {
         String sql = "INSERT OR IGNORE INTO processed_requests (id, created_at) VALUES (?, datetime('now'))";
-        try (Connection c = DatabaseManager.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, requestId);
             int changed = ps.executeUpdate();
             return changed == 1;
@@ -148,13 +290,31 @@ public class ExpenseDAO {
         return new Expense(
                 rs.getString("id"),
                 rs.getString("category"),
-                rs.getString("currency"),
-                rs.getDouble("amount"),
+                Money.ofMinor(rs.getLong("amount_minor"), rs.getString("currency")),
                 rs.getString("description"),
                 rs.getString("date_display")
         );
     }
 
+    private static String dateWhere(LocalDate fromInclusive, LocalDate toInclusive, List<String> params) {
+        if (fromInclusive == null && toInclusive == null) return "";
+        if (toInclusive == null) {
+            params.add(fromInclusive.format(ISO_FMT));
+            return " WHERE date_iso >= ?";
+        }
+        if (fromInclusive == null) {
+            params.add(toInclusive.format(ISO_FMT));
+            return " WHERE date_iso <= ?";
+        }
+        params.add(fromInclusive.format(ISO_FMT));
+        params.add(toInclusive.format(ISO_FMT));
+        return " WHERE date_iso BETWEEN ? AND ?";
+    }
+
+    private static void bind(PreparedStatement ps, List<String> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) ps.setString(i + 1, params.get(i));
+    }
+
     private String toIso(String ddMMyyyy) {
         LocalDate d = LocalDate.parse(ddMMyyyy, OUT_FMT);
         return d.format(ISO_FMT);
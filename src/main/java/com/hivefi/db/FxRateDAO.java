@@ -0,0 +1,184 @@
+package com.hivefi.db;
+
+import com.hivefi.models.RateTable;
+
+import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Persistent FX rates (table fx_rates), one row per (base, quote, date).
+ *
+ * The primary key is ordered (base, rate_date, quote), so a whole table for one base and day is
+ * one range read. A second index on (base, quote, rate_date) serves single-pair lookups. Dates
+ * are ISO text, so "latest on or before" is an index seek.
+ */
+public class FxRateDAO {
+
+    public FxRateDAO() {
+        SchemaManager.ensure();
+    }
+
+    // ---------- Writes ----------
+
+    public void save(RateTable table) {
+        saveAll(List.of(table));
+    }
+
+    /** Upsert every quote of every table in one transaction. Returns the number of rows written. */
+    public int saveAll(Collection<RateTable> tables) {
+        final String sql = "INSERT OR REPLACE INTO fx_rates (base, quote, rate_date, rate, fetched_at) "
+                + "VALUES (?, ?, ?, ?, ?)";
+        try (Connection c = DatabaseManager.getConnection()) {
+            c.setAutoCommit(false);
+            int rows = 0;
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                for (RateTable t : tables) {
+                    String base = t.getBase();
+                    for (String quote : t.currencies()) {
+                        if (quote.equals(base)) continue;
+                        ps.setString(1, base);
+                        ps.setString(2, quote);
+                        ps.setString(3, t.getDate().toString());
+                        ps.setDouble(4, t.rate(base, quote));
+                        ps.setString(5, t.getFetchedAt().toString());
+                        ps.addBatch();
+                        rows++;
+                    }
+                }
+                ps.executeBatch();
+                c.commit();
+                return rows;
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Save FX rates failed: " + e.getMessage(), e);
+        }
+    }
+
+    // ---------- Reads ----------
+
+    /** Every quote for {@code base} on exactly {@code date}. */
+    public Optional<RateTable> find(String base, LocalDate date) {
+        final String sql = "SELECT quote, rate, fetched_at FROM fx_rates WHERE base = ? AND rate_date = ?";
+        String b = normalize(base);
+        try (Connection c = DatabaseManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, b);
+            ps.setString(2, date.toString());
+            return readTable(ps, b, date);
+        } catch (SQLException e) {
+            throw new RuntimeException("Read FX rates failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The newest table for {@code base} dated on or before {@code date}, looking back at most
+     * {@code lookbackDays} (providers publish no rates on weekends and holidays).
+     */
+    public Optional<RateTable> findOnOrBefore(String base, LocalDate date, int lookbackDays) {
+        Optional<LocalDate> day = latestDate(base, date.minusDays(Math.max(0, lookbackDays)), date);
+        return day.isPresent() ? find(base, day.get()) : Optional.empty();
+    }
+
+    /** The most recent table stored for {@code base}. */
+    public Optional<RateTable> latest(String base) {
+        Optional<LocalDate> day = latestDate(base, LocalDate.MIN, LocalDate.MAX);
+        return day.isPresent() ? find(base, day.get()) : Optional.empty();
+    }
+
+    /** The most recent stored rate for one pair, as a one-quote table. */
+    public Optional<RateTable> latest(String base, String quote) {
+        final String sql = "SELECT quote, rate, fetched_at, rate_date FROM fx_rates "
+                + "WHERE base = ? AND quote = ? ORDER BY rate_date DESC LIMIT 1";
+        String b = normalize(base);
+        try (Connection c = DatabaseManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, b);
+            ps.setString(2, normalize(quote));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return Optional.empty();
+                return Optional.of(new RateTable(b, Map.of(rs.getString(1), rs.getDouble(2)),
+                        Instant.parse(rs.getString(3)), LocalDate.parse(rs.getString(4))));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Read FX rates failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** Days within [from, to] that have rates stored for {@code base}. */
+    public SortedSet<LocalDate> datesStored(String base, LocalDate fromInclusive, LocalDate toInclusive) {
+        final String sql = "SELECT DISTINCT rate_date FROM fx_rates WHERE base = ? AND rate_date BETWEEN ? AND ?";
+        SortedSet<LocalDate> out = new TreeSet<>();
+        try (Connection c = DatabaseManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, normalize(base));
+            ps.setString(2, fromInclusive.toString());
+            ps.setString(3, toInclusive.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(LocalDate.parse(rs.getString(1)));
+            }
+            return out;
+        } catch (SQLException e) {
+            throw new RuntimeException("Read FX rates failed: " + e.getMessage(), e);
+        }
+    }
+
+    public long count() {
+        try (Connection c = DatabaseManager.getConnection();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM fx_rates")) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        } catch (SQLException e) {
+            throw new RuntimeException("Count FX rates failed: " + e.getMessage(), e);
+        }
+    }
+
+    // ---------- Helpers ----------
+
+    private Optional<LocalDate> latestDate(String base, LocalDate fromInclusive, LocalDate toInclusive) {
+        final String sql = "SELECT MAX(rate_date) FROM fx_rates WHERE base = ? AND rate_date BETWEEN ? AND ?";
+        try (Connection c = DatabaseManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, normalize(base));
+            // LocalDate.MIN/MAX print with a sign; plain bounds keep the text comparison sound
+            ps.setString(2, fromInclusive.equals(LocalDate.MIN) ? "0000-01-01" : fromInclusive.toString());
+            ps.setString(3, toInclusive.equals(LocalDate.MAX) ? "9999-12-31" : toInclusive.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                String d = rs.next() ? rs.getString(1) : null;
+                return d == null ? Optional.empty() : Optional.of(LocalDate.parse(d));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Read FX rates failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static Optional<RateTable> readTable(PreparedStatement ps, String base, LocalDate date) throws SQLException {
+        Map<String, Double> rates = new HashMap<>();
+        Instant fetchedAt = null;
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                rates.put(rs.getString(1), rs.getDouble(2));
+                Instant at = Instant.parse(rs.getString(3));
+                if (fetchedAt == null || at.isBefore(fetchedAt)) fetchedAt = at; // oldest quote dates the table
+            }
+        }
+        return rates.isEmpty() ? Optional.empty() : Optional.of(new RateTable(base, rates, fetchedAt, date));
+    }
+
+    private static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,73 @@
+package com.hivefi.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily-read query results. The returned stream owns its connection, statement and
+ * result set and releases them when closed, so always use it in try-with-resources.
+ */
+final class JdbcStreams {
+    static final int DEFAULT_FETCH_SIZE = 512;
+
+    @FunctionalInterface
+    interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    static <T> Stream<T> stream(String sql, Binder binder, RowMapper<T> mapper, String what) {
+        Connection c = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            c = DatabaseManager.getConnection();
+            ps = c.prepareStatement(sql);
+            ps.setFetchSize(DEFAULT_FETCH_SIZE);
+            if (binder != null) binder.bind(ps);
+            rs = ps.executeQuery();
+        } catch (SQLException ex) {
+            closeQuietly(rs, ps, c);
+            throw new RuntimeException(what + " failed: " + ex.getMessage(), ex);
+        }
+
+        final ResultSet cursor = rs;
+        final PreparedStatement stmt = ps;
+        final Connection conn = c;
+        Spliterator<T> split = new Spliterators.AbstractSpliterator<T>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!cursor.next()) return false;
+                    action.accept(mapper.map(cursor));
+                    return true;
+                } catch (SQLException ex) {
+                    throw new RuntimeException(what + " failed: " + ex.getMessage(), ex);
+                }
+            }
+        };
+        return StreamSupport.stream(split, false)
+                .onClose(() -> closeQuietly(cursor, stmt, conn));
+    }
+
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable r : resources) {
+            if (r == null) continue;
+            try { r.close(); } catch (Exception ignore) { /* best effort */ }
+        }
+    }
+
+    private JdbcStreams() {}
+}
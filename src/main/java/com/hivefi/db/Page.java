@@ -0,0 +1,43 @@
+package com.hivefi.db;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. {@code nextToken} is opaque to callers:
+ * pass it back unchanged to fetch the following page; it is null on the last page.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextToken;
+
+    public Page(List<T> items, String nextToken) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextToken = nextToken;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextToken() { return nextToken; }
+    public boolean hasNext() { return nextToken != null; }
+
+    // ---------- Token encoding (package-private: only DAOs mint and read tokens) ----------
+    private static final char SEP = '\u001f';
+
+    static String encodeToken(String... parts) {
+        String joined = String.join(String.valueOf(SEP), parts);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String[] decodeToken(String token, int expectedParts) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(String.valueOf(SEP), -1);
+            if (parts.length != expectedParts) throw new IllegalArgumentException("Invalid page token");
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.hivefi.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The database schema, versioned with SQLite's {@code PRAGMA user_version}.
+ *
+ * Migration N takes the schema from version N-1 to N. {@link #ensure()} runs only the migrations
+ * the database has not seen, each followed by its version bump. On a current database the first
+ * DAO in a process costs one pragma read, and later ones cost nothing.
+ *
+ * Every migration is idempotent (IF NOT EXISTS, column checks). A database created before
+ * versioning (user_version 0, any older shape) is upgraded by replaying them all, and a crash
+ * between a migration and its bump just repeats that migration.
+ */
+final class SchemaManager {
+
+    @FunctionalInterface
+    private interface Migration {
+        void apply(Connection c, Statement st) throws SQLException;
+    }
+
+    private static final Migration[] MIGRATIONS = {
+            SchemaManager::ledgerTables,   // 1
+            SchemaManager::auditTables,    // 2
+            SchemaManager::fxRates,        // 3
+    };
+
+    static final int LATEST = MIGRATIONS.length;
+
+    private static volatile String current; // URL of the database known to be at LATEST in this process
+
+    /** Bring the configured database up to {@link #LATEST}, once per process and URL. */
+    static void ensure() {
+        String url = DatabaseManager.pool().url();
+        if (url.equals(current)) return;
+        synchronized (SchemaManager.class) {
+            if (url.equals(current)) return;
+            try (Connection c = DatabaseManager.getConnection()) {
+                migrate(c);
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to ensure schema: " + e.getMessage(), e);
+            }
+            current = url;
+        }
+    }
+
+    /** Run the pending migrations on {@code c}. Returns how many ran. */
+    static int migrate(Connection c) throws SQLException {
+        int from = version(c);
+        if (from > LATEST) {
+            throw new IllegalStateException("Database schema version " + from + " is newer than this build (" + LATEST + ")");
+        }
+        try (Statement st = c.createStatement()) {
+            for (int v = from; v < LATEST; v++) {
+                MIGRATIONS[v].apply(c, st);
+                st.execute("PRAGMA user_version = " + (v + 1));
+            }
+        }
+        return LATEST - from;
+    }
+
+    static int version(Connection c) throws SQLException {
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // ---------- Migrations ----------
+
+    // 1: expenses, idempotency marks and the transaction log, including upgrades of pre-versioning tables
+    private static void ledgerTables(Connection c, Statement st) throws SQLException {
+        st.execute("CREATE TABLE IF NOT EXISTS expenses ("
+                + "  id TEXT PRIMARY KEY,"
+                + "  category TEXT NOT NULL,"
+                + "  currency TEXT NOT NULL,"
+                + "  amount_minor INTEGER NOT NULL,"   // minor units of currency
+                + "  description TEXT,"
+                + "  date_display TEXT NOT NULL,"
+                + "  date_iso TEXT NOT NULL"
+                + ")");
+        AmountMigration.toMinorUnits(c, "expenses", "idx_expenses_cat_cur_amt", "idx_expenses_date_cover");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_expenses_category ON expenses(category)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_expenses_date ON expenses(date_iso)");
+        // Covering indexes for the aggregate queries: GROUP BY / SUM never touch the base table.
+        st.execute("CREATE INDEX IF NOT EXISTS idx_expenses_cat_cur_amt ON expenses(category, currency, amount_minor)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_expenses_date_cover ON expenses(date_iso, category, currency, amount_minor)");
+        // Keyset pagination seeks on (date_iso, id), optionally within a category.
+        st.execute("CREATE INDEX IF NOT EXISTS idx_expenses_date_id ON expenses(date_iso, id)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_expenses_cat_date_id ON expenses(category, date_iso, id)");
+        st.execute("CREATE TABLE IF NOT EXISTS processed_requests ("
+                + "  id TEXT PRIMARY KEY,"
+                + "  created_at TEXT NOT NULL"
+                + ")");
+
+        st.execute("CREATE TABLE IF NOT EXISTS transactions ("
+                + "  id TEXT PRIMARY KEY,"
+                + "  action TEXT NOT NULL,"
+                + "  expense_id TEXT NOT NULL,"
+                + "  category TEXT,"
+                + "  currency TEXT,"
+                + "  amount_minor INTEGER,"   // minor units of currency
+                + "  date_display TEXT,"
+                + "  description TEXT,"
+                + "  timestamp TEXT NOT NULL,"
+                + "  prev_hash TEXT,"
+                + "  tx_hash TEXT NOT NULL,"
+                + "  seq INTEGER NOT NULL"    // position in the chain, 1-based
+                + ")");
+        AmountMigration.toMinorUnits(c, "transactions");
+        addSeqColumn(c);
+        st.execute("CREATE INDEX IF NOT EXISTS idx_tx_timestamp ON transactions(timestamp)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_tx_expense ON transactions(expense_id)");
+        st.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_tx_seq ON transactions(seq)");
+    }
+
+    // Older transaction tables have no seq; rowid already follows insertion order, so it is the backfill.
+    private static void addSeqColumn(Connection c) throws SQLException {
+        if (AmountMigration.hasColumn(c, "transactions", "seq")) return;
+        boolean auto = c.getAutoCommit();
+        c.setAutoCommit(false);
+        try (Statement st = c.createStatement()) {
+            st.execute("ALTER TABLE transactions ADD COLUMN seq INTEGER");
+            st.execute("UPDATE transactions SET seq = rowid");
+            c.commit();
+        } catch (SQLException e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(auto);
+        }
+    }
+
+    // 2: checkpoints over the transaction chain, and the index of archived segments
+    private static void auditTables(Connection c, Statement st) throws SQLException {
+        st.execute("CREATE TABLE IF NOT EXISTS tx_checkpoints ("
+                + "  id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "  from_seq INTEGER NOT NULL,"
+                + "  to_seq INTEGER NOT NULL UNIQUE,"
+                + "  head_hash TEXT NOT NULL,"
+                + "  tx_count INTEGER NOT NULL,"
+                + "  created_at TEXT NOT NULL,"
+                + "  prev_hash TEXT NOT NULL,"
+                + "  checkpoint_hash TEXT NOT NULL"
+                + ")");
+        st.execute("CREATE TABLE IF NOT EXISTS tx_archive_segments ("
+                + "  file_name TEXT PRIMARY KEY,"
+                + "  from_seq INTEGER NOT NULL UNIQUE,"
+                + "  to_seq INTEGER NOT NULL,"
+                + "  row_count INTEGER NOT NULL,"
+                + "  min_ts TEXT NOT NULL,"
+                + "  max_ts TEXT NOT NULL,"
+                + "  created_at TEXT NOT NULL"
+                + ")");
+    }
+
+    // 3: FX rates by (base, date, quote); see FxRateDAO
+    private static void fxRates(Connection c, Statement st) throws SQLException {
+        st.execute("CREATE TABLE IF NOT EXISTS fx_rates ("
+                + "  base TEXT NOT NULL,"
+                + "  quote TEXT NOT NULL,"
+                + "  rate_date TEXT NOT NULL,"   // yyyy-MM-dd
+                + "  rate REAL NOT NULL,"
+                + "  fetched_at TEXT NOT NULL,"
+                + "  PRIMARY KEY (base, rate_date, quote)"
+                + ") WITHOUT ROWID");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_fx_rates_pair ON fx_rates(base, quote, rate_date)");
+    }
+
+    private SchemaManager() {}
+}
@@ -0,0 +1,14 @@
+package com.hivefi.db;
+
+import com.hivefi.models.Transaction;
+
+/** A transaction together with its chain position, as read from either storage tier. */
+final class SeqRow {
+    final long seq;
+    final Transaction tx;
+
+    SeqRow(long seq, Transaction tx) {
+        this.seq = seq;
+        this.tx = tx;
+    }
+}
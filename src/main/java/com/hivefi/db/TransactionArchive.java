@@ -0,0 +1,225 @@
+package com.hivefi.db;
+
+import com.hivefi.utils.Settings;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier of the transaction log: old seq ranges moved out of SQLite into {@link TxSegment} files.
+ *
+ * Segments live in {@code HIVEFI_ARCHIVE_DIR} (default {@code hivefi-archive}). They are listed
+ * in the tx_archive_segments table, which is updated in the same database transaction that deletes
+ * the moved rows. A row is therefore always in exactly one committed tier. Files are written and
+ * synced before that commit, and are never modified or removed afterwards.
+ */
+public class TransactionArchive {
+    static final int DEFAULT_SEGMENT_ROWS = 50_000;
+
+    private final Path dir;
+    private final int segmentRows;
+    private final Map<String, TxSegment> open = new ConcurrentHashMap<>();
+
+    public TransactionArchive() {
+        this(Paths.get(Settings.get("HIVEFI_ARCHIVE_DIR", "hivefi-archive")),
+                Settings.getInt("HIVEFI_ARCHIVE_SEGMENT_ROWS", DEFAULT_SEGMENT_ROWS));
+    }
+
+    TransactionArchive(Path dir, int segmentRows) {
+        this.dir = dir;
+        this.segmentRows = Math.max(1, segmentRows);
+        SchemaManager.ensure();
+    }
+
+    public Path directory() {
+        return dir;
+    }
+
+    /** Highest seq held in the archive, or 0 when nothing is archived. */
+    public long archivedThrough() {
+        final String sql = "SELECT COALESCE(MAX(to_seq), 0) FROM tx_archive_segments";
+        try (Connection c = DatabaseManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new RuntimeException("Read archive segments failed: " + e.getMessage(), e);
+        }
+    }
+
+    public int segmentCount() {
+        return segments(null, null).size();
+    }
+
+    // ---------- Archival ----------
+
+    /**
+     * Move live rows with seq <= {@code throughSeq} into new segment files, oldest first, one
+     * segment (and one database transaction) per {@code HIVEFI_ARCHIVE_SEGMENT_ROWS} rows.
+     * Returns the number of rows moved.
+     */
+    long moveThrough(long throughSeq) {
+        long moved = 0;
+        while (true) {
+            List<SeqRow> rows = readLive(throughSeq);
+            if (rows.isEmpty()) return moved;
+            long from = rows.get(0).seq, to = rows.get(rows.size() - 1).seq;
+            String name = String.format("tx-%012d-%012d.seg", from, to);
+            Path file = dir.resolve(name);
+            try {
+                Files.createDirectories(dir);
+                TxSegment.write(file, rows);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Write archive segment failed: " + e.getMessage(), e);
+            }
+            try {
+                register(name, rows);
+            } catch (RuntimeException e) {
+                try { Files.deleteIfExists(file); } catch (IOException ignore) { /* orphan file is harmless */ }
+                throw e;
+            }
+            moved += rows.size();
+        }
+    }
+
+    private List<SeqRow> readLive(long throughSeq) {
+        final String sql = "SELECT seq, id, action, expense_id, category, currency, amount_minor, "
+                + "date_display, description, timestamp, prev_hash, tx_hash "
+                + "FROM transactions WHERE seq <= ? ORDER BY seq ASC LIMIT ?";
+        List<SeqRow> rows = new ArrayList<>();
+        try (Connection c = DatabaseManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setLong(1, throughSeq);
+            ps.setInt(2, segmentRows);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) rows.add(TransactionDAO.mapWithSeq(rs));
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw new RuntimeException("Read transactions failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void register(String name, List<SeqRow> rows) {
+        final String insert = "INSERT INTO tx_archive_segments (file_name, from_seq, to_seq, row_count, min_ts, max_ts, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        final String delete = "DELETE FROM transactions WHERE seq BETWEEN ? AND ?";
+        String minTs = null, maxTs = null;
+        for (SeqRow r : rows) {
+            String ts = r.tx.getTimestamp();
+            if (minTs == null || ts.compareTo(minTs) < 0) minTs = ts;
+            if (maxTs == null || ts.compareTo(maxTs) > 0) maxTs = ts;
+        }
+        long from = rows.get(0).seq, to = rows.get(rows.size() - 1).seq;
+        try (Connection c = DatabaseManager.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ins = c.prepareStatement(insert);
+                 PreparedStatement del = c.prepareStatement(delete)) {
+                ins.setString(1, name);
+                ins.setLong(2, from);
+                ins.setLong(3, to);
+                ins.setInt(4, rows.size());
+                ins.setString(5, minTs);
+                ins.setString(6, maxTs);
+                ins.setString(7, Instant.now().toString());
+                ins.executeUpdate();
+                del.setLong(1, from);
+                del.setLong(2, to);
+                if (del.executeUpdate() != rows.size()) {
+                    throw new SQLException("live rows changed while archiving " + from + ".." + to);
+                }
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Register archive segment failed: " + e.getMessage(), e);
+        }
+    }
+
+    // ---------- Reads ----------
+
+    /** Archived rows with afterSeq < seq <= throughSeq, in seq order. */
+    Stream<SeqRow> stream(long afterSeq, long throughSeq) {
+        if (throughSeq <= afterSeq) return Stream.empty();
+        return segments(afterSeq, throughSeq).stream()
+                .flatMap(s -> s.stream(afterSeq, throughSeq));
+    }
+
+    List<SeqRow> findByExpense(String expenseId) {
+        List<SeqRow> out = new ArrayList<>();
+        for (TxSegment s : segments(null, null)) out.addAll(s.findByExpense(expenseId));
+        return out;
+    }
+
+    /** Archived rows with from <= timestamp < to (either bound may be null), in seq order. */
+    Stream<SeqRow> streamByTimestampRange(String fromInclusive, String toExclusive) {
+        final String sql = "SELECT file_name FROM tx_archive_segments "
+                + "WHERE (? IS NULL OR max_ts >= ?) AND (? IS NULL OR min_ts < ?) ORDER BY from_seq";
+        List<TxSegment> hits = new ArrayList<>();
+        try (Connection c = DatabaseManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, fromInclusive);
+            ps.setString(2, fromInclusive);
+            ps.setString(3, toExclusive);
+            ps.setString(4, toExclusive);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) hits.add(segment(rs.getString(1)));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Read archive segments failed: " + e.getMessage(), e);
+        }
+        return hits.stream()
+                .flatMap(s -> s.stream(s.fromSeq() - 1, s.toSeq()))
+                .filter(r -> (fromInclusive == null || r.tx.getTimestamp().compareTo(fromInclusive) >= 0)
+                        && (toExclusive == null || r.tx.getTimestamp().compareTo(toExclusive) < 0));
+    }
+
+    Optional<String> hashAt(long seq) {
+        List<TxSegment> hit = segments(seq - 1, seq);
+        return hit.isEmpty() ? Optional.empty() : hit.get(0).hashAt(seq);
+    }
+
+    /** Segments overlapping (afterSeq, throughSeq], or all of them when both are null. */
+    private List<TxSegment> segments(Long afterSeq, Long throughSeq) {
+        final String sql = "SELECT file_name FROM tx_archive_segments "
+                + "WHERE (? IS NULL OR to_seq > ?) AND (? IS NULL OR from_seq <= ?) ORDER BY from_seq";
+        List<TxSegment> out = new ArrayList<>();
+        try (Connection c = DatabaseManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setObject(1, afterSeq);
+            ps.setObject(2, afterSeq);
+            ps.setObject(3, throughSeq);
+            ps.setObject(4, throughSeq);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(segment(rs.getString(1)));
+            }
+            return out;
+        } catch (SQLException e) {
+            throw new RuntimeException("Read archive segments failed: " + e.getMessage(), e);
+        }
+    }
+
+    private TxSegment segment(String name) {
+        return open.computeIfAbsent(name, n -> {
+            try {
+                return TxSegment.open(dir.resolve(n));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Open archive segment failed: " + e.getMessage(), e);
+            }
+        });
+    }
+}
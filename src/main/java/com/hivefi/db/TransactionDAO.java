@@ -1,89 +1,403 @@
 package com.hivefi.db;
 
 import com.hivefi.models.Transaction;
+import com.hivefi.utils.Settings;
 
 import java.sql.*;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class TransactionDAO {
 
+    private static final int SQLITE_CONSTRAINT = 19; // primary result code; extended codes keep it in the low byte
+    private static final int MAX_APPEND_ATTEMPTS = 3;
+    private static final int DEFAULT_ARCHIVE_AFTER_DAYS = 90;
+    private static final String COLUMNS = "SELECT seq, id, action, expense_id, category, currency, amount_minor, "
+            + "date_display, description, timestamp, prev_hash, tx_hash FROM transactions";
+
+    /**
+     * A link of the chain: its sequence number (0 when empty) and tx_hash ("" when empty). Only this
+     * DAO creates them, from the table or from a row it has just appended, so a head always names
+     * a real link.
+     */
+    public static final class ChainHead {
+        public static final ChainHead EMPTY = new ChainHead(0L, "");
+
+        private final long seq;
+        private final String hash;
+
+        private ChainHead(long seq, String hash) {
+            this.seq = seq;
+            this.hash = hash;
+        }
+
+        public long getSeq() { return seq; }
+        public String getHash() { return hash; }
+
+        /** The head after appending {@code t} at the next sequence number. */
+        ChainHead next(Transaction t) {
+            return new ChainHead(seq + 1, t.getTxHash());
+        }
+    }
+
+    private final CheckpointDAO checkpoints;
+    private final TransactionArchive archive;
+    private final AtomicReference<ChainHead> head = new AtomicReference<>(ChainHead.EMPTY);
+
     public TransactionDAO() {
-        ensureSchema();
-    }
-
-    private void ensureSchema() {
-        final String create = ""
-                + "CREATE TABLE IF NOT EXISTS transactions ("
-                + "  id TEXT PRIMARY KEY,"
-                + "  action TEXT NOT NULL,"
-                + "  expense_id TEXT NOT NULL,"
-                + "  category TEXT,"
-                + "  currency TEXT,"
-                + "  amount REAL,"
-                + "  date_display TEXT,"
-                + "  description TEXT,"
-                + "  timestamp TEXT NOT NULL,"
-                + "  prev_hash TEXT,"
-                + "  tx_hash TEXT NOT NULL"
-                + ");";
-        final String idxTs = "CREATE INDEX IF NOT EXISTS idx_tx_timestamp ON transactions(timestamp);";
-        final String idxExp = "CREATE INDEX IF NOT EXISTS idx_tx_expense ON transactions(expense_id);";
+        SchemaManager.ensure();
+        this.checkpoints = new CheckpointDAO();
+        this.archive = new TransactionArchive();
+        reloadHead();
+    }
+
+    // ---------- Chain head ----------
+
+    /** Cached head of the committed chain; no query. */
+    public ChainHead head() {
+        return head.get();
+    }
+
+    /** Re-read the head from the table (at startup, or after another writer got in first). */
+    public ChainHead reloadHead() {
+        final String sql = "SELECT seq, tx_hash FROM transactions ORDER BY seq DESC LIMIT 1";
         try (Connection c = DatabaseManager.getConnection();
-             Statement st = c.createStatement()) {
-            st.execute(create);
-            st.execute(idxTs);
-            st.execute(idxExp);
+             PreparedStatement ps = c.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            ChainHead h = rs.next() ? new ChainHead(rs.getLong(1), rs.getString(2)) : ChainHead.EMPTY;
+            head.set(h);
+            return h;
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to ensure transactions schema: " + e.getMessage(), e);
+            throw new RuntimeException("Fetch chain head failed: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Publish a new head once the transaction that wrote it has committed. If the cache moved
+     * in the meantime (another in-process append), it is re-read instead.
+     */
+    public void advanceHead(ChainHead from, ChainHead to) {
+        if (!head.compareAndSet(from, to)) reloadHead();
+    }
+
+    /**
+     * Append {@code t} at the next sequence number. {@code t} must link to the current head (its
+     * prev_hash is the head's tx_hash); otherwise a {@link ChainConflictException} is thrown and the
+     * caller rebuilds it on {@link #lastHash()}. If the cached head was stale but {@code t} links to
+     * the real one, the append is retried once the head has been reloaded.
+     */
     public void append(Transaction t) {
-        final String sql = "INSERT INTO transactions (id, action, expense_id, category, currency, amount, "
-                + "date_display, description, timestamp, prev_hash, tx_hash) "
-                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection c = DatabaseManager.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+        for (int attempt = 1; ; attempt++) {
+            ChainHead h = head.get();
+            if (!t.getPrevHash().equals(h.getHash())) {
+                throw new ChainConflictException("Transaction " + t.getId() + " does not link to chain head #" + h.getSeq(), null);
+            }
+            try (Connection c = DatabaseManager.getConnection()) {
+                advanceHead(h, append(c, h, t));
+                return;
+            } catch (ChainConflictException e) {
+                if (attempt == MAX_APPEND_ATTEMPTS) throw e;
+            } catch (SQLException e) {
+                throw new RuntimeException("Append transaction failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Append {@code t} right after {@code after} on the caller's connection, so it can join a wider
+     * transaction; no read query. {@code after} is {@link #head()} or the head returned by the
+     * previous append in the same transaction, and {@code t} must link to it. Returns the new head,
+     * to pass to {@link #advanceHead} once the caller has committed. Throws
+     * {@link ChainConflictException} (after reloading the cached head) when the next sequence number
+     * is already taken, i.e. the chain was extended by someone else since the head was read.
+     */
+    public ChainHead append(Connection c, ChainHead after, Transaction t) {
+        if (!t.getPrevHash().equals(after.getHash())) {
+            throw new IllegalArgumentException("Transaction " + t.getId() + " does not link to chain head #" + after.getSeq());
+        }
+        long seq = after.getSeq() + 1;
+        final String sql = "INSERT INTO transactions (id, action, expense_id, category, currency, amount_minor, "
+                + "date_display, description, timestamp, prev_hash, tx_hash, seq) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, t.getId());
             ps.setString(2, t.getAction().name());
             ps.setString(3, t.getExpenseId());
             ps.setString(4, t.getCategory());
             ps.setString(5, t.getCurrency());
-            ps.setDouble(6, t.getAmount());
+            ps.setLong(6, t.getAmountMinor());
             ps.setString(7, t.getDate());
             ps.setString(8, t.getDescription());
             ps.setString(9, t.getTimestamp());
             ps.setString(10, t.getPrevHash());
             ps.setString(11, t.getTxHash());
+            ps.setLong(12, seq);
             ps.executeUpdate();
+            return after.next(t);
         } catch (SQLException e) {
+            if ((e.getErrorCode() & 0xFF) == SQLITE_CONSTRAINT && String.valueOf(e.getMessage()).contains("transactions.seq")) {
+                reloadHead();
+                throw new ChainConflictException("Sequence " + seq + " already taken by another writer", e);
+            }
             throw new RuntimeException("Append transaction failed: " + e.getMessage(), e);
         }
     }
 
+    /** The whole log, archived and live, in chain order. */
     public List<Transaction> findAll() {
-        final String sql = "SELECT id, action, expense_id, category, currency, amount, "
-                + "date_display, description, timestamp, prev_hash, tx_hash "
-                + "FROM transactions ORDER BY timestamp ASC";
-        List<Transaction> out = new ArrayList<>();
+        try (Stream<Transaction> rows = streamInChainOrder()) {
+            return rows.collect(Collectors.toList());
+        }
+    }
+
+    // ---------- History queries ----------
+
+    /**
+     * Every record for one expense, oldest first. Live rows come from an idx_tx_expense probe;
+     * archived ones from each segment's expense index.
+     */
+    public List<Transaction> findByExpense(String expenseId) {
+        final String sql = COLUMNS + " WHERE expense_id = ? ORDER BY seq ASC";
+        List<SeqRow> live = new ArrayList<>();
         try (Connection c = DatabaseManager.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                out.add(map(rs));
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, expenseId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) live.add(mapWithSeq(rs));
             }
-            return out;
         } catch (SQLException e) {
             throw new RuntimeException("Read transactions failed: " + e.getMessage(), e);
         }
+        long through = archive.archivedThrough();
+        List<Transaction> out = new ArrayList<>();
+        if (through > 0) {
+            archive.findByExpense(expenseId).stream()
+                    .filter(r -> r.seq <= through)
+                    .sorted(Comparator.comparingLong(r -> r.seq))
+                    .forEach(r -> out.add(r.tx));
+        }
+        for (SeqRow r : live) if (r.seq > through) out.add(r.tx);
+        return out;
     }
 
-    /** Returns the last transaction's hash, or empty string if none. */
-    public String lastHash() {
-        final String sql = "SELECT tx_hash FROM transactions ORDER BY timestamp DESC LIMIT 1";
+    /**
+     * Records whose timestamp falls in [from, to). Either bound may be null. Archived matches come
+     * first, in chain order, then live ones in timestamp order through idx_tx_timestamp.
+     * Close the stream when done.
+     */
+    public Stream<Transaction> streamByTimestampRange(Instant fromInclusive, Instant toExclusive) {
+        StringBuilder sql = new StringBuilder(COLUMNS);
+        List<String> params = new ArrayList<>(2);
+        if (fromInclusive != null) params.add(fromInclusive.toString());
+        if (toExclusive != null) params.add(toExclusive.toString());
+        if (fromInclusive != null && toExclusive != null) sql.append(" WHERE timestamp >= ? AND timestamp < ?");
+        else if (fromInclusive != null) sql.append(" WHERE timestamp >= ?");
+        else if (toExclusive != null) sql.append(" WHERE timestamp < ?");
+        sql.append(" ORDER BY timestamp ASC");
+        Stream<SeqRow> live = JdbcStreams.stream(sql.toString(), ps -> {
+            for (int i = 0; i < params.size(); i++) ps.setString(i + 1, params.get(i));
+        }, TransactionDAO::mapWithSeq, "Read transactions");
+        String from = fromInclusive == null ? null : fromInclusive.toString();
+        String to = toExclusive == null ? null : toExclusive.toString();
+        return withArchive(live, through -> archive.streamByTimestampRange(from, to).filter(r -> r.seq <= through))
+                .map(r -> r.tx);
+    }
+
+    /**
+     * Keyset-paged walk of the log in chain order, oldest first. The token carries the last
+     * seq returned, so each page is a seek on idx_tx_seq (or a block-index lookup in the
+     * archive) however deep it is.
+     */
+    public Page<Transaction> page(String pageToken, int pageSize) {
+        if (pageSize < 1) throw new IllegalArgumentException("pageSize must be >= 1");
+        long after = 0;
+        if (pageToken != null && !pageToken.isBlank()) {
+            try {
+                after = Long.parseLong(Page.decodeToken(pageToken, 1)[0]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid page token", e);
+            }
+        }
+        List<Transaction> items = new ArrayList<>(pageSize);
+        long lastSeq = after;
+        boolean more = false;
+        try (Stream<SeqRow> rows = rowsAfter(after)) {
+            for (Iterator<SeqRow> it = rows.iterator(); it.hasNext(); ) {
+                SeqRow r = it.next();
+                if (items.size() == pageSize) { more = true; break; }
+                items.add(r.tx);
+                lastSeq = r.seq;
+            }
+        }
+        return new Page<>(items, more ? Page.encodeToken(Long.toString(lastSeq)) : null);
+    }
+
+    /** Stream the whole log, archived and live, in chain (seq) order. Close the stream when done. */
+    public Stream<Transaction> streamInChainOrder() {
+        return streamAfter(0);
+    }
+
+    private Stream<Transaction> streamAfter(long seq) {
+        return rowsAfter(seq).map(r -> r.tx);
+    }
+
+    private Stream<SeqRow> rowsAfter(long seq) {
+        final String sql = COLUMNS + " WHERE seq > ? ORDER BY seq ASC";
+        Stream<SeqRow> live = JdbcStreams.stream(sql, ps -> ps.setLong(1, seq), TransactionDAO::mapWithSeq, "Read transactions");
+        return withArchive(live, through -> archive.stream(seq, through));
+    }
+
+    /*
+     * Put archived rows in front of a live query. The live cursor is opened before the archive
+     * boundary is read. A range archived in between is then seen in both tiers, and dropped from
+     * the live side here, rather than missed by both.
+     */
+    private Stream<SeqRow> withArchive(Stream<SeqRow> live, LongFunction<Stream<SeqRow>> archived) {
+        long through;
+        try {
+            through = archive.archivedThrough();
+        } catch (RuntimeException e) {
+            live.close();
+            throw e;
+        }
+        if (through == 0) return live;
+        return Stream.concat(archived.apply(through), live.filter(r -> r.seq > through));
+    }
+
+    // ---------- Verification ----------
+
+    /** Re-hash every row and check every prev_hash link, in parallel segments on the common pool. */
+    public ChainVerification verifyChain() {
+        return verifyChain(ForkJoinPool.commonPool(), ChainVerifier.DEFAULT_SEGMENT_SIZE);
+    }
+
+    public ChainVerification verifyChain(ForkJoinPool pool, int segmentSize) {
+        try (Stream<Transaction> rows = streamInChainOrder()) {
+            return new ChainVerifier(pool, segmentSize).verify(rows, "", 0);
+        }
+    }
+
+    /**
+     * Verify only the tail after the latest checkpoint. The checkpoint's own hash is checked, and
+     * so is the head row it vouches for. Only rows after it are re-hashed, so the cost follows the
+     * tail length, not the total history. Falls back to a full pass when no checkpoint exists yet.
+     * {@link ChainVerification#getChecked()} counts tail rows only.
+     */
+    public ChainVerification verifyChainSinceCheckpoint() {
+        Optional<Checkpoint> latest = checkpoints.latest();
+        if (latest.isEmpty()) return verifyChain();
+        Checkpoint cp = latest.get();
+        long headIndex = cp.getToSeq() - 1;
+        if (!checkpoints.isAuthentic(cp)) {
+            return ChainVerification.broken(0, headIndex, null, "checkpoint #" + cp.getId() + " hash does not match its contents");
+        }
+        if (!cp.getHeadHash().equals(hashAt(cp.getToSeq()))) {
+            return ChainVerification.broken(0, headIndex, null, "checkpoint #" + cp.getId() + " head no longer matches the log");
+        }
+        try (Stream<Transaction> rows = streamAfter(cp.getToSeq())) {
+            return new ChainVerifier(ForkJoinPool.commonPool(), ChainVerifier.DEFAULT_SEGMENT_SIZE)
+                    .verify(rows, cp.getHeadHash(), cp.getToSeq());
+        }
+    }
+
+    public CheckpointDAO checkpoints() {
+        return checkpoints;
+    }
+
+    /**
+     * Write any checkpoints that became due, inside the caller's (writer) transaction, whose rows
+     * run up to {@code headSeq}. See {@link CheckpointDAO#checkpointIfDue}; the caller passes the
+     * result to {@link CheckpointDAO#advance} after committing.
+     */
+    public Checkpoint checkpointIfDue(Connection c, Checkpoint after, long headSeq) {
+        return checkpoints.checkpointIfDue(c, after, headSeq);
+    }
+
+    /**
+     * As above for callers that track neither the head nor the last checkpoint: both are read on
+     * {@code c}, and the cached checkpoint is dropped. Returns how many were written.
+     */
+    public int checkpointIfDue(Connection c) {
+        final String sql = "SELECT COALESCE(MAX(seq), 0) FROM transactions";
+        try (PreparedStatement ps = c.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            Checkpoint after = checkpoints.latest(c).orElse(null);
+            Checkpoint newest = checkpoints.checkpointIfDue(c, after, rs.getLong(1));
+            checkpoints.forgetLast();
+            if (newest == after) return 0;
+            return (int) ((newest.getToSeq() - (after == null ? 0 : after.getToSeq())) / checkpoints.every());
+        } catch (SQLException e) {
+            throw new RuntimeException("Write checkpoint failed: " + e.getMessage(), e);
+        }
+    }
+
+    private String hashAt(long seq) {
+        final String sql = "SELECT tx_hash FROM transactions WHERE seq = ?";
         try (Connection c = DatabaseManager.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql);
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setLong(1, seq);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return rs.getString(1);
+            }
+            return archive.hashAt(seq).orElse(null);
+        } catch (SQLException e) {
+            throw new RuntimeException("Read transaction failed: " + e.getMessage(), e);
+        }
+    }
+
+    // ---------- Archival ----------
+
+    public TransactionArchive archive() {
+        return archive;
+    }
+
+    /** Archive rows older than HIVEFI_ARCHIVE_AFTER_DAYS (default 90). */
+    public long archiveOldTransactions() {
+        return archiveOlderThan(Duration.ofDays(Settings.getInt("HIVEFI_ARCHIVE_AFTER_DAYS", DEFAULT_ARCHIVE_AFTER_DAYS)));
+    }
+
+    /**
+     * Move the oldest part of the log into archive segments: every row older than {@code age},
+     * up to the latest checkpoint (so checkpoints never span the tier boundary), and never the
+     * head row, which stays live for the writer. Rows are not changed, so the first live row still
+     * links to the last archived tx_hash. Returns the number of rows moved.
+     */
+    public long archiveOlderThan(Duration age) {
+        long limit = head.get().getSeq() - 1;
+        limit = Math.min(limit, checkpoints.latest().map(Checkpoint::getToSeq).orElse(0L));
+        final String sql = "SELECT MIN(seq) FROM transactions WHERE timestamp >= ?";
+        try (Connection c = DatabaseManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, Instant.now().minus(age).toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                long firstRecent = rs.next() ? rs.getLong(1) : 0;
+                if (!rs.wasNull() && firstRecent > 0) limit = Math.min(limit, firstRecent - 1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Archive transactions failed: " + e.getMessage(), e);
+        }
+        return limit > 0 ? archive.moveThrough(limit) : 0;
+    }
+
+    /** Returns the last committed transaction's hash (from the cached head), or empty string if none. */
+    public String lastHash() {
+        return head.get().getHash();
+    }
+
+    public String lastHash(Connection c) {
+        final String sql = "SELECT tx_hash FROM transactions ORDER BY seq DESC LIMIT 1";
+        try (PreparedStatement ps = c.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
             if (rs.next()) return rs.getString(1);
             return "";
@@ -92,6 +406,10 @@ public class TransactionDAO {
         }
     }
 
+    static SeqRow mapWithSeq(ResultSet rs) throws SQLException {
+        return new SeqRow(rs.getLong("seq"), map(rs));
+    }
+
     private static Transaction map(ResultSet rs) throws SQLException {
         return new Transaction(
                 rs.getString("id"),
@@ -99,7 +417,7 @@ public class TransactionDAO {
                 rs.getString("expense_id"),
                 rs.getString("category"),
                 rs.getString("currency"),
-                rs.getDouble("amount"),
+                rs.getLong("amount_minor"),
                 rs.getString("date_display"),
                 rs.getString("description"),
                 rs.getString("timestamp"),
@@ -0,0 +1,294 @@
+package com.hivefi.db;
+
+import com.hivefi.models.Transaction;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable, compressed file holding a contiguous seq range of the transaction log.
+ *
+ * Layout: a header, then deflate-compressed blocks of {@value #BLOCK_ROWS} rows, then an index,
+ * then a fixed trailer pointing at the index. The index lists each block's seq range, offset and
+ * sizes, plus a sorted (expense-id hash, block) table, so a lookup by seq or by expense inflates
+ * only the blocks it needs. Files are read through a read-only memory mapping.
+ */
+final class TxSegment {
+    static final int BLOCK_ROWS = 512;
+    private static final int MAGIC = 0x48465458; // "HFTX"
+    private static final int VERSION = 1;
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+
+    private final Path file;
+    private final MappedByteBuffer map;
+    private final long fromSeq;
+    private final long toSeq;
+    private final int rowCount;
+    // block index
+    private final long[] blockFirstSeq;
+    private final long[] blockLastSeq;
+    private final long[] blockOffset;
+    private final int[] blockLength;
+    private final int[] blockRawLength;
+    // expense index, sorted by hash then block
+    private final long[] expenseHash;
+    private final int[] expenseBlock;
+
+    private TxSegment(Path file, MappedByteBuffer map) throws IOException {
+        this.file = file;
+        this.map = map;
+        ByteBuffer b = map.duplicate();
+        if (b.getInt(0) != MAGIC || b.getInt(4) != VERSION) throw new IOException("Not a transaction segment: " + file);
+        this.fromSeq = b.getLong(8);
+        this.toSeq = b.getLong(16);
+        this.rowCount = b.getInt(24);
+
+        int end = b.capacity();
+        if (b.getInt(end - Integer.BYTES) != MAGIC) throw new IOException("Truncated transaction segment: " + file);
+        b.position((int) b.getLong(end - TRAILER_BYTES));
+        int blocks = b.getInt();
+        blockFirstSeq = new long[blocks];
+        blockLastSeq = new long[blocks];
+        blockOffset = new long[blocks];
+        blockLength = new int[blocks];
+        blockRawLength = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            blockFirstSeq[i] = b.getLong();
+            blockLastSeq[i] = b.getLong();
+            blockOffset[i] = b.getLong();
+            blockLength[i] = b.getInt();
+            blockRawLength[i] = b.getInt();
+        }
+        int entries = b.getInt();
+        expenseHash = new long[entries];
+        expenseBlock = new int[entries];
+        for (int i = 0; i < entries; i++) {
+            expenseHash[i] = b.getLong();
+            expenseBlock[i] = b.getInt();
+        }
+    }
+
+    static TxSegment open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new TxSegment(file, ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    Path file() { return file; }
+    long fromSeq() { return fromSeq; }
+    long toSeq() { return toSeq; }
+    int rowCount() { return rowCount; }
+
+    // ---------- Reads ----------
+
+    /** Rows with afterSeq < seq <= throughSeq, in seq order; blocks are inflated as the stream reaches them. */
+    Stream<SeqRow> stream(long afterSeq, long throughSeq) {
+        int first = blockContaining(afterSeq + 1);
+        return IntStream.range(first, blockFirstSeq.length)
+                .takeWhile(i -> blockFirstSeq[i] <= throughSeq)
+                .mapToObj(this::readBlock)
+                .flatMap(List::stream)
+                .filter(r -> r.seq > afterSeq && r.seq <= throughSeq);
+    }
+
+    List<SeqRow> findByExpense(String expenseId) {
+        long h = hash(expenseId);
+        int i = Arrays.binarySearch(expenseHash, h);
+        if (i < 0) return List.of();
+        while (i > 0 && expenseHash[i - 1] == h) i--;
+        List<SeqRow> out = new ArrayList<>();
+        for (; i < expenseHash.length && expenseHash[i] == h; i++) {
+            for (SeqRow r : readBlock(expenseBlock[i])) {
+                if (expenseId.equals(r.tx.getExpenseId())) out.add(r);
+            }
+        }
+        return out;
+    }
+
+    Optional<String> hashAt(long seq) {
+        if (seq < fromSeq || seq > toSeq) return Optional.empty();
+        for (SeqRow r : readBlock(blockContaining(seq))) {
+            if (r.seq == seq) return Optional.of(r.tx.getTxHash());
+        }
+        return Optional.empty();
+    }
+
+    /** First block whose range ends at or after {@code seq}. */
+    private int blockContaining(long seq) {
+        int lo = 0, hi = blockLastSeq.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blockLastSeq[mid] < seq) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private List<SeqRow> readBlock(int block) {
+        byte[] raw = new byte[blockRawLength[block]];
+        Inflater inf = new Inflater();
+        try {
+            inf.setInput(map.slice((int) blockOffset[block], blockLength[block]));
+            int n = 0;
+            while (n < raw.length && !inf.finished()) n += inf.inflate(raw, n, raw.length - n);
+        } catch (DataFormatException e) {
+            throw new RuntimeException("Corrupt archive block in " + file + ": " + e.getMessage(), e);
+        } finally {
+            inf.end();
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        List<SeqRow> rows = new ArrayList<>(BLOCK_ROWS);
+        while (in.hasRemaining()) {
+            long seq = in.getLong();
+            Transaction t = new Transaction(
+                    str(in), Transaction.Action.valueOf(str(in)), str(in), str(in), str(in),
+                    in.getLong(), str(in), str(in), str(in), str(in), str(in));
+            rows.add(new SeqRow(seq, t));
+        }
+        return rows;
+    }
+
+    // ---------- Writing ----------
+
+    /** Write rows (contiguous, seq order) to {@code file}; the file only appears once complete and synced. */
+    static void write(Path file, List<SeqRow> rows) throws IOException {
+        if (rows.isEmpty()) throw new IllegalArgumentException("empty segment");
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int blocks = (rows.size() + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        long[] meta = new long[blocks * 5];
+        List<long[]> expenseEntries = new ArrayList<>();
+
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(rows.get(0).seq);
+            out.writeLong(rows.get(rows.size() - 1).seq);
+            out.writeInt(rows.size());
+            long offset = 28;
+
+            Deflater def = new Deflater(Deflater.BEST_COMPRESSION);
+            ByteArrayOutputStream rawBuf = new ByteArrayOutputStream(64 * 1024);
+            byte[] chunk = new byte[64 * 1024];
+            try {
+                for (int b = 0; b < blocks; b++) {
+                    List<SeqRow> slice = rows.subList(b * BLOCK_ROWS, Math.min(rows.size(), (b + 1) * BLOCK_ROWS));
+                    rawBuf.reset();
+                    DataOutputStream raw = new DataOutputStream(rawBuf);
+                    for (SeqRow r : slice) {
+                        writeRow(raw, r);
+                        expenseEntries.add(new long[]{hash(r.tx.getExpenseId()), b});
+                    }
+                    byte[] plain = rawBuf.toByteArray();
+
+                    def.reset();
+                    def.setInput(plain);
+                    def.finish();
+                    int len = 0;
+                    while (!def.finished()) {
+                        int n = def.deflate(chunk);
+                        out.write(chunk, 0, n);
+                        len += n;
+                    }
+                    meta[b * 5] = slice.get(0).seq;
+                    meta[b * 5 + 1] = slice.get(slice.size() - 1).seq;
+                    meta[b * 5 + 2] = offset;
+                    meta[b * 5 + 3] = len;
+                    meta[b * 5 + 4] = plain.length;
+                    offset += len;
+                }
+            } finally {
+                def.end();
+            }
+
+            out.writeInt(blocks);
+            for (int b = 0; b < blocks; b++) {
+                out.writeLong(meta[b * 5]);
+                out.writeLong(meta[b * 5 + 1]);
+                out.writeLong(meta[b * 5 + 2]);
+                out.writeInt((int) meta[b * 5 + 3]);
+                out.writeInt((int) meta[b * 5 + 4]);
+            }
+            expenseEntries.sort((x, y) -> x[0] != y[0] ? Long.compare(x[0], y[0]) : Long.compare(x[1], y[1]));
+            List<long[]> distinct = new ArrayList<>(expenseEntries.size());
+            for (long[] e : expenseEntries) {
+                long[] last = distinct.isEmpty() ? null : distinct.get(distinct.size() - 1);
+                if (last == null || last[0] != e[0] || last[1] != e[1]) distinct.add(e);
+            }
+            out.writeInt(distinct.size());
+            for (long[] e : distinct) {
+                out.writeLong(e[0]);
+                out.writeInt((int) e[1]);
+            }
+            out.writeLong(offset);
+            out.writeInt(MAGIC);
+            out.flush();
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeRow(DataOutputStream out, SeqRow r) throws IOException {
+        Transaction t = r.tx;
+        out.writeLong(r.seq);
+        str(out, t.getId());
+        str(out, t.getAction().name());
+        str(out, t.getExpenseId());
+        str(out, t.getCategory());
+        str(out, t.getCurrency());
+        out.writeLong(t.getAmountMinor());
+        str(out, t.getDate());
+        str(out, t.getDescription());
+        str(out, t.getTimestamp());
+        str(out, t.getPrevHash());
+        str(out, t.getTxHash());
+    }
+
+    // length-prefixed UTF-8; -1 marks null
+    private static void str(DataOutputStream out, String s) throws IOException {
+        if (s == null) { out.writeInt(-1); return; }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String str(ByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0) return null;
+        String s = new String(in.array(), in.arrayOffset() + in.position(), n, StandardCharsets.UTF_8);
+        in.position(in.position() + n);
+        return s;
+    }
+
+    /** 64-bit FNV-1a over the id's chars. */
+    static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        if (s == null) return h;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,52 @@
+package com.hivefi.models;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Expense totals for a date range, converted into one currency. Each (category, currency) sum is
+ * converted once at that currency's rate and rounded to the target's precision, then added up.
+ * {@code rates} holds the quote used for each source currency.
+ */
+public final class ConvertedTotals {
+    private final String currency;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final Map<String, Money> byCategory;
+    private final Money total;
+    private final Map<String, RateQuote> rates;
+
+    public ConvertedTotals(String currency, LocalDate from, LocalDate to, Map<String, Money> byCategory,
+                           Money total, Map<String, RateQuote> rates) {
+        this.currency = currency;
+        this.from = from;
+        this.to = to;
+        this.byCategory = Collections.unmodifiableMap(byCategory);
+        this.total = total;
+        this.rates = Collections.unmodifiableMap(rates);
+    }
+
+    public String getCurrency() { return currency; }
+    /** Inclusive lower bound, or null for no bound. */
+    public LocalDate getFrom() { return from; }
+    /** Inclusive upper bound, or null for no bound. */
+    public LocalDate getTo() { return to; }
+    public Map<String, Money> getByCategory() { return byCategory; }
+    public Money getTotal() { return total; }
+    public Map<String, RateQuote> getRates() { return rates; }
+
+    /** Whether any rate used was served stale (past its TTL, within the grace window). */
+    public boolean isStale() {
+        for (RateQuote q : rates.values()) {
+            if (q.isStale()) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ConvertedTotals{" + total + ", " + byCategory.size() + " categories, "
+                + rates.size() + " currencies" + (isStale() ? ", stale rates" : "") + "}";
+    }
+}
@@ -6,24 +6,27 @@ public class Expense {
     
     private String id; 
     private String category; 
-    private double amount; 
+    private Money amount; 
     private String currency; 
     private String description; 
     private String date; 
     
     public Expense(String category, String currency, double amount, String description, String date) { 
-        this.id = UUID.randomUUID().toString(); 
-        this.category = category; 
-        this.currency = currency;
-        this.amount = amount; 
-        this.description = description; 
-        this.date = date; 
+        this(category, Money.of(amount, currency), description, date);
+    }
+
+    public Expense(String category, Money amount, String description, String date) { 
+        this(UUID.randomUUID().toString(), category, amount, description, date);
     }
 
     public Expense(String id, String category, String currency, double amount, String description, String date) { 
+        this(id, category, Money.of(amount, currency), description, date);
+    }
+
+    public Expense(String id, String category, Money amount, String description, String date) { 
         this.id = id; 
         this.category = category;
-        this.currency = currency;  
+        this.currency = amount.getCurrency();  
         this.amount = amount; 
         this.description = description; 
         this.date = date; 
@@ -42,10 +45,19 @@ public class Expense {
         return currency; 
     }
 
+    /** Amount in major units as a double; for display. Use {@link #getMoney()} for arithmetic. */
     public double getAmount() { 
+        return amount.toDouble(); 
+    }
+
+    public Money getMoney() { 
         return amount; 
     }
 
+    public long getAmountMinor() { 
+        return amount.getMinorUnits(); 
+    }
+
     public String getDescription() { 
         return description; 
     }
@@ -61,10 +73,16 @@ public class Expense {
 
     public void setCurrency(String currency) { 
         this.currency = currency; 
+        this.amount = Money.of(amount.toBigDecimal(), currency); 
     }
 
     public void setAmount(double amount) { 
+        this.amount = Money.of(amount, currency); 
+    } 
+
+    public void setAmount(Money amount) { 
         this.amount = amount; 
+        this.currency = amount.getCurrency(); 
     } 
 
     public void setDescription(String description) { 
@@ -98,13 +116,13 @@ public class Expense {
             "{\n" +
             "  \"id\": \"%s\",\n" +
             "  \"category\": \"%s\",\n" +
-            "  \"amount\": \"%s%.2f\",\n" +         
+            "  \"amount\": \"%s%s\",\n" +         
             "  \"description\": \"%s\",\n" +
             "  \"date\": \"%s\"\n" +
             "}",
             id,
             category,
-            currencySymbol(), amount, 
+            currencySymbol(), amount.toBigDecimal().toPlainString(), 
             description,
             date
         );
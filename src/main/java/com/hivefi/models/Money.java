@@ -0,0 +1,158 @@
+package com.hivefi.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exact amount of money held as integer minor units of its currency
+ * (cents for USD, whole yen for JPY, fils for KWD ...).
+ */
+public final class Money implements Comparable<Money> {
+    private static final int DEFAULT_EXPONENT = 2;
+    private static final Map<String, Integer> EXPONENTS = new ConcurrentHashMap<>();
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L
+    };
+
+    private final long minorUnits;
+    private final String currency;
+
+    private Money(long minorUnits, String currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits, String currency) {
+        return new Money(minorUnits, normalize(currency));
+    }
+
+    /** Convert a major-unit amount, rounding half-up to the currency's precision. */
+    public static Money of(BigDecimal major, String currency) {
+        String code = normalize(currency);
+        return new Money(toMinor(major.setScale(exponent(code), RoundingMode.HALF_UP), code), code);
+    }
+
+    /**
+     * Convert a major-unit amount that the currency can hold exactly, e.g. user input.
+     * Throws IllegalArgumentException for more decimals than the currency has (0.001 USD).
+     */
+    public static Money exact(BigDecimal major, String currency) {
+        String code = normalize(currency);
+        BigDecimal scaled;
+        try {
+            scaled = major.setScale(exponent(code), RoundingMode.UNNECESSARY);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + major.toPlainString() + " has more decimals than " + code
+                    + " allows (" + exponent(code) + ").");
+        }
+        return new Money(toMinor(scaled, code), code);
+    }
+
+    public static Money exact(double major, String currency) {
+        return exact(BigDecimal.valueOf(major), currency);
+    }
+
+    public static Money of(double major, String currency) {
+        return of(BigDecimal.valueOf(major), currency);
+    }
+
+    public static Money zero(String currency) {
+        return new Money(0L, normalize(currency));
+    }
+
+    /** Number of minor-unit digits for an ISO code (JPY 0, USD 2, KWD 3); 2 if unknown. */
+    public static int exponent(String currency) {
+        return EXPONENTS.computeIfAbsent(normalize(currency), code -> {
+            try {
+                int digits = Currency.getInstance(code).getDefaultFractionDigits();
+                return digits < 0 ? DEFAULT_EXPONENT : digits;
+            } catch (IllegalArgumentException e) {
+                return DEFAULT_EXPONENT;
+            }
+        });
+    }
+
+    /** 10^exponent(currency), i.e. minor units per major unit. */
+    public static long scale(String currency) {
+        return POW10[exponent(currency)];
+    }
+
+    public long getMinorUnits() { return minorUnits; }
+    public String getCurrency() { return currency; }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, exponent(currency));
+    }
+
+    /** Nearest double to the exact decimal amount. Use only for display or FX math. */
+    public double toDouble() {
+        return minorUnits / (double) scale(currency);
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public boolean isPositive() { return minorUnits > 0; }
+
+    /** This amount in another currency at {@code rate} (units of target per unit of this), rounded half-up. */
+    public Money convertTo(String target, double rate) {
+        String code = normalize(target);
+        if (code.equals(currency) && rate == 1.0) return this;
+        return of(toBigDecimal().multiply(BigDecimal.valueOf(rate)), code);
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+
+    private static long toMinor(BigDecimal scaled, String code) {
+        try {
+            return scaled.unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + scaled.toPlainString() + " " + code + " is out of range.");
+        }
+    }
+
+    private static String normalize(String currency) {
+        if (currency == null) throw new IllegalArgumentException("currency is required");
+        return currency.trim().toUpperCase(Locale.ROOT);
+    }
+
+    @Override
+    public int compareTo(Money o) {
+        requireSameCurrency(o);
+        return Long.compare(minorUnits, o.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        Money m = (Money) o;
+        return minorUnits == m.minorUnits && currency.equals(m.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + currency.hashCode();
+    }
+
+    /** e.g. "12.50 USD", "1200 JPY". */
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency;
+    }
+}
@@ -0,0 +1,40 @@
+package com.hivefi.models;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * One FX rate as served to a caller, with when it was obtained from the provider. A stale quote
+ * is past its TTL and served from the grace window while a refresh runs (or after it failed).
+ */
+public final class RateQuote {
+    private final String from;
+    private final String to;
+    private final double rate;
+    private final Instant asOf;
+    private final boolean stale;
+
+    public RateQuote(String from, String to, double rate, Instant asOf, boolean stale) {
+        this.from = from;
+        this.to = to;
+        this.rate = rate;
+        this.asOf = asOf;
+        this.stale = stale;
+    }
+
+    public String getFrom() { return from; }
+    public String getTo() { return to; }
+    public double getRate() { return rate; }
+    public Instant getAsOf() { return asOf; }
+    public boolean isStale() { return stale; }
+
+    public Duration getAge() {
+        Duration age = Duration.between(asOf, Instant.now());
+        return age.isNegative() ? Duration.ZERO : age;
+    }
+
+    @Override
+    public String toString() {
+        return "RateQuote{" + from + "->" + to + " " + rate + " as of " + asOf + (stale ? ", stale" : "") + "}";
+    }
+}
@@ -0,0 +1,79 @@
+package com.hivefi.models;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Exchange rates quoted against one base currency: {@code rate(q)} is how many units of q one
+ * unit of the base buys. Inverse and cross rates are derived locally, so one table answers
+ * every pair among its currencies. {@code date} is the day the rates apply to (the provider's
+ * quote date), {@code fetchedAt} when they were obtained. Immutable.
+ */
+public final class RateTable {
+    private final String base;
+    private final Map<String, Double> rates;
+    private final Instant fetchedAt;
+    private final LocalDate date;
+
+    /** Rates for the UTC day they were fetched on. */
+    public RateTable(String base, Map<String, Double> rates, Instant fetchedAt) {
+        this(base, rates, fetchedAt, LocalDate.ofInstant(fetchedAt, ZoneOffset.UTC));
+    }
+
+    public RateTable(String base, Map<String, Double> rates, Instant fetchedAt, LocalDate date) {
+        this.base = normalize(base);
+        Map<String, Double> copy = new HashMap<>(rates.size() * 2);
+        for (Map.Entry<String, Double> e : rates.entrySet()) {
+            Double v = e.getValue();
+            if (v != null && v > 0 && !v.isInfinite()) copy.put(normalize(e.getKey()), v);
+        }
+        copy.put(this.base, 1.0);
+        this.rates = Collections.unmodifiableMap(copy);
+        this.fetchedAt = fetchedAt;
+        this.date = date;
+    }
+
+    public String getBase() { return base; }
+    public Instant getFetchedAt() { return fetchedAt; }
+    public LocalDate getDate() { return date; }
+    public Set<String> currencies() { return rates.keySet(); }
+
+    public boolean covers(String currency) {
+        return rates.containsKey(normalize(currency));
+    }
+
+    /** FROM -> TO through the base, or null when either currency is not in the table. */
+    public Double rate(String from, String to) {
+        Double f = rates.get(normalize(from));
+        Double t = rates.get(normalize(to));
+        if (f == null || t == null) return null;
+        return t / f;
+    }
+
+    /** A copy with one more quote (e.g. a single pair fetched from a pair-only provider). */
+    public RateTable with(String quote, double rate) {
+        Map<String, Double> more = new HashMap<>(rates);
+        more.put(normalize(quote), rate);
+        return new RateTable(base, more, fetchedAt, date);
+    }
+
+    /** The same rates, confirmed current at {@code at} (e.g. by an HTTP 304). */
+    public RateTable refreshedAt(Instant at) {
+        return new RateTable(base, rates, at, date);
+    }
+
+    private static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return "RateTable{" + base + ", " + (rates.size() - 1) + " quotes, " + date + ", fetched " + fetchedAt + "}";
+    }
+}
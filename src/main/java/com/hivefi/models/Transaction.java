@@ -1,8 +1,7 @@
 package com.hivefi.models;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import com.hivefi.utils.Sha256;
+
 import java.time.Instant;
 import java.util.UUID;
 
@@ -15,7 +14,7 @@ public class Transaction {
     private final String expenseId;
     private final String category;
     private final String currency;
-    private final double amount;
+    private final long amountMinor;
     private final String date;
     private final String description;
     private final String timestamp;
@@ -29,7 +28,7 @@ public class Transaction {
         this.expenseId   = expense.getID();
         this.category    = expense.getCategory();
         this.currency    = expense.getCurrency();
-        this.amount      = expense.getAmount();
+        this.amountMinor = expense.getAmountMinor();
         this.date        = expense.getDate();
         this.description = expense.getDescription();
         this.timestamp   = Instant.now().toString();
@@ -39,14 +38,14 @@ public class Transaction {
 
     /** Build from DB row. */
     public Transaction(String id, Action action, String expenseId, String category, String currency,
-                       double amount, String date, String description, String timestamp,
+                       long amountMinor, String date, String description, String timestamp,
                        String prevHash, String txHash) {
         this.id = id;
         this.action = action;
         this.expenseId = expenseId;
         this.category = category;
         this.currency = currency;
-        this.amount = amount;
+        this.amountMinor = amountMinor;
         this.date = date;
         this.description = description == null ? "" : description;
         this.timestamp = timestamp;
@@ -60,42 +59,43 @@ public class Transaction {
     public String getExpenseId() { return expenseId; }
     public String getCategory() { return category; }
     public String getCurrency() { return currency; }
-    public double getAmount() { return amount; }
+    public long getAmountMinor() { return amountMinor; }
+    public Money getMoney() { return Money.ofMinor(amountMinor, currency); }
+    public double getAmount() { return amountMinor / (double) Money.scale(currency == null ? "" : currency); }
     public String getDate() { return date; }
     public String getDescription() { return description; }
     public String getTimestamp() { return timestamp; }
     public String getPrevHash() { return prevHash; }
     public String getTxHash() { return txHash; }
 
-    private String computeHash() {
-        String payload =
-                "id=" + id +
-                "|ts=" + timestamp +
-                "|action=" + action +
-                "|exp=" + expenseId +
-                "|cat=" + nullSafe(category) +
-                "|cur=" + nullSafe(currency) +
-                "|amt=" + amount +
-                "|date=" + nullSafe(date) +
-                "|desc=" + nullSafe(description) +
-                "|prev=" + nullSafe(prevHash);
-        return sha256Hex(payload);
+    /** Recompute the hash from this record's fields; equals {@link #getTxHash()} for an intact row. */
+    public String recomputeHash() {
+        return computeHash();
     }
 
-    private static String nullSafe(String s) { return s == null ? "" : s; }
+    public boolean hasValidHash() {
+        return computeHash().equals(txHash);
+    }
 
-    private static String sha256Hex(String s) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] dig = md.digest(s.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder(dig.length * 2);
-            for (byte b : dig) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 not available", e);
-        }
+    // Fields are fed straight into this thread's digest. The byte sequence is exactly that of
+    // the original "id=...|ts=...|...|prev=..." payload string, so existing hashes still match.
+    private String computeHash() {
+        return Sha256.local()
+                .append("id=").append(id)
+                .append("|ts=").append(timestamp)
+                .append("|action=").append(String.valueOf(action))
+                .append("|exp=").append(expenseId)
+                .append("|cat=").append(nullSafe(category))
+                .append("|cur=").append(nullSafe(currency))
+                .append("|amt=").append(getAmount())   // double rendering, so pre-fixed-point rows still verify
+                .append("|date=").append(nullSafe(date))
+                .append("|desc=").append(nullSafe(description))
+                .append("|prev=").append(nullSafe(prevHash))
+                .hex();
     }
 
+    private static String nullSafe(String s) { return s == null ? "" : s; }
+
     @Override
     public String toString() {
         return String.format(
@@ -105,7 +105,7 @@ public class Transaction {
             "  \"expenseId\": \"%s\",\n" +
             "  \"snapshot\": {\n" +
             "    \"category\": \"%s\",\n" +
-            "    \"amount\": \"%.2f\",\n" +
+            "    \"amount\": \"%s\",\n" +
             "    \"currency\": \"%s\",\n" +
             "    \"description\": \"%s\",\n" +
             "    \"date\": \"%s\"\n" +
@@ -114,7 +114,7 @@ public class Transaction {
             "  \"prevHash\": \"%s\",\n" +
             "  \"txHash\": \"%s\"\n" +
             "}",
-            id, action, expenseId, category, amount, currency,
+            id, action, expenseId, category, getMoney().toBigDecimal().toPlainString(), currency,
             description == null ? "" : description, date, timestamp, prevHash, txHash
         );
     }
@@ -0,0 +1,412 @@
+package com.hivefi.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hivefi.db.Page;
+import com.hivefi.models.ConvertedTotals;
+import com.hivefi.models.Expense;
+import com.hivefi.models.Money;
+import com.hivefi.models.RateQuote;
+import com.hivefi.services.CacheManager;
+import com.hivefi.services.DuplicateRequestException;
+import com.hivefi.services.FXService;
+import com.hivefi.services.FxException;
+import com.hivefi.services.LedgerService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JSON over HTTP for one long-lived {@link LedgerService} and {@link FXService}, on the JDK's
+ * built-in HttpServer.
+ *
+ * <pre>
+ * POST /expenses             {"category","amount","currency","description","date"?}, Idempotency-Key header optional
+ * GET  /expenses             ?category= | ?from=&amp;to=, plus pageToken= and limit=
+ * GET  /totals               ?from=&amp;to=, and currency= to convert everything into one currency
+ * GET  /fx/rate              ?from=&amp;to=, and date= for a historical rate
+ * GET  /fx/status            rate cache stats and when each warmed rate was last refreshed
+ * GET  /stats                expense count (a full table count; not for probes)
+ * GET  /health               liveness only: answered without touching the database
+ * </pre>
+ *
+ * Dates are yyyy-MM-dd. Requests run on a fixed pool of workers with a bounded queue. When the
+ * queue is full, the request is handed to a single overflow thread that answers 503 with
+ * Retry-After without running it; if that thread is backed up too, the connection is closed.
+ * Either way the server's dispatcher thread never runs a handler, so a burst cannot stall the
+ * connections already in progress.
+ */
+public final class LedgerServer implements AutoCloseable {
+    private static final DateTimeFormatter DISPLAY_FMT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int BUSY_QUEUE = 64;
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final LedgerService ledger;
+    private final FXService fx;
+    private final HttpServer http;
+    private final ThreadPoolExecutor workers;
+    private final ThreadPoolExecutor busy;
+    private final ObjectMapper json = new ObjectMapper();
+
+    public LedgerServer(LedgerService ledger, FXService fx, InetSocketAddress address, int workers, int queueCapacity)
+            throws IOException {
+        this.ledger = ledger;
+        this.fx = fx;
+        AtomicInteger n = new AtomicInteger();
+        // rejected here means the dispatcher closes the connection without a response
+        this.busy = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(BUSY_QUEUE),
+                BusyThread::new, new ThreadPoolExecutor.AbortPolicy());
+        this.workers = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "hivefi-http-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, pool) -> busy.execute(r));
+        this.http = HttpServer.create(address, 0);
+        http.setExecutor(this.workers);
+        http.createContext("/expenses", ex -> handle(ex, this::expenses));
+        http.createContext("/totals", ex -> handle(ex, this::totals));
+        http.createContext("/fx/rate", ex -> handle(ex, this::fxRate));
+        http.createContext("/fx/status", ex -> handle(ex, this::fxStatus));
+        http.createContext("/stats", ex -> handle(ex, this::stats));
+        http.createContext("/health", ex -> handle(ex, this::health));
+    }
+
+    public LedgerServer start() {
+        http.start();
+        return this;
+    }
+
+    /** The bound port; useful when started on port 0. */
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    /** Stop accepting, give running requests a second to finish, then stop the workers. */
+    @Override
+    public void close() {
+        http.stop(1);
+        workers.shutdown();
+        busy.shutdown();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------- Endpoints ----------
+
+    private Reply expenses(HttpExchange ex, Map<String, String> q) throws IOException {
+        if (ex.getRequestMethod().equals("POST")) return record(ex);
+        requireMethod(ex, "GET");
+        int limit = Math.min(MAX_PAGE_SIZE, intParam(q, "limit", DEFAULT_PAGE_SIZE));
+        String token = q.get("pageToken");
+        Page<Expense> page;
+        if (q.containsKey("category")) {
+            page = ledger.pageByCategory(q.get("category"), token, limit);
+        } else if (q.containsKey("from") || q.containsKey("to")) {
+            page = ledger.pageByDateRange(dateParam(q, "from", null), dateParam(q, "to", null), token, limit);
+        } else {
+            page = ledger.pageAll(token, limit);
+        }
+        ObjectNode out = json.createObjectNode();
+        ArrayNode items = out.putArray("items");
+        for (Expense e : page.getItems()) items.add(expenseJson(e));
+        out.put("nextPageToken", page.getNextToken());
+        return Reply.ok(out);
+    }
+
+    private Reply record(HttpExchange ex) throws IOException {
+        JsonNode body = readBody(ex);
+        String category = text(body, "category");
+        String currency = text(body, "currency");
+        String description = text(body, "description");
+        JsonNode rawAmount = body.get("amount");
+        if (category == null || category.isBlank()) throw new IllegalArgumentException("Category is required.");
+        if (currency == null || !currency.trim().toUpperCase(Locale.ROOT).matches("[A-Z]{3}")) {
+            throw new IllegalArgumentException("Currency must be a 3-letter code (e.g., USD).");
+        }
+        BigDecimal amount;
+        try {
+            amount = rawAmount == null ? null : new BigDecimal(rawAmount.asText());
+        } catch (NumberFormatException e) {
+            amount = null;
+        }
+        if (amount == null || amount.signum() <= 0) throw new IllegalArgumentException("Amount must be > 0.");
+        Money money = Money.exact(amount, currency);
+        String date = text(body, "date");
+        LocalDate day = date == null ? LocalDate.now() : parseDate(date, "date");
+
+        Expense e = ledger.recordExpense(category.trim(), money, description == null ? "" : description,
+                day.format(DISPLAY_FMT), ex.getRequestHeaders().getFirst("Idempotency-Key"));
+        return new Reply(201, expenseJson(e));
+    }
+
+    private Reply totals(HttpExchange ex, Map<String, String> q) {
+        requireMethod(ex, "GET");
+        LocalDate from = dateParam(q, "from", null);
+        LocalDate to = dateParam(q, "to", null);
+        String currency = q.get("currency");
+        if (currency != null) {
+            ConvertedTotals t = ledger.convertedTotals(currency, from, to, fx);
+            ObjectNode out = json.createObjectNode();
+            out.put("currency", t.getCurrency());
+            ObjectNode cats = out.putObject("byCategory");
+            t.getByCategory().forEach((cat, m) -> cats.put(cat, m.toBigDecimal()));
+            out.put("total", t.getTotal().toBigDecimal());
+            ObjectNode rates = out.putObject("rates");
+            t.getRates().forEach((cur, r) -> rates.set(cur, quoteJson(r)));
+            out.put("stale", t.isStale());
+            return Reply.ok(out);
+        }
+        // served from the in-memory snapshot once it is loaded; same result as the SQL query
+        Map<String, Map<String, Money>> sums = ledger.categoryBreakdownByCurrency(from, to);
+        ObjectNode out = json.createObjectNode();
+        sums.forEach((cat, byCurrency) -> {
+            ObjectNode c = out.putObject(cat);
+            byCurrency.forEach((cur, m) -> c.put(cur, m.toBigDecimal()));
+        });
+        return Reply.ok(out);
+    }
+
+    private Reply fxRate(HttpExchange ex, Map<String, String> q) {
+        requireMethod(ex, "GET");
+        String from = q.get("from"), to = q.get("to");
+        if (from == null || to == null) throw new IllegalArgumentException("from and to are required");
+        String date = q.get("date");
+        RateQuote quote = date == null ? fx.getQuote(from, to) : fx.getQuoteOn(from, to, parseDate(date, "date"));
+        return Reply.ok(quoteJson(quote));
+    }
+
+    private Reply fxStatus(HttpExchange ex, Map<String, String> q) {
+        requireMethod(ex, "GET");
+        CacheManager.Stats s = fx.cacheStats();
+        ObjectNode out = json.createObjectNode();
+        ObjectNode cache = out.putObject("cache");
+        cache.put("size", s.size);
+        cache.put("hits", s.hits);
+        cache.put("staleHits", s.staleHits);
+        cache.put("misses", s.misses);
+        cache.put("hitRate", s.hitRate());
+        cache.put("loads", s.loads);
+        cache.put("loadFailures", s.loadFailures);
+        cache.put("avgLoadMillis", s.avgLoadMillis());
+        ObjectNode refreshed = out.putObject("lastRefreshed");
+        for (Map.Entry<String, Instant> e : fx.lastRefreshed().entrySet()) refreshed.put(e.getKey(), e.getValue().toString());
+        return Reply.ok(out);
+    }
+
+    private Reply stats(HttpExchange ex, Map<String, String> q) {
+        requireMethod(ex, "GET");
+        ObjectNode out = json.createObjectNode();
+        out.put("expenses", ledger.count());
+        return Reply.ok(out);
+    }
+
+    // Probes may call this often; it must stay constant-time.
+    private Reply health(HttpExchange ex, Map<String, String> q) {
+        ObjectNode out = json.createObjectNode();
+        out.put("status", "ok");
+        return Reply.ok(out);
+    }
+
+    // ---------- JSON ----------
+
+    private ObjectNode expenseJson(Expense e) {
+        ObjectNode n = json.createObjectNode();
+        n.put("id", e.getID());
+        n.put("category", e.getCategory());
+        n.put("amount", e.getMoney().toBigDecimal());
+        n.put("currency", e.getCurrency());
+        n.put("description", e.getDescription());
+        n.put("date", isoDate(e.getDate()));
+        return n;
+    }
+
+    private ObjectNode quoteJson(RateQuote r) {
+        ObjectNode n = json.createObjectNode();
+        n.put("from", r.getFrom());
+        n.put("to", r.getTo());
+        n.put("rate", r.getRate());
+        n.put("asOf", r.getAsOf().toString());
+        n.put("stale", r.isStale());
+        return n;
+    }
+
+    // Stored dates are dd/MM/yyyy; the API speaks ISO.
+    private static String isoDate(String display) {
+        try {
+            return LocalDate.parse(display, DISPLAY_FMT).toString();
+        } catch (DateTimeParseException | NullPointerException e) {
+            return display;
+        }
+    }
+
+    private JsonNode readBody(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) throw new IllegalArgumentException("Request body too large");
+            JsonNode n = body.length == 0 ? null : json.readTree(body);
+            if (n == null || !n.isObject()) throw new IllegalArgumentException("Expected a JSON object");
+            return n;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static String text(JsonNode n, String field) {
+        JsonNode v = n.get(field);
+        return v == null || v.isNull() ? null : v.asText();
+    }
+
+    // ---------- Plumbing ----------
+
+    @FunctionalInterface
+    private interface Endpoint {
+        Reply serve(HttpExchange ex, Map<String, String> query) throws IOException;
+    }
+
+    private static final class Reply {
+        final int status;
+        final JsonNode body;
+
+        Reply(int status, JsonNode body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Reply ok(JsonNode body) {
+            return new Reply(200, body);
+        }
+    }
+
+    /** The overflow thread: requests that reach a handler on it are turned away with 503. */
+    private static final class BusyThread extends Thread {
+        BusyThread(Runnable r) {
+            super(r, "hivefi-http-busy");
+            setDaemon(true);
+        }
+    }
+
+    /** Status for a request the endpoint cannot serve as asked. */
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    // Errors map to statuses: bad input 400, duplicate Idempotency-Key 409, FX provider trouble 502.
+    private void handle(HttpExchange ex, Endpoint endpoint) throws IOException {
+        if (Thread.currentThread() instanceof BusyThread) {
+            ex.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+            send(ex, new Reply(503, json.createObjectNode().put("error", "Server busy, retry later")));
+            return;
+        }
+        Reply reply;
+        try {
+            reply = endpoint.serve(ex, query(ex));
+        } catch (RuntimeException e) {
+            Throwable cause = e;
+            while (cause instanceof CompletionException && cause.getCause() != null) cause = cause.getCause();
+            reply = error(cause);
+        }
+        send(ex, reply);
+    }
+
+    private void send(HttpExchange ex, Reply reply) throws IOException {
+        byte[] out = json.writeValueAsBytes(reply.body);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(reply.status, out.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(out);
+        }
+    }
+
+    private Reply error(Throwable e) {
+        int status;
+        if (e instanceof HttpError) status = ((HttpError) e).status;
+        else if (e instanceof IllegalArgumentException) status = 400;
+        else if (e instanceof DuplicateRequestException) status = 409;
+        else if (e instanceof FxException) status = 502;
+        else status = 500;
+        ObjectNode n = json.createObjectNode();
+        n.put("error", e.getMessage());
+        return new Reply(status, n);
+    }
+
+    private static void requireMethod(HttpExchange ex, String method) {
+        if (!ex.getRequestMethod().equals(method)) throw new HttpError(405, "Method not allowed: " + ex.getRequestMethod());
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> out = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) return out;
+        for (String part : raw.split("&")) {
+            if (part.isEmpty()) continue;
+            int eq = part.indexOf('=');
+            String k = URLDecoder.decode(eq < 0 ? part : part.substring(0, eq), StandardCharsets.UTF_8);
+            String v = eq < 0 ? "" : URLDecoder.decode(part.substring(eq + 1), StandardCharsets.UTF_8);
+            out.putIfAbsent(k, v);
+        }
+        return out;
+    }
+
+    private static LocalDate dateParam(Map<String, String> q, String name, LocalDate dflt) {
+        String raw = q.get(name);
+        return raw == null || raw.isBlank() ? dflt : parseDate(raw, name);
+    }
+
+    private static LocalDate parseDate(String raw, String name) {
+        try {
+            return LocalDate.parse(raw.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be a date as yyyy-MM-dd");
+        }
+    }
+
+    private static int intParam(Map<String, String> q, String name, int dflt) {
+        String raw = q.get(name);
+        if (raw == null || raw.isBlank()) return dflt;
+        try {
+            int v = Integer.parseInt(raw.trim());
+            if (v > 0) return v;
+        } catch (NumberFormatException ignore) {
+            // fall through
+        }
+        throw new IllegalArgumentException(name + " must be a positive number");
+    }
+}
@@ -1,29 +1,310 @@
 package com.hivefi.services;
 
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded TTL cache.
+ *
+ * Reads are a plain ConcurrentHashMap lookup plus a few unsynchronized counter updates. When a
+ * put takes the cache over {@code maxSize}, entries are evicted by sampling. A handful of
+ * candidates is taken from a cursor that sweeps the map, and the least frequently used is
+ * dropped (least recently used on a tie, any dead one first). Sampled survivors have their
+ * frequency halved, so keys that were hot long ago age out (CLOCK-style). A shared daemon thread
+ * also sweeps a bounded batch of entries per period, so expired keys that nobody reads again
+ * still go away.
+ *
+ * An entry can carry a grace window after its TTL. During it, {@link #getIfFresh} treats the entry
+ * as missing, but {@link #lookup} still returns it marked stale. It is dead (and removable) only
+ * after the grace window.
+ */
+public class CacheManager<K, V> implements AutoCloseable {
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+    private static final int SAMPLE = 8;
+    private static final int MAX_FREQUENCY = 15;
+    private static final long SWEEP_PERIOD_MILLIS = 30_000;
+    private static final int SWEEP_BATCH = 1_000;
+
+    private static final ScheduledExecutorService SWEEPER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "hivefi-cache-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
 
-public class CacheManager<K, V> {
     private static class Entry<V> {
         final V value;
+        final long loadedAt;
         final long expiresAt;
-        Entry(V value, long expiresAt) { this.value = value; this.expiresAt = expiresAt; }
+        final long staleUntil; // past expiresAt the value is stale but may still be served until here
+        volatile long lastAccess;
+        int frequency; // racy, saturating; an approximate count is all eviction needs
+
+        Entry(V value, long loadedAt, long ttlMillis, long graceMillis) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.expiresAt = loadedAt + ttlMillis;
+            this.staleUntil = expiresAt + Math.max(0, graceMillis);
+            this.lastAccess = System.nanoTime();
+        }
+
+        void touch() {
+            lastAccess = System.nanoTime();
+            if (frequency < MAX_FREQUENCY) frequency++;
+        }
     }
 
     private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private Iterator<Map.Entry<K, Entry<V>>> evictionCursor; // guarded by evictionLock
+    private Iterator<Map.Entry<K, Entry<V>>> sweepCursor;    // guarded by this
+    private final ScheduledFuture<?> sweepTask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    public CacheManager() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public CacheManager(int maxSize) {
+        this(maxSize, SWEEP_PERIOD_MILLIS);
+    }
+
+    CacheManager(int maxSize, long sweepPeriodMillis) {
+        this.maxSize = Math.max(1, maxSize);
+        this.sweepTask = scheduleSweep(this, sweepPeriodMillis);
+    }
 
     public V getIfFresh(K key) {
         Entry<V> e = map.get(key);
-        if (e == null) return null;
-        if (System.currentTimeMillis() > e.expiresAt) {
-            map.remove(key);
+        if (e == null) {
+            misses.increment();
             return null;
         }
+        long now = System.currentTimeMillis();
+        if (now > e.expiresAt) {
+            if (now > e.staleUntil && map.remove(key, e)) expirations.increment();
+            misses.increment();
+            return null;
+        }
+        e.touch();
+        hits.increment();
         return e.value;
     }
 
+    /**
+     * The entry with its timing, whether fresh or stale-but-within-grace; null once past the
+     * grace window. Lets callers serve a stale value while they refresh it.
+     */
+    public Hit<V> lookup(K key) {
+        Entry<V> e = map.get(key);
+        long now = System.currentTimeMillis();
+        if (e == null || now > e.staleUntil) {
+            if (e != null && map.remove(key, e)) expirations.increment();
+            misses.increment();
+            return null;
+        }
+        e.touch();
+        if (now > e.expiresAt) staleHits.increment(); else hits.increment();
+        return new Hit<>(e.value, e.loadedAt, e.expiresAt, e.staleUntil);
+    }
+
+    /** Like {@link #lookup}, but for housekeeping: no hit/miss counted, no recency or frequency bump. */
+    public Hit<V> peek(K key) {
+        Entry<V> e = map.get(key);
+        if (e == null || System.currentTimeMillis() > e.staleUntil) return null;
+        return new Hit<>(e.value, e.loadedAt, e.expiresAt, e.staleUntil);
+    }
+
     public void put(K key, V value, long ttlMillis) {
-        map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+        put(key, value, ttlMillis, 0L);
+    }
+
+    /** Cache for {@code ttlMillis}, then keep it servable as stale (via {@link #lookup}) for {@code graceMillis}. */
+    public void put(K key, V value, long ttlMillis, long graceMillis) {
+        map.put(key, new Entry<>(value, System.currentTimeMillis(), ttlMillis, graceMillis));
+        if (map.size() > maxSize) evict();
+    }
+
+    public void invalidate(K key) {
+        map.remove(key);
     }
 
     public void clear() { map.clear(); }
-}
\ No newline at end of file
+
+    public int size() { return map.size(); }
+
+    /** Record how long a miss took to load, for {@link #stats()}. */
+    public void recordLoad(long nanos, boolean success) {
+        loads.increment();
+        loadNanos.add(nanos);
+        if (!success) loadFailures.increment();
+    }
+
+    public Stats stats() {
+        return new Stats(maxSize, map.size(), hits.sum(), staleHits.sum(), misses.sum(), evictions.sum(),
+                expirations.sum(), loads.sum(), loadFailures.sum(), loadNanos.sum());
+    }
+
+    /** Stop the background sweep. The cache stays usable; expired keys are then only dropped on read. */
+    @Override
+    public void close() {
+        sweepTask.cancel(false);
+    }
+
+    // ---------- Eviction ----------
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void evict() {
+        evictionLock.lock();
+        try {
+            Map.Entry<K, Entry<V>>[] sample = new Map.Entry[SAMPLE];
+            while (map.size() > maxSize) {
+                long now = System.currentTimeMillis();
+                int n = 0, victim = -1;
+                while (n < SAMPLE) {
+                    Map.Entry<K, Entry<V>> c = nextCandidate();
+                    if (c == null) break;
+                    sample[n] = c;
+                    Entry<V> e = c.getValue();
+                    if (now > e.staleUntil) { victim = n++; break; }
+                    if (victim < 0 || colder(e, sample[victim].getValue())) victim = n;
+                    n++;
+                }
+                if (victim < 0) return;
+                for (int i = 0; i < n; i++) {
+                    if (i != victim) sample[i].getValue().frequency >>>= 1;
+                }
+                Map.Entry<K, Entry<V>> v = sample[victim];
+                if (map.remove(v.getKey(), v.getValue())) {
+                    if (now > v.getValue().staleUntil) expirations.increment(); else evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static boolean colder(Entry<?> a, Entry<?> b) {
+        if (a.frequency != b.frequency) return a.frequency < b.frequency;
+        return a.lastAccess < b.lastAccess;
+    }
+
+    private Map.Entry<K, Entry<V>> nextCandidate() {
+        if (evictionCursor == null || !evictionCursor.hasNext()) {
+            evictionCursor = map.entrySet().iterator();
+            if (!evictionCursor.hasNext()) return null;
+        }
+        return evictionCursor.next();
+    }
+
+    // ---------- Expiry sweep ----------
+
+    /** Examine up to {@code budget} entries, continuing where the last sweep stopped; drop expired ones. */
+    synchronized int sweep(int budget) {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        for (int i = 0; i < budget; i++) {
+            if (sweepCursor == null || !sweepCursor.hasNext()) {
+                sweepCursor = map.entrySet().iterator();
+                if (!sweepCursor.hasNext()) break;
+            }
+            Map.Entry<K, Entry<V>> c = sweepCursor.next();
+            if (now > c.getValue().staleUntil && map.remove(c.getKey(), c.getValue())) {
+                expirations.increment();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    // The task only holds the cache weakly, and cancels itself once the cache is unreachable.
+    private static ScheduledFuture<?> scheduleSweep(CacheManager<?, ?> cache, long periodMillis) {
+        WeakReference<CacheManager<?, ?>> ref = new WeakReference<>(cache);
+        return SWEEPER.scheduleWithFixedDelay(() -> {
+            CacheManager<?, ?> c = ref.get();
+            if (c == null) throw new CancellationException("cache collected"); // stops further runs
+            c.sweep(SWEEP_BATCH);
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** A looked-up value with its load and expiry times (epoch millis). */
+    public static final class Hit<V> {
+        public final V value;
+        public final long loadedAt;
+        public final long expiresAt;
+        public final long staleUntil;
+
+        Hit(V value, long loadedAt, long expiresAt, long staleUntil) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.expiresAt = expiresAt;
+            this.staleUntil = staleUntil;
+        }
+
+        public boolean isFresh(long nowMillis) { return nowMillis <= expiresAt; }
+
+        public long ageMillis(long nowMillis) { return nowMillis - loadedAt; }
+    }
+
+    public static final class Stats {
+        public final int maxSize;
+        public final int size;
+        public final long hits;
+        public final long staleHits;
+        public final long misses;
+        public final long evictions;
+        public final long expirations;
+        public final long loads;
+        public final long loadFailures;
+        public final long totalLoadNanos;
+
+        Stats(int maxSize, int size, long hits, long staleHits, long misses, long evictions, long expirations,
+              long loads, long loadFailures, long totalLoadNanos) {
+            this.maxSize = maxSize;
+            this.size = size;
+            this.hits = hits;
+            this.staleHits = staleHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.loads = loads;
+            this.loadFailures = loadFailures;
+            this.totalLoadNanos = totalLoadNanos;
+        }
+
+        /** Fresh hits over all lookups. */
+        public double hitRate() {
+            long total = hits + staleHits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        public double avgLoadMillis() {
+            return loads == 0 ? 0.0 : totalLoadNanos / 1_000_000.0 / loads;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("cache[size=%d/%d, hits=%d, staleHits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, "
+                            + "expirations=%d, loads=%d, loadFailures=%d, avgLoad=%.2fms]",
+                    size, maxSize, hits, staleHits, misses, hitRate() * 100, evictions, expirations,
+                    loads, loadFailures, avgLoadMillis());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.hivefi.services;
+
+/** An expense was submitted again with a request id that has already been recorded. */
+public class DuplicateRequestException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public DuplicateRequestException(String requestId) {
+        super("Duplicate request: " + requestId);
+    }
+}
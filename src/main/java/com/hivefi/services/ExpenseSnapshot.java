@@ -0,0 +1,278 @@
+package com.hivefi.services;
+
+import com.hivefi.db.ExpenseDAO;
+import com.hivefi.models.Expense;
+import com.hivefi.models.Money;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar, in-memory copy of the expenses table for dashboard-style scans.
+ *
+ * Each row is stored as primitives only: amount in minor units, epoch day, and dictionary-encoded
+ * ids of its category and currency. Categories are kept exactly as stored (free text), so
+ * breakdowns group and order them the way the SQL queries do. Scans split the rows into fixed
+ * chunks that are summed in parallel; the per-row loop does not allocate.
+ *
+ * Appends are serialized; readers work on an immutable view (arrays + row count) that is
+ * republished after each append, so they never see a half-written row.
+ */
+public final class ExpenseSnapshot {
+    private static final int CHUNK = 1 << 16;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final DateTimeFormatter DISPLAY_FMT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private static final class Columns {
+        final long[] amounts;
+        final int[] days;
+        final int[] categories;
+        final short[] currencies;
+        final int size;
+
+        Columns(long[] amounts, int[] days, int[] categories, short[] currencies, int size) {
+            this.amounts = amounts;
+            this.days = days;
+            this.categories = categories;
+            this.currencies = currencies;
+            this.size = size;
+        }
+    }
+
+    private volatile Columns cols = new Columns(new long[INITIAL_CAPACITY], new int[INITIAL_CAPACITY],
+            new int[INITIAL_CAPACITY], new short[INITIAL_CAPACITY], 0);
+
+    private final Dictionary categoryNames = new Dictionary(Integer.MAX_VALUE);
+    private final Dictionary currencyCodes = new Dictionary(Short.MAX_VALUE);
+
+    /** Build a snapshot from the current table contents. */
+    public static ExpenseSnapshot load(ExpenseDAO dao) {
+        ExpenseSnapshot snap = new ExpenseSnapshot();
+        dao.scanColumns((category, currency, amount, dateIso) ->
+                snap.add(category, currency, amount, isoToEpochDay(dateIso)));
+        return snap;
+    }
+
+    /** Add a newly recorded expense. */
+    public void append(Expense e) {
+        int day = (int) LocalDate.parse(e.getDate(), DISPLAY_FMT).toEpochDay();
+        add(e.getCategory(), e.getCurrency(), e.getAmountMinor(), day);
+    }
+
+    private synchronized void add(String category, String currency, long amountMinor, int epochDay) {
+        Columns c = cols;
+        int n = c.size;
+        long[] amounts = c.amounts;
+        int[] days = c.days;
+        int[] cats = c.categories;
+        short[] curs = c.currencies;
+        if (n == amounts.length) {
+            int cap = n + (n >> 1) + 1;
+            amounts = Arrays.copyOf(amounts, cap);
+            days = Arrays.copyOf(days, cap);
+            cats = Arrays.copyOf(cats, cap);
+            curs = Arrays.copyOf(curs, cap);
+        }
+        // slot n is beyond every published size, so readers cannot observe it until the swap below
+        amounts[n] = amountMinor;
+        days[n] = epochDay;
+        cats[n] = categoryNames.id(category);
+        curs[n] = (short) currencyCodes.id(currency);
+        cols = new Columns(amounts, days, cats, curs, n + 1);
+    }
+
+    /** Value -> id for writers (under the snapshot lock); id -> value as a published copy for readers. */
+    private static final class Dictionary {
+        private final int max;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private volatile String[] values = new String[0];
+
+        Dictionary(int max) {
+            this.max = max;
+        }
+
+        int id(String value) {
+            Integer id = ids.get(value);
+            if (id != null) return id;
+            String[] vs = values;
+            if (vs.length == max) throw new IllegalStateException("Too many distinct values");
+            String[] grown = Arrays.copyOf(vs, vs.length + 1);
+            grown[vs.length] = value;
+            ids.put(value, vs.length);
+            values = grown;
+            return vs.length;
+        }
+
+        String[] values() {
+            return values;
+        }
+
+        /** Id of {@code value}, -1 for no filter (null), or MISSING if it never occurs. */
+        int filter(String value) {
+            if (value == null) return -1;
+            String[] vs = values;
+            for (int i = 0; i < vs.length; i++) {
+                if (vs[i].equals(value)) return i;
+            }
+            return MISSING;
+        }
+    }
+
+    public int size() {
+        return cols.size;
+    }
+
+    public List<String> currencies() {
+        return List.of(currencyCodes.values());
+    }
+
+    // ---------- Scans ----------
+    // Null arguments mean "no filter". Date bounds are inclusive; categories match exactly, as in SQL.
+
+    /** Exact total in one currency (amounts in different currencies cannot be added). */
+    public Money sum(LocalDate fromInclusive, LocalDate toInclusive, String category, String currency) {
+        if (currency == null) throw new IllegalArgumentException("currency is required");
+        Columns c = cols;
+        int cur = currencyCodes.filter(currency);
+        int cat = categoryNames.filter(category);
+        if (cur == MISSING || cat == MISSING) return Money.zero(currency);
+        int from = fromDay(fromInclusive), to = toDay(toInclusive);
+        long minor = IntStream.range(0, chunks(c.size)).parallel()
+                .mapToLong(k -> sumChunk(c, k, from, to, cat, cur))
+                .sum();
+        return Money.ofMinor(minor, currency);
+    }
+
+    public long count(LocalDate fromInclusive, LocalDate toInclusive, String category, String currency) {
+        Columns c = cols;
+        int cur = currencyCodes.filter(currency);
+        int cat = categoryNames.filter(category);
+        if (cur == MISSING || cat == MISSING) return 0L;
+        int from = fromDay(fromInclusive), to = toDay(toInclusive);
+        return IntStream.range(0, chunks(c.size)).parallel()
+                .mapToLong(k -> countChunk(c, k, from, to, cat, cur))
+                .sum();
+    }
+
+    /**
+     * category -> currency -> total within the date range. Same keys and order as
+     * {@link ExpenseDAO#sumByCategoryAndCurrency}: raw values, sorted the way SQLite's BINARY
+     * collation sorts them (by UTF-8 bytes).
+     */
+    public Map<String, Map<String, Money>> sumByCategoryAndCurrency(LocalDate fromInclusive, LocalDate toInclusive) {
+        Columns c = cols;
+        // read the dictionaries after the columns: every id in the view is then covered
+        String[] names = categoryNames.values();
+        String[] codes = currencyCodes.values();
+        int height = names.length, width = codes.length;
+        int from = fromDay(fromInclusive), to = toDay(toInclusive);
+        int slots = height * width;
+        // one pass: acc[slot] holds the sum, acc[slots + slot] the row count
+        long[] acc = IntStream.range(0, chunks(c.size)).parallel()
+                .mapToObj(k -> groupChunk(c, k, from, to, height, width))
+                .reduce(ExpenseSnapshot::addInto)
+                .orElseGet(() -> new long[2 * slots]);
+
+        Map<String, Map<String, Money>> out = new LinkedHashMap<>();
+        int[] curOrder = sqlOrder(codes);
+        for (int cat : sqlOrder(names)) {
+            for (int cur : curOrder) {
+                int slot = cat * width + cur;
+                if (acc[slots + slot] == 0) continue;
+                out.computeIfAbsent(names[cat], k -> new LinkedHashMap<>())
+                   .put(codes[cur], Money.ofMinor(acc[slot], codes[cur]));
+            }
+        }
+        return out;
+    }
+
+    // ---------- Kernels ----------
+    private static final int MISSING = -2;
+
+    private static long sumChunk(Columns c, int chunk, int from, int to, int cat, int cur) {
+        int lo = chunk * CHUNK, hi = Math.min(c.size, lo + CHUNK);
+        long s = 0L;
+        for (int i = lo; i < hi; i++) {
+            int d = c.days[i];
+            if (d < from || d > to) continue;
+            if (cat >= 0 && c.categories[i] != cat) continue;
+            if (cur >= 0 && c.currencies[i] != cur) continue;
+            s += c.amounts[i];
+        }
+        return s;
+    }
+
+    private static long countChunk(Columns c, int chunk, int from, int to, int cat, int cur) {
+        int lo = chunk * CHUNK, hi = Math.min(c.size, lo + CHUNK);
+        long n = 0;
+        for (int i = lo; i < hi; i++) {
+            int d = c.days[i];
+            if (d < from || d > to) continue;
+            if (cat >= 0 && c.categories[i] != cat) continue;
+            if (cur >= 0 && c.currencies[i] != cur) continue;
+            n++;
+        }
+        return n;
+    }
+
+    private static long[] groupChunk(Columns c, int chunk, int from, int to, int height, int width) {
+        int lo = chunk * CHUNK, hi = Math.min(c.size, lo + CHUNK);
+        int slots = height * width;
+        long[] acc = new long[2 * slots];
+        for (int i = lo; i < hi; i++) {
+            int d = c.days[i];
+            if (d < from || d > to) continue;
+            int cur = c.currencies[i], cat = c.categories[i];
+            if (cur >= width || cat >= height) continue; // defensive: id newer than the dictionaries read above
+            int slot = cat * width + cur;
+            acc[slot] += c.amounts[i];
+            acc[slots + slot] += 1;
+        }
+        return acc;
+    }
+
+    private static long[] addInto(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) a[i] += b[i];
+        return a;
+    }
+
+    // ---------- Helpers ----------
+
+    /** Ids of {@code values} in SQLite BINARY order, i.e. by their UTF-8 bytes. */
+    private static int[] sqlOrder(String[] values) {
+        byte[][] utf8 = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) utf8[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        return IntStream.range(0, values.length).boxed()
+                .sorted(Comparator.comparing(i -> utf8[i], Arrays::compareUnsigned))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static int chunks(int size) {
+        return (size + CHUNK - 1) / CHUNK;
+    }
+
+    private static int fromDay(LocalDate d) {
+        return d == null ? Integer.MIN_VALUE : (int) d.toEpochDay();
+    }
+
+    private static int toDay(LocalDate d) {
+        return d == null ? Integer.MAX_VALUE : (int) d.toEpochDay();
+    }
+
+    /** yyyy-MM-dd to epoch day without going through the formatter. */
+    private static int isoToEpochDay(String iso) {
+        int y = Integer.parseInt(iso, 0, 4, 10);
+        int m = Integer.parseInt(iso, 5, 7, 10);
+        int d = Integer.parseInt(iso, 8, 10, 10);
+        return (int) LocalDate.of(y, m, d).toEpochDay();
+    }
+}
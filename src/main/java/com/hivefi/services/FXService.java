@@ -1,139 +1,607 @@
-// src/main/java/com/hivefi/services/FXService.java  (drop-in replacement)
 package com.hivefi.services;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.hivefi.db.FxRateDAO;
+import com.hivefi.models.RateQuote;
+import com.hivefi.models.RateTable;
+import com.hivefi.services.fx.FxHttp;
+import com.hivefi.services.fx.FxProvider;
+import com.hivefi.services.fx.FxProviders;
+import com.hivefi.utils.Settings;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * FX rates with a refresh-ahead cache. Once a cached table has lived {@code refreshAhead} of its
+ * TTL, the next read returns it and also starts a background refetch. Past the TTL, a table stays
+ * servable for a grace window. Reads during that window get the stale rate at once (flagged
+ * stale in the {@link RateQuote}) while the refetch runs or after it failed. Only a cold miss
+ * waits for the network.
+ *
+ * With an {@link FxRateDAO} store, every fetched table is also written to SQLite. A cold miss
+ * reads the store before going to the network, so a new process starts warm. Rates for past
+ * dates come from the store, filled from the provider's time-series endpoint by {@link #backfill}.
+ *
+ * Requests go through a {@link ProviderChain}: fallback providers are tried when one fails, is
+ * slow to answer (hedged at its p95 latency) or has its circuit breaker open.
+ *
+ * {@link #startWarmup} keeps hot pairs and bases refreshed ahead of reads (see {@link RateWarmer}).
+ */
 public class FXService {
+    private static final int HISTORY_LOOKBACK_DAYS = 7; // weekends and holidays have no rates of their own
+    private static final int MAX_CACHED_TABLES = 256;
+    private static final double DEFAULT_REFRESH_AHEAD = 0.8;
+    private static final int DEFAULT_STALE_GRACE_MINUTES = 360;
+    private static final String DEFAULT_PIVOT = "EUR";
+    private static final JsonFactory JSON = new JsonFactory();
+
     private final OkHttpClient client;
-    private final CacheManager<String, Double> cache;
+    private final CacheManager<String, RateTable> tables; // base currency (or "FROM->TO" on pair-only providers) -> table
     private final long ttlMillis;
-    private final String apiUrl; // e.g. "https://api.frankfurter.app/latest?from=%s&to=%s"
-    private final String apiKey;
-
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private final long refreshAfterMillis; // age at which a read also triggers a background refetch
+    private final long graceMillis;        // how long past its TTL a table may still be served
+    private final ProviderChain providers;
+    private final boolean pairsOnly;       // primary provider has no whole-table endpoint
+    private final String pivot;            // base whose table is fetched first when tables are available
+    private final FxRateDAO store;         // null = memory only
+    private final ConcurrentHashMap<String, CompletableFuture<RateTable>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Validators> validators = new ConcurrentHashMap<>(); // cache key -> last response's
+    private volatile RateWarmer warmer;    // null = no scheduled warm-up
 
+    /**
+     * Providers from the environment (see {@link FxProviders#chainFromEnv()}), rates persisted in the
+     * application database. No warm-up; long-lived processes call {@link #startWarmupFromEnv()}.
+     * This is the only constructor that reads settings; the others use the defaults.
+     */
     public FXService() {
-        this(System.getenv("FX_API_URL"),
-             System.getenv("FX_API_KEY"),
-             readTtlMinutesEnv(30));
+        this(ProviderChain.fromEnv(FxProviders.chainFromEnv()),
+             Duration.ofMinutes(Settings.getInt("FX_TTL_MINUTES", 30)),
+             Settings.getDouble("FX_REFRESH_AHEAD", DEFAULT_REFRESH_AHEAD),
+             Duration.ofMinutes(Settings.getInt("FX_STALE_GRACE_MINUTES", DEFAULT_STALE_GRACE_MINUTES, 0)),
+             Settings.get("FX_BASE", DEFAULT_PIVOT),
+             new FxRateDAO());
     }
 
+    /** Pair-only provider: every uncached pair costs one request (inverses are still derived locally). */
     public FXService(String apiUrl, String apiKey, int ttlMinutes) {
-        this.client = new OkHttpClient.Builder()
-                .callTimeout(Duration.ofSeconds(20))
-                .build();
-        this.cache = new CacheManager<>();
-        this.ttlMillis = Duration.ofMinutes(ttlMinutes).toMillis();
+        this(apiUrl, null, apiKey, ttlMinutes);
+    }
+
+    /**
+     * @param tableUrl endpoint returning every rate for one base ({@code %s} = base). When both URLs
+     *                 are blank, Frankfurter is used.
+     */
+    public FXService(String apiUrl, String tableUrl, String apiKey, int ttlMinutes) {
+        this(apiUrl, tableUrl, null, apiKey, ttlMinutes, null);
+    }
+
+    /**
+     * @param seriesUrl time-series endpoint used by {@link #backfill}; null when the provider has none
+     * @param store     where fetched rates are persisted and read back from; null keeps them in memory only
+     */
+    public FXService(String apiUrl, String tableUrl, String seriesUrl, String apiKey, int ttlMinutes, FxRateDAO store) {
+        this(FxProviders.configured(apiUrl, tableUrl, seriesUrl, apiKey), ttlMinutes, store);
+    }
+
+    public FXService(FxProvider provider, int ttlMinutes, FxRateDAO store) {
+        this(List.of(provider), ttlMinutes, store);
+    }
+
+    /** @param providers in order of preference; the first decides whether rates come as tables or pairs */
+    public FXService(List<FxProvider> providers, int ttlMinutes, FxRateDAO store) {
+        this(new ProviderChain(providers), Duration.ofMinutes(ttlMinutes), DEFAULT_REFRESH_AHEAD,
+             Duration.ofMinutes(DEFAULT_STALE_GRACE_MINUTES), DEFAULT_PIVOT, store);
+    }
+
+    FXService(FxProvider provider, Duration ttl, double refreshAhead, Duration grace, FxRateDAO store) {
+        this(new ProviderChain(List.of(provider)), ttl, refreshAhead, grace, DEFAULT_PIVOT, store);
+    }
+
+    FXService(ProviderChain providers, Duration ttl, double refreshAhead, Duration grace, FxRateDAO store) {
+        this(providers, ttl, refreshAhead, grace, DEFAULT_PIVOT, store);
+    }
 
-        this.apiUrl = (apiUrl == null || apiUrl.isBlank())
-                ? "https://api.frankfurter.app/latest?from=%s&to=%s"
-                : apiUrl;
-        this.apiKey = (apiKey == null || apiKey.isBlank()) ? null : apiKey;
+    /**
+     * @param refreshAhead fraction of the TTL after which a read also refreshes the entry (0..1]
+     * @param grace        how long past the TTL a stale rate may still be served
+     * @param pivot        base whose table is fetched first when the provider serves tables
+     */
+    FXService(ProviderChain providers, Duration ttl, double refreshAhead, Duration grace, String pivot, FxRateDAO store) {
+        this.client = FxHttp.client();
+        this.tables = new CacheManager<>(MAX_CACHED_TABLES);
+        this.ttlMillis = ttl.toMillis();
+        double ahead = refreshAhead > 0 && refreshAhead <= 1 ? refreshAhead : DEFAULT_REFRESH_AHEAD;
+        this.refreshAfterMillis = (long) (ttlMillis * ahead);
+        this.graceMillis = Math.max(0, grace.toMillis());
+        this.providers = providers;
+        this.pairsOnly = !providers.primary().supportsTables();
+        this.store = store;
+        this.pivot = pivot.trim().toUpperCase(Locale.ROOT);
     }
 
     /** Get FX rate FROM -> TO. Returns 1.0 if codes are identical. Uses a TTL cache. */
     public double getRate(String from, String to) {
+        return getQuote(from, to).getRate();
+    }
+
+    /** Like {@link #getRate}, with the rate's age and whether it is being served stale. */
+    public RateQuote getQuote(String from, String to) {
+        try {
+            return getQuoteAsync(from, to).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            throw ex;
+        }
+    }
+
+    public CompletableFuture<Double> getRateAsync(String from, String to) {
+        return getQuoteAsync(from, to).thenApply(RateQuote::getRate);
+    }
+
+    /**
+     * Any cached table quoting both currencies answers directly, including inverse and cross rates,
+     * and is refreshed in the background when due. On a cold miss, the pivot base's table is fetched
+     * (or FROM's own table, or the single pair on pair-only providers). Concurrent misses share
+     * one request.
+     */
+    public CompletableFuture<RateQuote> getQuoteAsync(String from, String to) {
         String f = from.toUpperCase(Locale.ROOT);
         String t = to.toUpperCase(Locale.ROOT);
-        if (f.equals(t)) return 1.0;
+        if (f.equals(t)) return CompletableFuture.completedFuture(new RateQuote(f, t, 1.0, Instant.now(), false));
+        RateWarmer w = warmer;
+        if (w != null) w.observe(f, t);
+
+        RateQuote cached = cachedQuote(f, t);
+        if (cached == null && store != null && warmFromStore(f, t)) cached = cachedQuote(f, t);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        return fetchQuote(f, t);
+    }
 
-        String key = f + "->" + t;
-        Double cached = cache.getIfFresh(key);
-        if (cached != null) return cached;
+    // Cold miss: the pivot's table, then FROM's own, or the single pair on pair-only providers.
+    private CompletableFuture<RateQuote> fetchQuote(String f, String t) {
+        if (pairsOnly) {
+            return load(pairKey(f, t)).thenApply(tbl -> requireQuote(tbl, f, t));
+        }
+        return load(pivot).thenCompose(tbl -> {
+            if (tbl.rate(f, t) != null || f.equals(pivot)) {
+                return CompletableFuture.completedFuture(requireQuote(tbl, f, t));
+            }
+            return load(f).thenApply(own -> requireQuote(own, f, t));
+        });
+    }
 
-        double fetched = fetchRate(f, t);
-        cache.put(key, fetched, ttlMillis);
-        return fetched;
+    /** The full table for one base currency, from cache or one (shared) request. Needs a table endpoint. */
+    public CompletableFuture<RateTable> getTableAsync(String base) {
+        if (pairsOnly) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No FX table endpoint configured"));
+        }
+        return load(base.toUpperCase(Locale.ROOT));
     }
 
-    private double fetchRate(String from, String to) {
-        String url = formatUrl(from, to);
-        Request.Builder rb = new Request.Builder()
-                .url(url)
-                .header("User-Agent", "HiveFi/1.0 (CLI)");
-        if (apiKey != null) rb.header("apikey", apiKey); // ignored by providers that don't use it
+    // ---------- History ----------
 
-        try (Response resp = client.newCall(rb.build()).execute()) {
-            if (!resp.isSuccessful() || resp.body() == null) {
-                throw new RuntimeException("FX HTTP " + resp.code());
+    /** The rate that applied on {@code date} (or the last business day before it). See {@link #getQuoteOnAsync}. */
+    public RateQuote getQuoteOn(String from, String to, LocalDate date) {
+        try {
+            return getQuoteOnAsync(from, to, date).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            throw ex;
+        }
+    }
+
+    /**
+     * Historical rate from the store: an index lookup of the newest table dated on or before
+     * {@code date} (within a week) for the pivot or either currency. If none is stored, the week up
+     * to {@code date} is backfilled from the provider first. The quote's as-of time is the rate date.
+     */
+    public CompletableFuture<RateQuote> getQuoteOnAsync(String from, String to, LocalDate date) {
+        String f = from.toUpperCase(Locale.ROOT);
+        String t = to.toUpperCase(Locale.ROOT);
+        if (f.equals(t)) return CompletableFuture.completedFuture(new RateQuote(f, t, 1.0, startOf(date), false));
+        if (store == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No FX rate store configured"));
+        }
+        RateQuote stored = storedQuote(f, t, date);
+        if (stored != null) return CompletableFuture.completedFuture(stored);
+        if (!providers.supportsSeries()) {
+            return CompletableFuture.failedFuture(
+                    new FxException("FX rate unavailable: " + f + " -> " + t + " on " + date));
+        }
+        LocalDate since = date.minusDays(HISTORY_LOOKBACK_DAYS);
+        return backfill(pivot, since, date).thenCompose(n -> {
+            RateQuote q = storedQuote(f, t, date);
+            if (q != null || f.equals(pivot)) return CompletableFuture.completedFuture(q);
+            return backfill(f, since, date).thenApply(m -> storedQuote(f, t, date));
+        }).thenApply(q -> {
+            if (q == null) throw new FxException("FX rate unavailable: " + f + " -> " + t + " on " + date);
+            return q;
+        });
+    }
+
+    /**
+     * Fetch {@code base}'s daily tables for [from, to] from the time-series endpoint and store them.
+     * Completes with the number of rates written, or 0 without a request when every weekday in the
+     * range is already stored.
+     */
+    public CompletableFuture<Integer> backfill(String base, LocalDate fromInclusive, LocalDate toInclusive) {
+        if (store == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No FX rate store configured"));
+        }
+        if (!providers.supportsSeries()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No FX time-series endpoint configured"));
+        }
+        String b = base.toUpperCase(Locale.ROOT);
+        if (weekdaysStored(b, fromInclusive, toInclusive)) return CompletableFuture.completedFuture(0);
+        return providers.call(FxProvider::supportsSeries,
+                        p -> fetch(p, p.seriesUrl(b, fromInclusive, toInclusive), j -> p.parseSeries(j, b)))
+                .thenApply(store::saveAll);
+    }
+
+    private RateQuote storedQuote(String f, String t, LocalDate date) {
+        for (String base : new String[]{pivot, f, t}) {
+            RateTable tbl = store.findOnOrBefore(base, date, HISTORY_LOOKBACK_DAYS).orElse(null);
+            Double r = tbl == null ? null : tbl.rate(f, t);
+            if (r != null) return new RateQuote(f, t, r, startOf(tbl.getDate()), false);
+        }
+        return null;
+    }
+
+    private boolean weekdaysStored(String base, LocalDate fromInclusive, LocalDate toInclusive) {
+        SortedSet<LocalDate> stored = store.datesStored(base, fromInclusive, toInclusive);
+        for (LocalDate d = fromInclusive; !d.isAfter(toInclusive); d = d.plusDays(1)) {
+            if (d.getDayOfWeek().getValue() <= 5 && !stored.contains(d)) return false;
+        }
+        return true;
+    }
+
+    private static Instant startOf(LocalDate date) {
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    // ---------- Warm-up ----------
+
+    /**
+     * Refresh {@code hot} pairs ("EUR/USD") and bases ("EUR") in the background whenever they are
+     * missing or due, every {@code period} (with jitter), at most {@code requestsPerMinute}
+     * requests. With {@code learn}, the pairs read most often are kept warm too. Replaces any
+     * earlier warm-up.
+     */
+    public void startWarmup(Collection<String> hot, boolean learn, Duration period, int requestsPerMinute) {
+        RateWarmer previous = warmer;
+        warmer = new RateWarmer(this, hot, learn, period, requestsPerMinute).start();
+        if (previous != null) previous.close();
+    }
+
+    /**
+     * {@link #startWarmup} configured from the environment: FX_WARM lists hot pairs and bases, pairs
+     * read often are learned unless FX_WARM_LEARN is false, every FX_WARM_PERIOD_SECONDS (default
+     * 60; 0 disables warm-up) at most FX_WARM_RATE_PER_MINUTE requests (default 30). Returns
+     * whether warm-up is running.
+     */
+    public boolean startWarmupFromEnv() {
+        int period = Settings.getInt("FX_WARM_PERIOD_SECONDS", 60, 0);
+        if (period == 0) return false;
+        String hot = Settings.get("FX_WARM");
+        startWarmup(hot == null ? List.of() : Arrays.asList(hot.split(",")),
+                !"false".equalsIgnoreCase(Settings.get("FX_WARM_LEARN")),
+                Duration.ofSeconds(period),
+                Settings.getInt("FX_WARM_RATE_PER_MINUTE", 30));
+        return true;
+    }
+
+    public void stopWarmup() {
+        RateWarmer w = warmer;
+        warmer = null;
+        if (w != null) w.close();
+    }
+
+    /**
+     * When each warmed pair or base (configured and learned) was last fetched from a provider,
+     * hottest first. Items not currently cached are left out.
+     */
+    public Map<String, Instant> lastRefreshed() {
+        Map<String, Instant> out = new LinkedHashMap<>();
+        RateWarmer w = warmer;
+        if (w == null) return out;
+        for (String item : w.hot()) {
+            int slash = item.indexOf('/');
+            String key = slash < 0 ? (pairsOnly ? null : item) : answeringKey(item.substring(0, slash), item.substring(slash + 1));
+            CacheManager.Hit<RateTable> hit = key == null ? null : tables.peek(key);
+            if (hit != null) out.put(item, hit.value.getFetchedAt());
+        }
+        return out;
+    }
+
+    /**
+     * Start refreshing one hot item if it is missing or past its refresh point. Null when there
+     * is nothing to do (fresh enough, or a load is already running).
+     */
+    CompletableFuture<?> warm(String item) {
+        int slash = item.indexOf('/');
+        if (slash < 0) return pairsOnly ? null : warmKey(item);
+        String f = item.substring(0, slash), t = item.substring(slash + 1);
+        if (f.equals(t)) return null;
+        String key = answeringKey(f, t);
+        if (key == null && store != null && warmFromStore(f, t)) key = answeringKey(f, t);
+        return key != null ? warmKey(key) : fetchQuote(f, t);
+    }
+
+    private CompletableFuture<?> warmKey(String key) {
+        if (inFlight.containsKey(key)) return null;
+        CacheManager.Hit<RateTable> hit = tables.peek(key);
+        if (hit == null) return load(key);
+        long age = System.currentTimeMillis() - hit.value.getFetchedAt().toEpochMilli();
+        if (age < refreshAfterMillis) return null;
+        return load(key, hit.value);
+    }
+
+    // The cached table that quotes f -> t, without touching cache stats.
+    private String answeringKey(String f, String t) {
+        for (String key : candidateKeys(f, t)) {
+            CacheManager.Hit<RateTable> hit = tables.peek(key);
+            if (hit != null && hit.value.rate(f, t) != null) return key;
+        }
+        return null;
+    }
+
+    /** Hit/miss/eviction and load-time counters of the rate-table cache. */
+    public CacheManager.Stats cacheStats() {
+        return tables.stats();
+    }
+
+    // ---------- Cache ----------
+
+    // Cache keys that could answer f -> t: tables for the pivot and either side, or either direction of the pair.
+    private String[] candidateKeys(String f, String t) {
+        return pairsOnly ? new String[]{pairKey(f, t), pairKey(t, f)} : new String[]{pivot, f, t};
+    }
+
+    private static String pairKey(String from, String to) {
+        return from + "->" + to;
+    }
+
+    private RateQuote cachedQuote(String f, String t) {
+        for (String key : candidateKeys(f, t)) {
+            CacheManager.Hit<RateTable> hit = tables.lookup(key);
+            if (hit == null) continue;
+            Double r = hit.value.rate(f, t);
+            if (r == null) continue;
+            long now = System.currentTimeMillis();
+            boolean fresh = hit.isFresh(now);
+            // age from the fetch time, not the cache insert, so tables read back from the store keep theirs
+            if (!fresh || now - hit.value.getFetchedAt().toEpochMilli() >= refreshAfterMillis) {
+                refreshInBackground(key, hit.value);
             }
-            String body = resp.body().string();
-            Double rate = parseRateJson(body, to);
-            if (rate == null) {
-                String preview = body.replaceAll("\\s+", " ");
-                if (preview.length() > 240) preview = preview.substring(0, 240) + "...";
-                throw new RuntimeException("FX parse error: " + preview);
+            return new RateQuote(f, t, r, hit.value.getFetchedAt(), !fresh);
+        }
+        return null;
+    }
+
+    // Copy the newest stored table for each candidate key into the cache, keeping its original age.
+    private boolean warmFromStore(String f, String t) {
+        boolean found = false;
+        long now = System.currentTimeMillis();
+        for (String key : candidateKeys(f, t)) {
+            if (tables.lookup(key) != null) continue; // the cached one is at least as new
+            int arrow = key.indexOf("->");
+            RateTable tbl;
+            try {
+                tbl = (arrow < 0 ? store.latest(key)
+                        : store.latest(key.substring(0, arrow), key.substring(arrow + 2))).orElse(null);
+            } catch (RuntimeException e) {
+                return found; // an unreadable store just means a network fetch
             }
-            return rate;
-        } catch (IOException e) {
-            throw new RuntimeException("FX request failed: " + e.getMessage(), e);
+            if (tbl == null) continue;
+            long age = now - tbl.getFetchedAt().toEpochMilli();
+            if (age >= ttlMillis + graceMillis) continue;
+            tables.put(key, tbl, ttlMillis - age, graceMillis);
+            found = true;
         }
+        return found;
+    }
+
+    // Failures are already counted in the cache stats; the current entry keeps serving until its grace ends.
+    private void refreshInBackground(String key, RateTable current) {
+        if (inFlight.containsKey(key)) return;
+        load(key, current).exceptionally(err -> null);
     }
 
-    private static Double parseRateJson(String json, String targetCode) {
+    private CompletableFuture<RateTable> load(String key) {
+        return load(key, null);
+    }
+
+    /**
+     * Single-flight load: the first caller for {@code key} runs the fetch; callers arriving while it
+     * runs share its result. The table is cached before the flight is removed, and (unless this
+     * refreshes {@code current}, an entry still present) the cache is re-checked after registering,
+     * so no caller can fall between the two.
+     */
+    private CompletableFuture<RateTable> load(String key, RateTable current) {
+        boolean refresh = current != null;
+        if (!refresh) {
+            RateTable hit = tables.getIfFresh(key);
+            if (hit != null) return CompletableFuture.completedFuture(hit);
+        }
+
+        CompletableFuture<RateTable> flight = new CompletableFuture<>();
+        CompletableFuture<RateTable> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) return existing.copy();
+
+        RateTable hit = refresh ? null : tables.getIfFresh(key);
+        if (hit != null) {
+            inFlight.remove(key, flight);
+            flight.complete(hit);
+            return flight.copy();
+        }
+        long started = System.nanoTime();
+        fetchFor(key, current).whenComplete((tbl, err) -> {
+            tables.recordLoad(System.nanoTime() - started, err == null);
+            if (err == null) tables.put(key, tbl, ttlMillis, graceMillis);
+            inFlight.remove(key, flight);
+            if (err == null) flight.complete(tbl);
+            else flight.completeExceptionally(err);
+            if (err == null) persist(tbl);
+        });
+        return flight.copy();
+    }
+
+    // Write-through is best effort: the rate is already served from memory, and the next fetch writes again.
+    private void persist(RateTable tbl) {
+        if (store == null) return;
         try {
-            JsonNode root = MAPPER.readTree(json);
+            store.save(tbl);
+        } catch (RuntimeException ignore) {
+            // keep serving; the store only matters for the next process and for history
+        }
+    }
 
-            if (root.has("result") && root.get("result").isNumber()) {
-                return root.get("result").asDouble();
-            }
-            if (root.has("info") && root.get("info").has("rate")) {
-                JsonNode rate = root.get("info").get("rate");
-                if (rate.isNumber()) return rate.asDouble();
-            }
-            if (root.has("rate") && root.get("rate").isNumber()) {
-                return root.get("rate").asDouble();
-            }
+    private CompletableFuture<RateTable> fetchFor(String key, RateTable current) {
+        int arrow = key.indexOf("->");
+        if (arrow < 0) {
+            return providers.call(FxProvider::supportsTables,
+                    p -> fetchRates(key, p, p.tableUrl(key), current, j -> p.parseTable(j, key)));
+        }
+        // pair-only primary: a one-quote table, so the inverse is free too
+        String from = key.substring(0, arrow), to = key.substring(arrow + 2);
+        return providers.call(p -> p.pairUrl(from, to) != null, p -> fetchRates(key, p, p.pairUrl(from, to), current, j -> {
+            Double rate = p.parsePair(j, from, to);
+            return rate == null ? null : new RateTable(from, Map.of(to, rate), Instant.now());
+        }));
+    }
 
-            // Frankfurter: {"rates":{"USD": 1.07}}
-            if (root.has("rates")) {
-                JsonNode rates = root.get("rates");
-                if (rates.has(targetCode) && rates.get(targetCode).isNumber()) {
-                    return rates.get(targetCode).asDouble();
-                }
-            }
+    private static RateQuote requireQuote(RateTable tbl, String f, String t) {
+        Double r = tbl.rate(f, t);
+        if (r == null) throw new FxException("FX rate unavailable: " + f + " -> " + t);
+        return new RateQuote(f, t, r, tbl.getFetchedAt(), false);
+    }
 
-            if (root.has("data")) {
-                JsonNode data = root.get("data");
-                if (data.has(targetCode) && data.get(targetCode).isNumber()) {
-                    return data.get(targetCode).asDouble();
-                }
-                for (var it = data.fields(); it.hasNext();) {
-                    var entry = it.next();
-                    JsonNode node = entry.getValue();
-                    if (node.has("value") && node.get("value").isNumber()) {
-                        return node.get("value").asDouble();
-                    }
-                }
-            }
+    @FunctionalInterface
+    private interface BodyParser<T> {
+        T parse(JsonParser p) throws IOException;
+    }
 
-            return null;
-        } catch (Exception e) {
-            return null;
+    /**
+     * Fetch a rate table. When {@code current} came from an earlier response of the same provider
+     * with an ETag or Last-Modified, the request is conditional, and a 304 yields {@code current}
+     * re-stamped with the current time, with no body to download or parse.
+     */
+    private CompletableFuture<RateTable> fetchRates(String key, FxProvider provider, String url, RateTable current,
+                                                    BodyParser<RateTable> parser) {
+        Validators found = current == null ? null : validators.get(key);
+        Validators v = found != null && found.table == current && found.source == provider ? found : null;
+        Request.Builder rb = request(provider, url);
+        if (v != null) {
+            // OkHttp's own cache steps aside for requests that already carry conditions
+            if (v.etag != null) rb.header("If-None-Match", v.etag);
+            if (v.lastModified != null) rb.header("If-Modified-Since", v.lastModified);
         }
+        return call(rb.build(), resp -> {
+            if (resp.code() == 304 && v != null) {
+                RateTable same = current.refreshedAt(Instant.now());
+                validators.put(key, new Validators(same, provider, v.etag, v.lastModified));
+                return same;
+            }
+            RateTable t = parse(provider, resp, parser);
+            String etag = resp.header("ETag"), lastModified = resp.header("Last-Modified");
+            if (etag != null || lastModified != null) validators.put(key, new Validators(t, provider, etag, lastModified));
+            else validators.remove(key);
+            return t;
+        });
     }
 
-    private String formatUrl(String from, String to) {
-        if (apiUrl.contains("%s")) {
-            try { return String.format(Locale.ROOT, apiUrl, from, to); }
-            catch (Exception ignore) { /* fall through */ }
+    // The body is parsed as it streams in; a null result means the provider's response was not understood.
+    private <T> CompletableFuture<T> fetch(FxProvider provider, String url, BodyParser<T> parser) {
+        return call(request(provider, url).build(), resp -> parse(provider, resp, parser));
+    }
+
+    private static Request.Builder request(FxProvider provider, String url) {
+        Request.Builder rb = new Request.Builder()
+                .url(url)
+                .header("User-Agent", "HiveFi/1.0 (CLI)");
+        provider.authorize(rb);
+        return rb;
+    }
+
+    private static <T> T parse(FxProvider provider, Response resp, BodyParser<T> parser) throws IOException {
+        if (!resp.isSuccessful() || resp.body() == null) {
+            throw new FxException("FX HTTP " + resp.code());
+        }
+        T parsed;
+        try (JsonParser p = JSON.createParser(resp.body().byteStream())) {
+            parsed = parser.parse(p);
+        } catch (JsonProcessingException e) {
+            throw new FxException("FX parse error: " + provider.name() + ": " + e.getOriginalMessage(), e);
         }
-        String sep = apiUrl.contains("?") ? "&" : "?";
-        return apiUrl + sep + "from=" + from + "&to=" + to + "&amount=1";
+        if (parsed == null) {
+            throw new FxException("FX parse error: unrecognised " + provider.name() + " response");
+        }
+        return parsed;
+    }
+
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(Response resp) throws IOException;
     }
 
-    private static int readTtlMinutesEnv(int def) {
-        String raw = System.getenv("FX_TTL_MINUTES");
-        if (raw == null || raw.isBlank()) return def;
-        try { return Math.max(1, Integer.parseInt(raw.trim())); }
-        catch (NumberFormatException e) { return def; }
+    // Cancelling the returned future (a hedge that lost) cancels the HTTP call.
+    private <T> CompletableFuture<T> call(Request request, ResponseReader<T> reader) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Call http = client.newCall(request);
+        result.whenComplete((v, err) -> { if (result.isCancelled()) http.cancel(); });
+        http.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                result.completeExceptionally(new FxException("FX request failed: " + e.getMessage(), e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response resp) {
+                try (resp) {
+                    result.complete(reader.read(resp));
+                } catch (IOException e) {
+                    result.completeExceptionally(new FxException("FX request failed: " + e.getMessage(), e));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        return result;
+    }
+
+    /** Cache validators of the response a cached table was parsed from. */
+    private static final class Validators {
+        final RateTable table;
+        final FxProvider source;
+        final String etag;
+        final String lastModified;
+
+        Validators(RateTable table, FxProvider source, String etag, String lastModified) {
+            this.table = table;
+            this.source = source;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
     }
 }
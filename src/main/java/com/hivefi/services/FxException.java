@@ -0,0 +1,17 @@
+package com.hivefi.services;
+
+/**
+ * An FX rate could not be obtained: the providers failed, answered with an error or with a body
+ * that could not be parsed, or have no rate for the pair.
+ */
+public class FxException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public FxException(String message) {
+        super(message);
+    }
+
+    public FxException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
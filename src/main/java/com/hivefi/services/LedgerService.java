@@ -1,22 +1,36 @@
 package com.hivefi.services;
 
+import com.hivefi.db.ChainVerification;
 import com.hivefi.db.ExpenseDAO;
+import com.hivefi.db.Page;
 import com.hivefi.db.TransactionDAO;
+import com.hivefi.models.ConvertedTotals;
 import com.hivefi.models.Expense;
+import com.hivefi.models.Money;
+import com.hivefi.models.RateQuote;
 import com.hivefi.models.Transaction;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
-public class LedgerService {
+public class LedgerService implements AutoCloseable {
     private final ExpenseDAO dao;
     private final TransactionDAO txDao;
+    private final LedgerWriter writer;
+    private volatile ExpenseSnapshot snapshot;
 
     public LedgerService(ExpenseDAO dao) {
         this.dao = dao;
         this.txDao = new TransactionDAO();
+        this.writer = new LedgerWriter(dao, txDao);
     }
 
     public Expense recordExpense(String category,
@@ -25,20 +39,42 @@ public class LedgerService {
                                  String description,
                                  String dateDisplay,
                                  String requestId) {
-        if (requestId != null && !requestId.isBlank()) {
-            boolean firstTime = dao.markProcessed(requestId);
-            if (!firstTime) {
-                throw new IllegalStateException("Duplicate request: " + requestId);
-            }
-        }
-        Expense e = new Expense(category, currency, amount, description, dateDisplay);
-        dao.insert(e);
+        return recordExpense(category, Money.exact(amount, currency), description, dateDisplay, requestId);
+    }
 
-        String prev = txDao.lastHash();
-        Transaction t = new Transaction(Transaction.Action.CREATE, e, prev);
-        txDao.append(t);
+    /**
+     * Queue an expense for the group-commit writer. The future completes once the batch
+     * containing it has committed, or fails with DuplicateRequestException for a duplicate requestId.
+     */
+    public CompletableFuture<Expense> recordExpenseAsync(String category,
+                                                         String currency,
+                                                         double amount,
+                                                         String description,
+                                                         String dateDisplay,
+                                                         String requestId) {
+        return recordExpenseAsync(category, Money.exact(amount, currency), description, dateDisplay, requestId);
+    }
 
-        return e;
+    public Expense recordExpense(String category,
+                                 Money amount,
+                                 String description,
+                                 String dateDisplay,
+                                 String requestId) {
+        try {
+            return recordExpenseAsync(category, amount, description, dateDisplay, requestId).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            throw ex;
+        }
+    }
+
+    public CompletableFuture<Expense> recordExpenseAsync(String category,
+                                                         Money amount,
+                                                         String description,
+                                                         String dateDisplay,
+                                                         String requestId) {
+        Expense e = new Expense(category, amount, description, dateDisplay);
+        return writer.submit(e, requestId);
     }
 
     public List<Expense> listAll() {
@@ -53,21 +89,159 @@ public class LedgerService {
         return dao.findByDateRange(fromInclusive, toInclusive);
     }
 
-    public Map<String, Map<String, Double>> categoryBreakdownByCurrency() {
-        List<Expense> all = dao.findAll();
-        Map<String, Map<String, Double>> out = new LinkedHashMap<>();
-        for (Expense e : all) {
-            out.computeIfAbsent(e.getCategory(), k -> new LinkedHashMap<>())
-               .merge(e.getCurrency(), e.getAmount(), Double::sum);
+    /** Streaming variants: rows arrive as they are read. Close the stream (try-with-resources). */
+    public Stream<Expense> streamAll() {
+        return dao.streamAll();
+    }
+
+    public Stream<Expense> streamByCategory(String category) {
+        return dao.streamByCategory(category);
+    }
+
+    public Stream<Expense> streamByDateRange(LocalDate fromInclusive, LocalDate toInclusive) {
+        return dao.streamByDateRange(fromInclusive, toInclusive);
+    }
+
+    /** Keyset-paged listings, newest first. Pass the previous page's token (or null for the first page). */
+    public Page<Expense> pageAll(String pageToken, int pageSize) {
+        return dao.pageAll(pageToken, pageSize);
+    }
+
+    public Page<Expense> pageByCategory(String category, String pageToken, int pageSize) {
+        return dao.pageByCategory(category, pageToken, pageSize);
+    }
+
+    public Page<Expense> pageByDateRange(LocalDate fromInclusive, LocalDate toInclusive, String pageToken, int pageSize) {
+        return dao.pageByDateRange(fromInclusive, toInclusive, pageToken, pageSize);
+    }
+
+    public Map<String, Map<String, Money>> categoryBreakdownByCurrency() {
+        return categoryBreakdownByCurrency(null, null);
+    }
+
+    /**
+     * category -> currency -> total, limited to a date range (either bound may be null). Answered
+     * from the snapshot once it is enabled; it returns the same map as the SQL query.
+     */
+    public Map<String, Map<String, Money>> categoryBreakdownByCurrency(LocalDate fromInclusive, LocalDate toInclusive) {
+        ExpenseSnapshot snap = snapshot;
+        return snap != null
+                ? snap.sumByCategoryAndCurrency(fromInclusive, toInclusive)
+                : dao.sumByCategoryAndCurrency(fromInclusive, toInclusive);
+    }
+
+    /** month -> currency -> total, limited to a date range (either bound may be null). */
+    public Map<YearMonth, Map<String, Money>> monthlyTotalsByCurrency(LocalDate fromInclusive, LocalDate toInclusive) {
+        return dao.sumByMonth(fromInclusive, toInclusive);
+    }
+
+    /**
+     * Totals per category and overall in {@code currency}, limited to a date range (either bound may
+     * be null). Sums are grouped by (category, currency) in SQL. Then one current rate per distinct
+     * currency is requested from {@code fx}, all at once, so the conversion cost depends on the
+     * number of currencies, not of expenses.
+     */
+    public ConvertedTotals convertedTotals(String currency, LocalDate fromInclusive, LocalDate toInclusive, FXService fx) {
+        String target = currency.trim().toUpperCase(Locale.ROOT);
+        Map<String, Map<String, Money>> sums = categoryBreakdownByCurrency(fromInclusive, toInclusive);
+
+        Map<String, CompletableFuture<RateQuote>> pending = new LinkedHashMap<>();
+        for (Map<String, Money> byCurrency : sums.values()) {
+            for (String cur : byCurrency.keySet()) {
+                pending.computeIfAbsent(cur, c -> fx.getQuoteAsync(c, target));
+            }
+        }
+        Map<String, RateQuote> rates = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, CompletableFuture<RateQuote>> e : pending.entrySet()) {
+                rates.put(e.getKey(), e.getValue().join());
+            }
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            throw ex;
+        }
+
+        Map<String, Money> byCategory = new LinkedHashMap<>();
+        Money total = Money.zero(target);
+        for (Map.Entry<String, Map<String, Money>> cat : sums.entrySet()) {
+            Money sum = Money.zero(target);
+            for (Map.Entry<String, Money> e : cat.getValue().entrySet()) {
+                sum = sum.plus(e.getValue().convertTo(target, rates.get(e.getKey()).getRate()));
+            }
+            byCategory.put(cat.getKey(), sum);
+            total = total.plus(sum);
         }
-        return out;
+        return new ConvertedTotals(target, fromInclusive, toInclusive, byCategory, total, rates);
+    }
+
+    /**
+     * Load the columnar analytics snapshot (once) and keep it current with every expense
+     * recorded through this service. Loading pauses the writer so no commit is missed.
+     */
+    public synchronized ExpenseSnapshot enableSnapshot() {
+        if (snapshot == null) {
+            snapshot = writer.whileIdle(() -> {
+                ExpenseSnapshot snap = ExpenseSnapshot.load(dao);
+                writer.setCommitListener(snap::append);
+                return snap;
+            });
+        }
+        return snapshot;
+    }
+
+    /** The analytics snapshot, or null if {@link #enableSnapshot()} has not been called. */
+    public ExpenseSnapshot snapshot() {
+        return snapshot;
     }
 
     public List<Transaction> transactions() {
         return txDao.findAll();
     }
 
-    public int count() {
-        return dao.findAll().size();
+    /** Audit history of one expense, oldest first (index probe on expense_id). */
+    public List<Transaction> historyOf(String expenseId) {
+        return txDao.findByExpense(expenseId);
+    }
+
+    /** Log records in [from, to), in timestamp order. Close the stream (try-with-resources). */
+    public Stream<Transaction> transactionsBetween(Instant fromInclusive, Instant toExclusive) {
+        return txDao.streamByTimestampRange(fromInclusive, toExclusive);
+    }
+
+    /** Keyset-paged transaction log, oldest first. Pass the previous page's token (or null). */
+    public Page<Transaction> pageTransactions(String pageToken, int pageSize) {
+        return txDao.page(pageToken, pageSize);
+    }
+
+    /**
+     * Move transaction history older than HIVEFI_ARCHIVE_AFTER_DAYS into compressed archive
+     * segments. Reads and verification keep covering both tiers. Returns rows moved.
+     */
+    public long archiveOldTransactions() {
+        return txDao.archiveOldTransactions();
+    }
+
+    /** Audit the full transaction log: every tx_hash recomputed, every prev_hash link checked. */
+    public ChainVerification verifyChain() {
+        return txDao.verifyChain();
+    }
+
+    /** Cheap nightly audit: trust the latest checkpoint and re-hash only what was appended after it. */
+    public ChainVerification verifyChainSinceCheckpoint() {
+        return txDao.verifyChainSinceCheckpoint();
+    }
+
+    public long count() {
+        return dao.count();
+    }
+
+    public long count(LocalDate fromInclusive, LocalDate toInclusive) {
+        return dao.count(fromInclusive, toInclusive);
+    }
+
+    /** Flush pending writes and stop the writer thread. */
+    @Override
+    public void close() {
+        writer.close();
     }
 }
\ No newline at end of file
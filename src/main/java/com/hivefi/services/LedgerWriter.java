@@ -0,0 +1,229 @@
+package com.hivefi.services;
+
+import com.hivefi.db.ChainConflictException;
+import com.hivefi.db.Checkpoint;
+import com.hivefi.db.DatabaseManager;
+import com.hivefi.db.ExpenseDAO;
+import com.hivefi.db.TransactionDAO;
+import com.hivefi.models.Expense;
+import com.hivefi.models.Transaction;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Single-writer commit queue for new expenses.
+ * Concurrent submissions are drained into batches; each batch runs as one SQLite transaction
+ * (idempotency marks, expense rows, chained transaction rows and any audit checkpoint that falls due),
+ * so many callers share one commit.
+ * A caller's future completes only after the batch holding its expense has committed.
+ */
+class LedgerWriter implements AutoCloseable {
+    private static final int DEFAULT_MAX_BATCH = 256;
+    private static final int MAX_CONFLICT_RETRIES = 3;
+
+    private final ExpenseDAO dao;
+    private final TransactionDAO txDao;
+    private final int maxBatch;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private final Object intake = new Object(); // orders enqueues against close(), so none is left behind
+    private volatile boolean running = true;
+
+    // Held for the whole of each batch; lets callers take a consistent view between batches.
+    private final ReentrantLock batchLock = new ReentrantLock();
+    private volatile Consumer<Expense> commitListener;
+
+    LedgerWriter(ExpenseDAO dao, TransactionDAO txDao) {
+        this(dao, txDao, DEFAULT_MAX_BATCH);
+    }
+
+    LedgerWriter(ExpenseDAO dao, TransactionDAO txDao, int maxBatch) {
+        this.dao = dao;
+        this.txDao = txDao;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.thread = new Thread(this::runLoop, "hivefi-ledger-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    CompletableFuture<Expense> submit(Expense e, String requestId) {
+        PendingWrite w = new PendingWrite(e, requestId);
+        synchronized (intake) {
+            if (running) {
+                queue.add(w);
+                return w.future;
+            }
+        }
+        w.future.completeExceptionally(new IllegalStateException("Ledger writer is closed"));
+        return w.future;
+    }
+
+    private void runLoop() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.take();
+                if (first == PendingWrite.POISON) continue;
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                batch.removeIf(w -> w == PendingWrite.POISON);
+                writeBatch(batch);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException ex) {
+                for (PendingWrite w : batch) w.future.completeExceptionally(ex);
+            } finally {
+                batch.clear();
+            }
+        }
+        synchronized (intake) { running = false; } // after an interrupt; no-op after close()
+        PendingWrite left;
+        while ((left = queue.poll()) != null) {
+            left.future.completeExceptionally(new IllegalStateException("Ledger writer is closed"));
+        }
+    }
+
+    /** Called on the writer thread for every expense, after its batch has committed. */
+    void setCommitListener(Consumer<Expense> listener) {
+        this.commitListener = listener;
+    }
+
+    /** Run {@code task} while no batch is in flight, e.g. to load a snapshot that later batches extend. */
+    <T> T whileIdle(Supplier<T> task) {
+        batchLock.lock();
+        try {
+            return task.get();
+        } finally {
+            batchLock.unlock();
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        batchLock.lock();
+        try {
+            writeBatchLocked(batch);
+        } finally {
+            batchLock.unlock();
+        }
+    }
+
+    private void writeBatchLocked(List<PendingWrite> batch) {
+        List<Throwable> errors = null;
+        for (int attempt = 1; errors == null; attempt++) {
+            try {
+                errors = tryWriteBatch(batch);
+            } catch (ChainConflictException ex) {
+                // another process extended the chain; the DAO reloaded its head, so rebuild on top of it
+                if (attempt == MAX_CONFLICT_RETRIES) {
+                    for (PendingWrite w : batch) w.future.completeExceptionally(ex);
+                    return;
+                }
+            } catch (SQLException ex) {
+                RuntimeException failure = new RuntimeException("Batch commit failed: " + ex.getMessage(), ex);
+                for (PendingWrite w : batch) w.future.completeExceptionally(failure);
+                return;
+            }
+        }
+
+        Consumer<Expense> listener = commitListener;
+        for (int i = 0; i < batch.size(); i++) {
+            PendingWrite w = batch.get(i);
+            Throwable err = errors.get(i);
+            if (err == null) {
+                if (listener != null) {
+                    try { listener.accept(w.expense); }
+                    catch (RuntimeException ignore) { /* the write is committed; listeners are best effort */ }
+                }
+                w.future.complete(w.expense);
+            } else {
+                w.future.completeExceptionally(err);
+            }
+        }
+    }
+
+    /**
+     * One attempt at the whole batch in one transaction. Each item gets the next sequence number
+     * after the cached chain head, so no read is needed, and checkpoint due-ness is worked out from
+     * the cached last checkpoint. Both caches only move after commit.
+     * Returns per-item errors (null = written).
+     */
+    private List<Throwable> tryWriteBatch(List<PendingWrite> batch) throws SQLException {
+        List<Throwable> errors = new ArrayList<>(batch.size());
+        TransactionDAO.ChainHead start = txDao.head();
+        TransactionDAO.ChainHead head = start;
+        Checkpoint lastCheckpoint = txDao.checkpoints().last();
+        Checkpoint checkpoint;
+        try (Connection c = DatabaseManager.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                for (PendingWrite w : batch) {
+                    Savepoint sp = c.setSavepoint();
+                    try {
+                        if (w.requestId != null && !dao.markProcessed(c, w.requestId)) {
+                            c.rollback(sp);
+                            errors.add(new DuplicateRequestException(w.requestId));
+                            continue;
+                        }
+                        dao.insert(c, w.expense);
+                        Transaction t = new Transaction(Transaction.Action.CREATE, w.expense, head.getHash());
+                        TransactionDAO.ChainHead next = txDao.append(c, head, t);
+                        c.releaseSavepoint(sp);
+                        head = next;
+                        errors.add(null);
+                    } catch (ChainConflictException ex) {
+                        throw ex;
+                    } catch (RuntimeException ex) {
+                        c.rollback(sp);
+                        errors.add(ex);
+                    }
+                }
+                checkpoint = txDao.checkpointIfDue(c, lastCheckpoint, head.getSeq());
+                c.commit();
+            } catch (RuntimeException | SQLException ex) {
+                c.rollback();
+                throw ex;
+            }
+        }
+        txDao.advanceHead(start, head);
+        txDao.checkpoints().advance(lastCheckpoint, checkpoint);
+        return errors;
+    }
+
+    /** Stop accepting writes; queued writes are flushed before the thread exits. */
+    @Override
+    public void close() {
+        synchronized (intake) {
+            running = false;
+            queue.add(PendingWrite.POISON);
+        }
+        try {
+            thread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class PendingWrite {
+        static final PendingWrite POISON = new PendingWrite(null, null);
+
+        final Expense expense;
+        final String requestId;
+        final CompletableFuture<Expense> future = new CompletableFuture<>();
+
+        PendingWrite(Expense expense, String requestId) {
+            this.expense = expense;
+            this.requestId = (requestId == null || requestId.isBlank()) ? null : requestId;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.hivefi.services;
+
+import com.hivefi.services.fx.FxProvider;
+import com.hivefi.utils.Settings;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Ordered FX providers, each behind a circuit breaker and with a window of its recent latencies.
+ *
+ * {@link #call} sends a request to the first eligible provider whose breaker lets it through. A
+ * failure moves on to the next provider at once. If the provider has not answered within its hedge
+ * delay (the p95 of its recent successful calls), the request also goes to the next provider, and
+ * the first success wins; the other call is cancelled. So one slow provider adds roughly its p95 to
+ * a request, not the full call timeout.
+ *
+ * A breaker opens after {@code failureThreshold} consecutive failures, and its provider is then
+ * skipped for {@code openFor}. After that a single probe request is let through (half-open); its
+ * outcome closes the breaker or opens it again.
+ */
+class ProviderChain {
+    static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    static final Duration DEFAULT_OPEN = Duration.ofSeconds(30);
+    static final Duration DEFAULT_HEDGE_DELAY = Duration.ofMillis(500); // until a provider has enough samples
+    private static final int LATENCY_WINDOW = 64;
+    private static final int MIN_SAMPLES = 16;
+    private static final long MIN_HEDGE_MILLIS = 10;
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "hivefi-fx-hedge");
+        t.setDaemon(true);
+        return t;
+    });
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final List<Member> members;
+
+    ProviderChain(List<FxProvider> providers, int failureThreshold, Duration openFor, Duration hedgeDelay) {
+        if (providers.isEmpty()) throw new IllegalArgumentException("No FX providers configured");
+        List<Member> ms = new ArrayList<>(providers.size());
+        for (FxProvider p : providers) {
+            ms.add(new Member(p, Math.max(1, failureThreshold), openFor.toMillis(), hedgeDelay.toMillis()));
+        }
+        this.members = List.copyOf(ms);
+    }
+
+    /** The default breaker and hedge settings. */
+    ProviderChain(List<FxProvider> providers) {
+        this(providers, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN, DEFAULT_HEDGE_DELAY);
+    }
+
+    /** Breaker and hedge settings from FX_BREAKER_FAILURES, FX_BREAKER_OPEN_SECONDS and FX_HEDGE_DELAY_MS. */
+    static ProviderChain fromEnv(List<FxProvider> providers) {
+        return new ProviderChain(providers,
+                Settings.getInt("FX_BREAKER_FAILURES", DEFAULT_FAILURE_THRESHOLD),
+                Duration.ofSeconds(Settings.getInt("FX_BREAKER_OPEN_SECONDS", (int) DEFAULT_OPEN.toSeconds())),
+                Duration.ofMillis(Settings.getInt("FX_HEDGE_DELAY_MS", (int) DEFAULT_HEDGE_DELAY.toMillis())));
+    }
+
+    /** The first provider; its capabilities decide how rates are requested and cached. */
+    FxProvider primary() {
+        return members.get(0).provider;
+    }
+
+    boolean supportsSeries() {
+        for (Member m : members) if (m.provider.supportsSeries()) return true;
+        return false;
+    }
+
+    State state(FxProvider provider) {
+        for (Member m : members) if (m.provider == provider) return m.state();
+        throw new IllegalArgumentException("Not in this chain: " + provider.name());
+    }
+
+    /**
+     * Run {@code attempt} against the providers accepted by {@code eligible}, in order, with
+     * failover and hedging as described above. Completes with the first success, or with the last
+     * failure once every provider that could be tried has failed.
+     */
+    <T> CompletableFuture<T> call(Predicate<FxProvider> eligible, Function<FxProvider, CompletableFuture<T>> attempt) {
+        List<Member> candidates = new ArrayList<>(members.size());
+        for (Member m : members) if (eligible.test(m.provider)) candidates.add(m);
+        Race<T> race = new Race<>(candidates, attempt);
+        race.launch();
+        return race.result;
+    }
+
+    // ---------- Race ----------
+
+    private static final class Race<T> {
+        final List<Member> candidates;
+        final Function<FxProvider, CompletableFuture<T>> attempt;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final List<CompletableFuture<T>> running = new ArrayList<>(); // guarded by this
+        int next;          // guarded by this
+        int pending;       // guarded by this
+        volatile Throwable lastError;
+
+        Race(List<Member> candidates, Function<FxProvider, CompletableFuture<T>> attempt) {
+            this.candidates = candidates;
+            this.attempt = attempt;
+        }
+
+        // Start the next provider whose breaker allows it; fail the race if none is left and nothing runs.
+        void launch() {
+            Member m = pick();
+            if (m == null) {
+                boolean idle;
+                synchronized (this) { idle = pending == 0; }
+                if (idle) result.completeExceptionally(lastError != null ? lastError : unavailable());
+                return;
+            }
+            long started = System.nanoTime();
+            CompletableFuture<T> f;
+            try {
+                f = attempt.apply(m.provider);
+            } catch (RuntimeException e) {
+                f = CompletableFuture.failedFuture(e);
+            }
+            synchronized (this) { running.add(f); }
+
+            CompletableFuture<T> call = f;
+            ScheduledFuture<?> hedge = hasMore()
+                    ? TIMER.schedule(() -> { if (!call.isDone() && !result.isDone()) launch(); },
+                                     m.hedgeDelayMillis(), TimeUnit.MILLISECONDS)
+                    : null;
+            call.whenComplete((v, err) -> {
+                if (hedge != null) hedge.cancel(false);
+                synchronized (this) { pending--; }
+                if (call.isCancelled()) {
+                    m.onCancelled(); // lost the race; says nothing about the provider's health
+                } else if (err == null) {
+                    m.onSuccess(System.nanoTime() - started);
+                    if (result.complete(v)) cancelOthers(call);
+                } else {
+                    m.onFailure();
+                    lastError = err;
+                    if (!result.isDone()) launch();
+                }
+            });
+        }
+
+        private synchronized Member pick() {
+            while (next < candidates.size()) {
+                Member m = candidates.get(next++);
+                if (m.tryAcquire()) {
+                    pending++;
+                    return m;
+                }
+            }
+            return null;
+        }
+
+        private synchronized boolean hasMore() {
+            return next < candidates.size();
+        }
+
+        private void cancelOthers(CompletableFuture<T> winner) {
+            List<CompletableFuture<T>> others;
+            synchronized (this) { others = new ArrayList<>(running); }
+            for (CompletableFuture<T> f : others) if (f != winner) f.cancel(true);
+        }
+
+        private FxException unavailable() {
+            StringBuilder names = new StringBuilder();
+            for (Member m : candidates) names.append(names.length() == 0 ? "" : ", ").append(m.provider.name());
+            return new FxException(candidates.isEmpty()
+                    ? "FX request failed: no provider supports it"
+                    : "FX providers unavailable (circuit open): " + names);
+        }
+    }
+
+    // ---------- Per provider ----------
+
+    private static final class Member {
+        final FxProvider provider;
+        final int failureThreshold;
+        final long openMillis;
+        final long defaultHedgeMillis;
+
+        // breaker, guarded by this
+        State state = State.CLOSED;
+        int consecutiveFailures;
+        long openedAt;
+        boolean probing;
+
+        // latency ring, guarded by this
+        final long[] latencies = new long[LATENCY_WINDOW];
+        int samples;
+        int cursor;
+
+        Member(FxProvider provider, int failureThreshold, long openMillis, long defaultHedgeMillis) {
+            this.provider = provider;
+            this.failureThreshold = failureThreshold;
+            this.openMillis = openMillis;
+            this.defaultHedgeMillis = defaultHedgeMillis;
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized boolean tryAcquire() {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.currentTimeMillis() - openedAt < openMillis) return false;
+                    state = State.HALF_OPEN;
+                    probing = true;
+                    return true;
+                default: // HALF_OPEN: one probe at a time
+                    if (probing) return false;
+                    probing = true;
+                    return true;
+            }
+        }
+
+        synchronized void onSuccess(long nanos) {
+            latencies[cursor] = nanos;
+            cursor = (cursor + 1) % latencies.length;
+            if (samples < latencies.length) samples++;
+            consecutiveFailures = 0;
+            probing = false;
+            state = State.CLOSED;
+        }
+
+        synchronized void onFailure() {
+            probing = false;
+            if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+                state = State.OPEN;
+                openedAt = System.currentTimeMillis();
+            }
+        }
+
+        synchronized void onCancelled() {
+            probing = false;
+        }
+
+        synchronized long hedgeDelayMillis() {
+            if (samples < MIN_SAMPLES) return defaultHedgeMillis;
+            long[] sorted = Arrays.copyOf(latencies, samples);
+            Arrays.sort(sorted);
+            long p95 = sorted[(int) Math.ceil(samples * 0.95) - 1];
+            return Math.max(MIN_HEDGE_MILLIS, TimeUnit.NANOSECONDS.toMillis(p95));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.hivefi.services;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduled prefetcher that keeps an {@link FXService}'s hot rates cached.
+ *
+ * Hot items are pairs ("EUR/USD") and bases ("EUR"): the configured ones, plus the pairs read
+ * most often lately. Read counts are halved every {@value #DECAY_TICKS} ticks, so a pair nobody
+ * reads any more drops out after a few of those. Each tick asks the service to refresh every hot item that
+ * is missing or due for refresh, hottest first. Requests are limited by a token bucket of
+ * {@code requestsPerMinute}; items over the limit wait for a later tick. Ticks are spaced by the
+ * period plus or minus 20% jitter, so several processes started together do not refresh in step.
+ *
+ * The scheduled task holds the service weakly and stops once the service is unreachable.
+ */
+class RateWarmer implements AutoCloseable {
+    private static final double JITTER = 0.2;
+    private static final int MAX_TRACKED_PAIRS = 1024;
+    private static final int MIN_HITS_TO_LEARN = 2;
+    private static final int MAX_LEARNED = 8;
+    private static final int DECAY_TICKS = 10;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "hivefi-fx-warmer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final WeakReference<FXService> service;
+    private final List<String> configured;
+    private final boolean learn;
+    private final long periodMillis;
+    private final double permitsPerMilli;
+    private final double capacity;
+    private final ConcurrentHashMap<String, AtomicLong> traffic = new ConcurrentHashMap<>();
+    private volatile List<String> learned = List.of();
+    private volatile boolean closed;
+    private int ticks; // only touched by the scheduler thread
+
+    // token bucket, guarded by this
+    private double tokens;
+    private long refilledAt;
+
+    RateWarmer(FXService service, Collection<String> hot, boolean learn, Duration period, int requestsPerMinute) {
+        this.service = new WeakReference<>(service);
+        List<String> items = new ArrayList<>();
+        for (String h : hot) {
+            String item = normalize(h);
+            if (item != null && !items.contains(item)) items.add(item);
+        }
+        this.configured = List.copyOf(items);
+        this.learn = learn;
+        this.periodMillis = Math.max(1, period.toMillis());
+        this.capacity = Math.max(1, requestsPerMinute);
+        this.permitsPerMilli = capacity / 60_000.0;
+        this.tokens = capacity;
+        this.refilledAt = System.currentTimeMillis();
+    }
+
+    /** Start ticking; the first tick comes soon, so a new process is warm before its first reads. */
+    RateWarmer start() {
+        schedule((long) (Math.min(periodMillis, 1_000) * ThreadLocalRandom.current().nextDouble()));
+        return this;
+    }
+
+    /** Count one read of {@code from -> to} towards learning which pairs are hot. */
+    void observe(String from, String to) {
+        if (!learn) return;
+        String pair = from + "/" + to;
+        AtomicLong n = traffic.get(pair);
+        if (n == null) {
+            if (traffic.size() >= MAX_TRACKED_PAIRS) return;
+            n = traffic.computeIfAbsent(pair, k -> new AtomicLong());
+        }
+        n.incrementAndGet();
+    }
+
+    /** Configured items first, then learned pairs, hottest first. */
+    List<String> hot() {
+        Set<String> all = new LinkedHashSet<>(configured);
+        all.addAll(learned);
+        return new ArrayList<>(all);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    // ---------- Ticks ----------
+
+    /** Refresh what is due, within the rate limit. Returns the number of requests started. */
+    int tick(FXService fx) {
+        if (learn) learned = learnHot();
+        int started = 0;
+        for (String item : hot()) {
+            if (!hasPermit()) break;
+            CompletableFuture<?> f;
+            try {
+                f = fx.warm(item);
+            } catch (RuntimeException e) {
+                continue; // e.g. an unknown currency; the other items still get their turn
+            }
+            if (f == null) continue; // fresh enough, or already loading
+            takePermit();
+            f.exceptionally(err -> null); // failures are counted in the cache stats
+            started++;
+        }
+        return started;
+    }
+
+    // Top pairs by reads; every DECAY_TICKS ticks the counts are halved, so pairs nobody reads any more cool off.
+    private List<String> learnHot() {
+        boolean decay = ++ticks % DECAY_TICKS == 0;
+        List<Map.Entry<String, Long>> counts = new ArrayList<>();
+        for (Map.Entry<String, AtomicLong> e : traffic.entrySet()) {
+            long n = decay ? e.getValue().updateAndGet(v -> v >> 1) : e.getValue().get();
+            if (n >= MIN_HITS_TO_LEARN) counts.add(Map.entry(e.getKey(), n));
+        }
+        // may drop a read racing with this; the counts are approximate anyway
+        if (decay) traffic.values().removeIf(n -> n.get() == 0);
+        counts.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        List<String> top = new ArrayList<>(MAX_LEARNED);
+        for (int i = 0; i < counts.size() && top.size() < MAX_LEARNED; i++) top.add(counts.get(i).getKey());
+        return List.copyOf(top);
+    }
+
+    private synchronized boolean hasPermit() {
+        long now = System.currentTimeMillis();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * permitsPerMilli);
+        refilledAt = now;
+        return tokens >= 1;
+    }
+
+    private synchronized void takePermit() {
+        tokens -= 1;
+    }
+
+    private void schedule(long delayMillis) {
+        if (closed) return;
+        SCHEDULER.schedule(this::run, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        FXService fx = service.get();
+        if (fx == null || closed) return;
+        try {
+            tick(fx);
+        } catch (RuntimeException ignore) {
+            // keep ticking; the next one retries
+        }
+        double jitter = 1 + JITTER * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        schedule((long) (periodMillis * jitter));
+    }
+
+    /** "EUR/USD" or "EUR->USD" for a pair, "EUR" for a base; null for blanks. */
+    static String normalize(String item) {
+        if (item == null || item.isBlank()) return null;
+        String s = item.trim().toUpperCase(Locale.ROOT).replace("->", "/");
+        int slash = s.indexOf('/');
+        if (slash < 0) return s;
+        return s.substring(0, slash).trim() + "/" + s.substring(slash + 1).trim();
+    }
+}
@@ -0,0 +1,77 @@
+package com.hivefi.services.fx;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.hivefi.models.RateTable;
+import okhttp3.Request;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * currencyapi.com v3, key in the {@code apikey} header:
+ * {"meta":{"last_updated_at":"2025-09-01T23:59:59Z"},"data":{"USD":{"code":"USD","value":1.08}}}.
+ * No ranged history.
+ */
+public final class CurrencyApiProvider implements FxProvider {
+    public static final String DEFAULT_ROOT = "https://api.currencyapi.com/v3";
+
+    private final String root;
+    private final String key;
+
+    public CurrencyApiProvider(String root, String apiKey) {
+        this.root = root.endsWith("/") ? root.substring(0, root.length() - 1) : root;
+        this.key = apiKey;
+    }
+
+    @Override public String name() { return "currencyapi"; }
+
+    @Override
+    public String tableUrl(String base) {
+        return root + "/latest?base_currency=" + base;
+    }
+
+    @Override
+    public String pairUrl(String from, String to) {
+        return root + "/latest?base_currency=" + from + "&currencies=" + to;
+    }
+
+    @Override
+    public String seriesUrl(String base, LocalDate fromInclusive, LocalDate toInclusive) {
+        return null;
+    }
+
+    @Override
+    public void authorize(Request.Builder request) {
+        if (key != null) request.header("apikey", key);
+    }
+
+    @Override
+    public RateTable parseTable(JsonParser p, String base) throws IOException {
+        if (!JsonRates.openRoot(p)) return null;
+        LocalDate date = null;
+        Map<String, Double> rates = null;
+        String f;
+        while ((f = JsonRates.nextField(p)) != null) {
+            if (f.equals("data")) {
+                rates = JsonRates.rates(p, null);
+            } else if (f.equals("meta") && p.currentToken() == JsonToken.START_OBJECT) {
+                String g;
+                while ((g = JsonRates.nextField(p)) != null) {
+                    if (g.equals("last_updated_at")) date = JsonRates.date(JsonRates.text(p, null));
+                    else p.skipChildren();
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return JsonRates.table(base, rates, date);
+    }
+
+    @Override
+    public Double parsePair(JsonParser p, String from, String to) throws IOException {
+        RateTable t = parseTable(p, from);
+        return t == null ? null : t.rate(from, to);
+    }
+}
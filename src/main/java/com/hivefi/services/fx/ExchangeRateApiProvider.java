@@ -0,0 +1,66 @@
+package com.hivefi.services.fx;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.hivefi.models.RateTable;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * ExchangeRate-API v6, key in the path: /latest/BASE returns {"base_code":..,"conversion_rates":{..}},
+ * /pair/FROM/TO returns {"conversion_rate":..}. No ranged history.
+ */
+public final class ExchangeRateApiProvider implements FxProvider {
+    public static final String DEFAULT_ROOT = "https://v6.exchangerate-api.com/v6";
+
+    private final String root;
+
+    public ExchangeRateApiProvider(String root, String apiKey) {
+        String r = root.endsWith("/") ? root.substring(0, root.length() - 1) : root;
+        this.root = r + "/" + (apiKey == null ? "" : apiKey);
+    }
+
+    @Override public String name() { return "exchangerate-api"; }
+
+    @Override
+    public String tableUrl(String base) {
+        return root + "/latest/" + base;
+    }
+
+    @Override
+    public String pairUrl(String from, String to) {
+        return root + "/pair/" + from + "/" + to;
+    }
+
+    @Override
+    public String seriesUrl(String base, LocalDate fromInclusive, LocalDate toInclusive) {
+        return null;
+    }
+
+    @Override
+    public RateTable parseTable(JsonParser p, String base) throws IOException {
+        if (!JsonRates.openRoot(p)) return null;
+        String b = base;
+        Map<String, Double> rates = null;
+        String f;
+        while ((f = JsonRates.nextField(p)) != null) {
+            if (f.equals("base_code")) b = JsonRates.text(p, b);
+            else if (f.equals("conversion_rates")) rates = JsonRates.rates(p, null);
+            else p.skipChildren();
+        }
+        return JsonRates.table(b, rates, null);
+    }
+
+    @Override
+    public Double parsePair(JsonParser p, String from, String to) throws IOException {
+        if (!JsonRates.openRoot(p)) return null;
+        Double rate = null;
+        String f;
+        while ((f = JsonRates.nextField(p)) != null) {
+            if (f.equals("conversion_rate")) rate = JsonRates.number(p);
+            else p.skipChildren();
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,91 @@
+package com.hivefi.services.fx;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.hivefi.models.RateTable;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * exchangerate.host (apilayer), key passed as {@code access_key}. Tables and series quote pairs
+ * as six-letter keys: {"source":"USD","quotes":{"USDEUR":0.91}}, and per day under "quotes" for
+ * /timeframe. /convert answers a pair with {"result":..} (and {"info":{"quote"|"rate":..}}).
+ */
+public final class ExchangeRateHostProvider implements FxProvider {
+    public static final String DEFAULT_ROOT = "https://api.exchangerate.host";
+
+    private final String root;
+    private final String key;
+
+    public ExchangeRateHostProvider(String root, String apiKey) {
+        this.root = root.endsWith("/") ? root.substring(0, root.length() - 1) : root;
+        this.key = apiKey == null ? "" : apiKey;
+    }
+
+    @Override public String name() { return "exchangerate.host"; }
+
+    @Override public boolean supportsSeries() { return true; }
+
+    @Override
+    public String tableUrl(String base) {
+        return root + "/live?source=" + base + "&access_key=" + key;
+    }
+
+    @Override
+    public String pairUrl(String from, String to) {
+        return root + "/convert?from=" + from + "&to=" + to + "&amount=1&access_key=" + key;
+    }
+
+    @Override
+    public String seriesUrl(String base, LocalDate fromInclusive, LocalDate toInclusive) {
+        return root + "/timeframe?source=" + base + "&start_date=" + fromInclusive + "&end_date=" + toInclusive
+                + "&access_key=" + key;
+    }
+
+    @Override
+    public RateTable parseTable(JsonParser p, String base) throws IOException {
+        if (!JsonRates.openRoot(p)) return null;
+        LocalDate date = null;
+        Map<String, Double> rates = null;
+        String f;
+        while ((f = JsonRates.nextField(p)) != null) {
+            switch (f) {
+                case "quotes": rates = JsonRates.rates(p, base); break;
+                case "date": date = JsonRates.date(JsonRates.text(p, null)); break;
+                default: p.skipChildren();
+            }
+        }
+        return JsonRates.table(base, rates, date);
+    }
+
+    @Override
+    public Double parsePair(JsonParser p, String from, String to) throws IOException {
+        if (!JsonRates.openRoot(p)) return null;
+        Double result = null, info = null;
+        String f;
+        while ((f = JsonRates.nextField(p)) != null) {
+            if (f.equals("result")) {
+                result = JsonRates.number(p);
+            } else if (f.equals("info")) {
+                info = JsonRates.numberField(p, "quote", "rate");
+            } else {
+                p.skipChildren();
+            }
+        }
+        return result != null ? result : info;
+    }
+
+    @Override
+    public List<RateTable> parseSeries(JsonParser p, String base) throws IOException {
+        if (!JsonRates.openRoot(p)) return null;
+        List<RateTable> days = null;
+        String f;
+        while ((f = JsonRates.nextField(p)) != null) {
+            if (f.equals("quotes")) days = JsonRates.series(p, base, base);
+            else p.skipChildren();
+        }
+        return days;
+    }
+}
@@ -0,0 +1,84 @@
+package com.hivefi.services.fx;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.hivefi.models.RateTable;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frankfurter (ECB reference rates, no key): {"amount":1,"base":"EUR","date":"2025-09-01","rates":{..}}
+ * for the latest table or a pair, and {"base":..,"rates":{"2025-09-01":{..},..}} for a time series.
+ */
+public final class FrankfurterProvider implements FxProvider {
+    public static final String DEFAULT_ROOT = "https://api.frankfurter.app";
+
+    private final String root;
+
+    public FrankfurterProvider() {
+        this(DEFAULT_ROOT);
+    }
+
+    public FrankfurterProvider(String root) {
+        this.root = root.endsWith("/") ? root.substring(0, root.length() - 1) : root;
+    }
+
+    @Override public String name() { return "frankfurter"; }
+
+    @Override public boolean supportsSeries() { return true; }
+
+    @Override
+    public String tableUrl(String base) {
+        return root + "/latest?from=" + base;
+    }
+
+    @Override
+    public String pairUrl(String from, String to) {
+        return root + "/latest?from=" + from + "&to=" + to;
+    }
+
+    @Override
+    public String seriesUrl(String base, LocalDate fromInclusive, LocalDate toInclusive) {
+        return root + "/" + fromInclusive + ".." + toInclusive + "?from=" + base;
+    }
+
+    @Override
+    public RateTable parseTable(JsonParser p, String base) throws IOException {
+        if (!JsonRates.openRoot(p)) return null;
+        String b = base;
+        LocalDate date = null;
+        Map<String, Double> rates = null;
+        String f;
+        while ((f = JsonRates.nextField(p)) != null) {
+            switch (f) {
+                case "base": b = JsonRates.text(p, b); break;
+                case "date": date = JsonRates.date(JsonRates.text(p, null)); break;
+                case "rates": rates = JsonRates.rates(p, null); break;
+                default: p.skipChildren();
+            }
+        }
+        return JsonRates.table(b, rates, date);
+    }
+
+    @Override
+    public Double parsePair(JsonParser p, String from, String to) throws IOException {
+        RateTable t = parseTable(p, from);
+        return t == null ? null : t.rate(from, to);
+    }
+
+    @Override
+    public List<RateTable> parseSeries(JsonParser p, String base) throws IOException {
+        if (!JsonRates.openRoot(p)) return null;
+        String b = base;
+        List<RateTable> days = null;
+        String f;
+        while ((f = JsonRates.nextField(p)) != null) {
+            if (f.equals("base")) b = JsonRates.text(p, b);
+            else if (f.equals("rates")) days = JsonRates.series(p, b, null);
+            else p.skipChildren();
+        }
+        return days;
+    }
+}
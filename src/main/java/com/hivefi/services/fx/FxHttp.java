@@ -0,0 +1,46 @@
+package com.hivefi.services.fx;
+
+import com.hivefi.utils.Settings;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+
+import java.io.File;
+import java.time.Duration;
+
+/**
+ * The one OkHttpClient all FX calls go through, so every FXService in the JVM shares its
+ * connection pool and dispatcher. Responses are also kept in an on-disk HTTP cache, so a new
+ * process can revalidate what an earlier one fetched (ETag / If-Modified-Since) instead of
+ * downloading it again.
+ *
+ * FX_HTTP_CACHE_DIR (default: hivefi-fx-http under the temp dir) and FX_HTTP_CACHE_MB (default
+ * 10, 0 disables the disk cache) are read once, as system properties or environment variables.
+ */
+public final class FxHttp {
+    private static final int DEFAULT_CACHE_MB = 10;
+
+    private static volatile OkHttpClient shared;
+
+    private FxHttp() {}
+
+    public static OkHttpClient client() {
+        OkHttpClient c = shared;
+        if (c != null) return c;
+        synchronized (FxHttp.class) {
+            if (shared == null) shared = build();
+            return shared;
+        }
+    }
+
+    private static OkHttpClient build() {
+        OkHttpClient.Builder b = new OkHttpClient.Builder()
+                .callTimeout(Duration.ofSeconds(20));
+        long mb = Settings.getInt("FX_HTTP_CACHE_MB", DEFAULT_CACHE_MB, 0);
+        if (mb > 0) {
+            String dir = Settings.get("FX_HTTP_CACHE_DIR");
+            File root = dir != null ? new File(dir) : new File(System.getProperty("java.io.tmpdir"), "hivefi-fx-http");
+            b.cache(new Cache(root, mb * 1024 * 1024));
+        }
+        return b.build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.hivefi.services.fx;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.hivefi.models.RateTable;
+import okhttp3.Request;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One FX rate provider: where to send each kind of request and how to read its responses.
+ *
+ * Parsers get a streaming {@link JsonParser} over the raw response body, positioned before the
+ * first token. They read only the fields their provider uses and skip the rest, so no String or
+ * tree is built for the body. A null result means the response was not understood.
+ */
+public interface FxProvider {
+
+    /** Short name for messages and configuration, e.g. "frankfurter". */
+    String name();
+
+    /** Whether one request can return every rate for a base ({@link #tableUrl}). */
+    default boolean supportsTables() { return true; }
+
+    /** Whether daily history can be fetched in ranges ({@link #seriesUrl}). */
+    default boolean supportsSeries() { return false; }
+
+    String tableUrl(String base);
+
+    String pairUrl(String from, String to);
+
+    String seriesUrl(String base, LocalDate fromInclusive, LocalDate toInclusive);
+
+    /** Add credentials to a request, for providers that take them in a header. */
+    default void authorize(Request.Builder request) {}
+
+    RateTable parseTable(JsonParser p, String base) throws IOException;
+
+    Double parsePair(JsonParser p, String from, String to) throws IOException;
+
+    /** Daily tables of a time series; an empty range (e.g. a weekend) is an empty list. */
+    default List<RateTable> parseSeries(JsonParser p, String base) throws IOException {
+        return null;
+    }
+}
@@ -0,0 +1,72 @@
+package com.hivefi.services.fx;
+
+import com.hivefi.utils.Settings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/** Picks the provider adapter once, from configuration (system properties or environment variables). */
+public final class FxProviders {
+
+    private FxProviders() {}
+
+    /**
+     * FX_PROVIDER names an adapter: frankfurter (the default), exchangerate.host, exchangerate-api
+     * or currencyapi, with FX_PROVIDER_URL overriding its root and FX_API_KEY as its key. Without
+     * FX_PROVIDER, URL templates in FX_API_URL / FX_TABLE_URL / FX_SERIES_URL select the generic
+     * adapter (see {@link #configured}).
+     */
+    public static FxProvider fromEnv() {
+        String name = Settings.get("FX_PROVIDER");
+        String key = Settings.get("FX_API_KEY");
+        if (name == null) return configured(Settings.get("FX_API_URL"), Settings.get("FX_TABLE_URL"), Settings.get("FX_SERIES_URL"), key);
+        return named(name, Settings.get("FX_PROVIDER_URL"), key);
+    }
+
+    /**
+     * The {@link #fromEnv()} provider followed by the fallbacks named in FX_FALLBACK_PROVIDERS
+     * (comma-separated, same names as FX_PROVIDER). A fallback's key is read from
+     * FX_&lt;NAME&gt;_API_KEY (e.g. FX_CURRENCYAPI_API_KEY) and its root from FX_&lt;NAME&gt;_URL.
+     */
+    public static List<FxProvider> chainFromEnv() {
+        List<FxProvider> chain = new ArrayList<>();
+        chain.add(fromEnv());
+        String fallbacks = Settings.get("FX_FALLBACK_PROVIDERS");
+        if (fallbacks == null) return chain;
+        for (String name : fallbacks.split(",")) {
+            if (name.isBlank()) continue;
+            String prefix = "FX_" + name.trim().toUpperCase(Locale.ROOT).replaceAll("[^A-Z0-9]", "_");
+            chain.add(named(name, Settings.get(prefix + "_URL"), Settings.get(prefix + "_API_KEY")));
+        }
+        return chain;
+    }
+
+    /** A known provider by name; {@code root} may be null for its public endpoint. */
+    public static FxProvider named(String name, String root, String apiKey) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "frankfurter":
+                return new FrankfurterProvider(root != null ? root : FrankfurterProvider.DEFAULT_ROOT);
+            case "exchangerate.host":
+            case "exchangerate-host":
+                return new ExchangeRateHostProvider(root != null ? root : ExchangeRateHostProvider.DEFAULT_ROOT, apiKey);
+            case "exchangerate-api":
+                return new ExchangeRateApiProvider(root != null ? root : ExchangeRateApiProvider.DEFAULT_ROOT, apiKey);
+            case "currencyapi":
+                return new CurrencyApiProvider(root != null ? root : CurrencyApiProvider.DEFAULT_ROOT, apiKey);
+            default:
+                throw new IllegalArgumentException("Unknown FX provider: " + name);
+        }
+    }
+
+    /**
+     * The generic adapter over URL templates, or Frankfurter when neither a pair nor a table URL is
+     * given. A pair URL without a table URL means a pair-only provider.
+     */
+    public static FxProvider configured(String pairUrl, String tableUrl, String seriesUrl, String apiKey) {
+        boolean noPair = pairUrl == null || pairUrl.isBlank();
+        boolean noTable = tableUrl == null || tableUrl.isBlank();
+        if (noPair && noTable) return new FrankfurterProvider();
+        return new GenericProvider(pairUrl, tableUrl, seriesUrl, apiKey);
+    }
+}
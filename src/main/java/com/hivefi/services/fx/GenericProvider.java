@@ -0,0 +1,170 @@
+package com.hivefi.services.fx;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.hivefi.models.RateTable;
+import okhttp3.Request;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Any provider given by URL templates (FX_API_URL, FX_TABLE_URL, FX_SERIES_URL). Since the
+ * response shape is not known up front, one streaming pass collects every shape the known
+ * providers use and picks the best match at the end. The key, if any, goes in an
+ * {@code apikey} header, which providers that do not use it ignore.
+ */
+public final class GenericProvider implements FxProvider {
+    private final String pairUrl;   // %s = from, to; without placeholders, from/to/amount are appended
+    private final String tableUrl;  // %s = base; null = pairs only
+    private final String seriesUrl; // %s = start date, end date, base; null = no history
+    private final String key;
+
+    public GenericProvider(String pairUrl, String tableUrl, String seriesUrl, String apiKey) {
+        this.pairUrl = blankToNull(pairUrl);
+        this.tableUrl = blankToNull(tableUrl);
+        this.seriesUrl = blankToNull(seriesUrl);
+        this.key = blankToNull(apiKey);
+        if (this.pairUrl == null && this.tableUrl == null) {
+            throw new IllegalArgumentException("A pair or table URL is required");
+        }
+    }
+
+    @Override public String name() { return "generic"; }
+
+    @Override public boolean supportsTables() { return tableUrl != null; }
+
+    @Override public boolean supportsSeries() { return seriesUrl != null; }
+
+    @Override
+    public String tableUrl(String base) {
+        return tableUrl == null ? null : String.format(Locale.ROOT, tableUrl, base);
+    }
+
+    @Override
+    public String pairUrl(String from, String to) {
+        if (pairUrl == null) return null;
+        if (pairUrl.contains("%s")) {
+            try { return String.format(Locale.ROOT, pairUrl, from, to); }
+            catch (Exception ignore) { /* fall through */ }
+        }
+        String sep = pairUrl.contains("?") ? "&" : "?";
+        return pairUrl + sep + "from=" + from + "&to=" + to + "&amount=1";
+    }
+
+    @Override
+    public String seriesUrl(String base, LocalDate fromInclusive, LocalDate toInclusive) {
+        return seriesUrl == null ? null : String.format(Locale.ROOT, seriesUrl, fromInclusive, toInclusive, base);
+    }
+
+    @Override
+    public void authorize(Request.Builder request) {
+        if (key != null) request.header("apikey", key);
+    }
+
+    /**
+     * Accepts {"base":..,"rates":{..}} (Frankfurter), {"base_code":..,"conversion_rates":{..}}
+     * (ExchangeRate-API), {"data":{"USD":1.1}} or {"data":{"USD":{"value":1.1}}} (currencyapi),
+     * and {"source":"USD","quotes":{"USDEUR":..}} (exchangerate.host).
+     */
+    @Override
+    public RateTable parseTable(JsonParser p, String base) throws IOException {
+        if (!JsonRates.openRoot(p)) return null;
+        String baseField = null, baseCode = null, source = null;
+        Map<String, Double> rates = null, conversion = null, data = null, quotes = null;
+        LocalDate date = null;
+        String f;
+        while ((f = JsonRates.nextField(p)) != null) {
+            switch (f) {
+                case "base": baseField = JsonRates.text(p, null); break;
+                case "base_code": baseCode = JsonRates.text(p, null); break;
+                case "source": source = JsonRates.text(p, null); break;
+                case "date": date = JsonRates.date(JsonRates.text(p, null)); break;
+                case "rates": rates = objectRates(p); break;
+                case "conversion_rates": conversion = objectRates(p); break;
+                case "data": data = objectRates(p); break;
+                case "quotes": quotes = objectRates(p, base); break;
+                default: p.skipChildren();
+            }
+        }
+        String b = baseField != null ? baseField : baseCode != null ? baseCode : source != null ? source : base;
+        Map<String, Double> found = rates != null ? rates : conversion != null ? conversion : data;
+        if ((found == null || found.isEmpty()) && quotes != null) found = quotes;
+        return JsonRates.table(b, found, date);
+    }
+
+    /**
+     * Pair responses, in order of preference: {"result":..}, {"info":{"rate":..}}, {"rate":..},
+     * {"conversion_rate":..}, {"rates":{TO:..}}, {"data":{TO:..}}, or the first {"value":..} under "data".
+     */
+    @Override
+    public Double parsePair(JsonParser p, String from, String to) throws IOException {
+        if (!JsonRates.openRoot(p)) return null;
+        Double result = null, info = null, rate = null, conversion = null, ratesTo = null, dataTo = null, dataFirst = null;
+        String f;
+        while ((f = JsonRates.nextField(p)) != null) {
+            switch (f) {
+                case "result": result = JsonRates.number(p); break;
+                case "info": info = JsonRates.numberField(p, "rate"); break;
+                case "rate": rate = JsonRates.number(p); break;
+                case "conversion_rate": conversion = JsonRates.number(p); break;
+                case "rates":
+                    Map<String, Double> rs = objectRates(p);
+                    if (rs != null) ratesTo = rs.get(to);
+                    break;
+                case "data":
+                    if (p.currentToken() != JsonToken.START_OBJECT) { p.skipChildren(); break; }
+                    String code;
+                    while ((code = JsonRates.nextField(p)) != null) {
+                        if (p.currentToken() == JsonToken.START_OBJECT) {
+                            Double v = JsonRates.numberField(p, "value");
+                            if (dataFirst == null) dataFirst = v;
+                        } else {
+                            Double v = JsonRates.number(p);
+                            if (code.equals(to)) dataTo = v;
+                        }
+                    }
+                    break;
+                default: p.skipChildren();
+            }
+        }
+        for (Double d : new Double[]{result, info, rate, conversion, ratesTo, dataTo, dataFirst}) {
+            if (d != null) return d;
+        }
+        return null;
+    }
+
+    /** {"base"|"source":..,"rates"|"quotes":{"yyyy-MM-dd":{..}}}. */
+    @Override
+    public List<RateTable> parseSeries(JsonParser p, String base) throws IOException {
+        if (!JsonRates.openRoot(p)) return null;
+        List<RateTable> rates = null, quotes = null;
+        String f;
+        while ((f = JsonRates.nextField(p)) != null) {
+            if (f.equals("rates")) rates = JsonRates.series(p, base, null);
+            else if (f.equals("quotes")) quotes = JsonRates.series(p, base, base);
+            else p.skipChildren(); // base/source must match the requested base anyway
+        }
+        return rates != null ? rates : quotes;
+    }
+
+    private static Map<String, Double> objectRates(JsonParser p) throws IOException {
+        return objectRates(p, null);
+    }
+
+    // null (rather than empty) when the field is not an object, so it does not shadow another shape
+    private static Map<String, Double> objectRates(JsonParser p, String pairPrefix) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        return JsonRates.rates(p, pairPrefix);
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s;
+    }
+}
@@ -0,0 +1,121 @@
+package com.hivefi.services.fx;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.hivefi.models.RateTable;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Streaming-read helpers shared by the provider adapters. */
+final class JsonRates {
+
+    private JsonRates() {}
+
+    /** Advance to the root object; false if the body is not a JSON object. */
+    static boolean openRoot(JsonParser p) throws IOException {
+        return p.nextToken() == JsonToken.START_OBJECT;
+    }
+
+    /** Advance to the next field of the current object and onto its value; null at the object's end. */
+    static String nextField(JsonParser p) throws IOException {
+        if (p.nextToken() != JsonToken.FIELD_NAME) return null;
+        String name = p.currentName();
+        p.nextToken();
+        return name;
+    }
+
+    /** The current value as text, or {@code def} (skipping it) if it is not a string. */
+    static String text(JsonParser p, String def) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_STRING) return p.getText();
+        p.skipChildren();
+        return def;
+    }
+
+    /** The current value as a number, or null (skipping it) if it is not numeric. */
+    static Double number(JsonParser p) throws IOException {
+        if (p.currentToken() != null && p.currentToken().isNumeric()) return p.getDoubleValue();
+        p.skipChildren();
+        return null;
+    }
+
+    /** Consume the current object, returning the numeric value of any of {@code fields} (null if absent). */
+    static Double numberField(JsonParser p, String... fields) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        Double found = null;
+        String name;
+        while ((name = nextField(p)) != null) {
+            Double v = number(p);
+            if (v == null) continue;
+            for (String field : fields) {
+                if (name.equals(field)) found = v;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Consume the current object as code -> rate. Values may be numbers or {"value": n} objects;
+     * anything else is skipped. Six-letter keys starting with {@code pairPrefix} (e.g. "USDEUR" for
+     * base USD) are cut to the quote code.
+     */
+    static Map<String, Double> rates(JsonParser p, String pairPrefix) throws IOException {
+        Map<String, Double> out = new HashMap<>(64);
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return out;
+        }
+        String key;
+        while ((key = nextField(p)) != null) {
+            Double v = p.currentToken() == JsonToken.START_OBJECT ? numberField(p, "value") : number(p);
+            if (v == null) continue;
+            if (pairPrefix != null && key.length() == 6 && key.startsWith(pairPrefix)) key = key.substring(3);
+            out.put(key, v);
+        }
+        return out;
+    }
+
+    /** Consume the current object as {"yyyy-MM-dd": {rates}, ...}. */
+    static List<RateTable> series(JsonParser p, String base, String pairPrefix) throws IOException {
+        List<RateTable> out = new ArrayList<>();
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return out;
+        }
+        Instant now = Instant.now();
+        String day;
+        while ((day = nextField(p)) != null) {
+            LocalDate date = date(day);
+            Map<String, Double> rates = rates(p, pairPrefix);
+            if (date != null && !rates.isEmpty()) out.add(new RateTable(base, rates, now, date));
+        }
+        return out;
+    }
+
+    /** A table dated {@code date} (today in UTC if unknown), or null when there are no rates. */
+    static RateTable table(String base, Map<String, Double> rates, LocalDate date) {
+        if (rates == null || rates.isEmpty()) return null;
+        Instant now = Instant.now();
+        return new RateTable(base, rates, now, date != null ? date : LocalDate.ofInstant(now, ZoneOffset.UTC));
+    }
+
+    /** "2025-09-01" or a timestamp starting with it; null if neither. */
+    static LocalDate date(String s) {
+        if (s == null || s.length() < 10) return null;
+        try {
+            return LocalDate.parse(s.substring(0, 10));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.hivefi.utils;
+
+/**
+ * Reads HIVEFI_* and FX_* settings: a JVM system property wins over the environment variable of
+ * the same name. Unset, blank or unparseable values fall back to the caller's default.
+ */
+public final class Settings {
+
+    /** Trimmed value, or null when unset or blank. */
+    public static String get(String name) {
+        String raw = System.getProperty(name);
+        if (raw == null || raw.isBlank()) raw = System.getenv(name);
+        return (raw == null || raw.isBlank()) ? null : raw.trim();
+    }
+
+    public static String get(String name, String def) {
+        String raw = get(name);
+        return raw == null ? def : raw;
+    }
+
+    /** A positive integer; {@code def} when unset or unparseable, 1 when below 1. */
+    public static int getInt(String name, int def) {
+        return getInt(name, def, 1);
+    }
+
+    /** An integer; {@code def} when unset or unparseable, {@code min} when below {@code min}. */
+    public static int getInt(String name, int def, int min) {
+        String raw = get(name);
+        if (raw == null) return def;
+        try { return Math.max(min, Integer.parseInt(raw)); }
+        catch (NumberFormatException e) { return def; }
+    }
+
+    /** {@code def} when unset or unparseable. */
+    public static double getDouble(String name, double def) {
+        String raw = get(name);
+        if (raw == null) return def;
+        try { return Double.parseDouble(raw); }
+        catch (NumberFormatException e) { return def; }
+    }
+
+    private Settings() {}
+}
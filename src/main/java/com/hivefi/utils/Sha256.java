@@ -0,0 +1,99 @@
+package com.hivefi.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Reusable SHA-256 builder. Text is UTF-8 encoded straight into a small scratch buffer that
+ * feeds the digest, so hashing a record needs no intermediate String or byte[] per field.
+ *
+ * Instances are not thread-safe; use {@link #local()} to get this thread's (reset) instance.
+ */
+public final class Sha256 {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<Sha256> LOCAL = ThreadLocal.withInitial(Sha256::new);
+
+    private final MessageDigest md;
+    private final byte[] buf = new byte[256];
+    private int pos;
+
+    public Sha256() {
+        try {
+            this.md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+
+    /** This thread's builder, reset and ready for a new message. */
+    public static Sha256 local() {
+        Sha256 h = LOCAL.get();
+        h.reset();
+        return h;
+    }
+
+    public Sha256 reset() {
+        md.reset();
+        pos = 0;
+        return this;
+    }
+
+    /** Appends like string concatenation would: null becomes "null". */
+    public Sha256 append(String s) {
+        if (s == null) s = "null";
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                put((byte) (0xC0 | (c >> 6)));
+                put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                put((byte) (0xF0 | (cp >> 18)));
+                put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                put((byte) '?'); // unpaired surrogate, same replacement as String.getBytes(UTF_8)
+            } else {
+                put((byte) (0xE0 | (c >> 12)));
+                put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return this;
+    }
+
+    public Sha256 append(double d) {
+        return append(Double.toString(d));
+    }
+
+    private void put(byte b) {
+        if (pos == buf.length) {
+            md.update(buf, 0, pos);
+            pos = 0;
+        }
+        buf[pos++] = b;
+    }
+
+    /** Finish the digest and return it as lowercase hex. The builder is reset afterwards. */
+    public String hex() {
+        if (pos > 0) {
+            md.update(buf, 0, pos);
+            pos = 0;
+        }
+        return toHex(md.digest());
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            int v = bytes[i] & 0xFF;
+            out[j++] = HEX[v >>> 4];
+            out[j++] = HEX[v & 0x0F];
+        }
+        return new String(out);
+    }
+}
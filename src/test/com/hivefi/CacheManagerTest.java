@@ -0,0 +1,61 @@
+package com.hivefi.services;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheManagerTest {
+
+  @Test void stays_bounded_and_keeps_frequently_read_keys() {
+    try (CacheManager<String, Integer> cache = new CacheManager<>(100)) {
+      cache.put("hot", 0, 60_000);
+      for (int i = 0; i < 1_000; i++) {
+        cache.put("k" + i, i, 60_000);
+        assertEquals(0, cache.getIfFresh("hot"));
+      }
+      assertTrue(cache.size() <= 100, "size " + cache.size());
+      CacheManager.Stats s = cache.stats();
+      assertTrue(s.evictions >= 900, s.toString());
+      assertEquals(1_000, s.hits);
+    }
+  }
+
+  @Test void per_entry_ttl_and_background_sweep() throws Exception {
+    try (CacheManager<String, Integer> cache = new CacheManager<>(1_000, 50)) {
+      cache.put("short", 1, 1);
+      cache.put("long", 2, 60_000);
+      Thread.sleep(20);
+      assertNull(cache.getIfFresh("short"));
+      cache.put("never-read", 3, 1);
+      long deadline = System.currentTimeMillis() + 2_000;
+      while (cache.size() > 1 && System.currentTimeMillis() < deadline) Thread.sleep(20);
+      assertEquals(1, cache.size());
+      assertEquals(2, cache.getIfFresh("long"));
+      CacheManager.Stats s = cache.stats();
+      assertEquals(2, s.expirations);
+      assertEquals(1, s.misses);
+      cache.recordLoad(2_000_000, true);
+      assertEquals(2.0, cache.stats().avgLoadMillis(), 1e-9);
+    }
+  }
+
+  @Test void grace_window_serves_stale_entries_through_lookup_only() throws Exception {
+    try (CacheManager<String, Integer> cache = new CacheManager<>(1_000, 60_000)) {
+      cache.put("k", 7, 1, 60_000);
+      Thread.sleep(20);
+      assertNull(cache.getIfFresh("k"));
+      CacheManager.Hit<Integer> hit = cache.lookup("k");
+      assertNotNull(hit);
+      assertEquals(7, hit.value);
+      assertFalse(hit.isFresh(System.currentTimeMillis()));
+      assertTrue(hit.ageMillis(System.currentTimeMillis()) >= 20);
+      assertEquals(0, cache.sweep(100)); // not dead until the grace ends
+
+      cache.put("gone", 8, 1, 1);
+      Thread.sleep(20);
+      assertNull(cache.lookup("gone"));
+      CacheManager.Stats s = cache.stats();
+      assertEquals(1, s.staleHits);
+      assertEquals(1, s.expirations);
+    }
+  }
+}
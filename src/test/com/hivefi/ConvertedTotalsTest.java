@@ -0,0 +1,46 @@
+package com.hivefi.services;
+
+import com.hivefi.db.ExpenseDAO;
+import com.hivefi.models.ConvertedTotals;
+import com.hivefi.models.Money;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConvertedTotalsTest {
+  @TempDir static Path tmp;
+
+  @BeforeAll static void setDb() {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("totals.db"));
+  }
+  @AfterAll static void clearDb() { System.clearProperty("HIVEFI_DB_URL"); }
+
+  @Test void converts_each_currency_sum_once() throws Exception {
+    try (MockWebServer provider = new MockWebServer();
+         LedgerService ledger = new LedgerService(new ExpenseDAO())) {
+      provider.enqueue(new MockResponse().setBody("{\"base\":\"EUR\",\"rates\":{\"USD\":1.10,\"GBP\":0.85}}"));
+      provider.start();
+      FXService fx = new FXService(null, provider.url("/latest").toString() + "?from=%s", null, 60);
+
+      for (int i = 0; i < 50; i++) ledger.recordExpense("Food", "USD", 0.20, "snack " + i, "02/03/2025", null);
+      ledger.recordExpense("Food", "EUR", 5.00, "lunch", "03/03/2025", null);
+      ledger.recordExpense("Travel", "GBP", 100.00, "train", "04/03/2025", null);
+      ledger.recordExpense("Travel", "USD", 1.00, "bus", "04/03/2025", null);
+      ledger.recordExpense("Travel", "JPY", 5000, "outside range", "01/04/2025", null);
+
+      ConvertedTotals totals = ledger.convertedTotals("eur", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31), fx);
+      assertEquals("EUR", totals.getCurrency());
+      assertEquals(Money.of(9.09 + 5.00, "EUR"), totals.getByCategory().get("Food"));
+      assertEquals(Money.of(117.65 + 0.91, "EUR"), totals.getByCategory().get("Travel"));
+      assertEquals(Money.of(132.65, "EUR"), totals.getTotal());
+      assertEquals(3, totals.getRates().size());
+      assertFalse(totals.getRates().containsKey("JPY"));
+      assertFalse(totals.isStale());
+      assertEquals(1, provider.getRequestCount());
+    }
+  }
+}
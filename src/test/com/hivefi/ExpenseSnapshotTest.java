@@ -0,0 +1,65 @@
+package com.hivefi.services;
+
+import com.hivefi.db.ExpenseDAO;
+import com.hivefi.models.Money;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseSnapshotTest {
+  @TempDir static Path tmp;
+  @BeforeAll static void setDb() {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("snapshot_test.db"));
+  }
+
+  @Test void snapshot_loads_then_tracks_new_expenses() {
+    try (LedgerService ledger = new LedgerService(new ExpenseDAO())) {
+      ledger.recordExpense("Food", "USD", 10.0, "a", "01/09/2025", null);
+      ledger.recordExpense("Hotel", "EUR", 80.0, "b", "02/09/2025", null);
+
+      ExpenseSnapshot snap = ledger.enableSnapshot();
+      assertEquals(2, snap.size());
+
+      ledger.recordExpense("Food", "USD", 2.5, "c", "03/10/2025", null);
+      assertEquals(3, snap.size());
+
+      assertEquals(Money.ofMinor(1250, "USD"), snap.sum(null, null, "Food", "USD"));
+      assertEquals(Money.ofMinor(1000, "USD"), snap.sum(LocalDate.of(2025, 9, 1), LocalDate.of(2025, 9, 30), null, "USD"));
+      assertEquals(1, snap.count(null, null, "Hotel", null));
+      assertEquals(Money.zero("JPY"), snap.sum(null, null, null, "JPY"));
+
+      Map<String, Map<String, Money>> byCat = snap.sumByCategoryAndCurrency(null, null);
+      assertEquals(Money.ofMinor(8000, "EUR"), byCat.get("Hotel").get("EUR"));
+      assertEquals(Money.ofMinor(1250, "USD"), byCat.get("Food").get("USD"));
+    }
+  }
+
+  @Test void breakdown_matches_the_sql_query_for_free_text_categories() {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("snapshot_free_text.db"));
+    try {
+      ExpenseDAO dao = new ExpenseDAO();
+      try (LedgerService ledger = new LedgerService(dao)) {
+        ledger.recordExpense("coffee", "USD", 3.0, "a", "01/09/2025", null);
+        ledger.recordExpense("rent", "EUR", 900.0, "b", "01/09/2025", null);
+        ledger.recordExpense("Rent", "EUR", 100.0, "c", "02/09/2025", null);
+        ledger.recordExpense("Éclairs", "EUR", 4.0, "d", "02/09/2025", null);
+        ledger.recordExpense("coffee", "EUR", 2.0, "e", "03/09/2025", null);
+
+        ExpenseSnapshot snap = ledger.enableSnapshot();
+        Map<String, Map<String, Money>> sql = dao.sumByCategoryAndCurrency(null, null);
+        Map<String, Map<String, Money>> mem = snap.sumByCategoryAndCurrency(null, null);
+        assertEquals(sql, mem);
+        assertEquals(List.copyOf(sql.keySet()), List.copyOf(mem.keySet()));
+        assertEquals(List.copyOf(sql.get("coffee").keySet()), List.copyOf(mem.get("coffee").keySet()));
+        assertEquals(Money.ofMinor(90000, "EUR"), snap.sum(null, null, "rent", "EUR"));
+        assertEquals(0, snap.count(null, null, "Coffee", null));
+      }
+    } finally {
+      System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("snapshot_test.db"));
+    }
+  }
+}
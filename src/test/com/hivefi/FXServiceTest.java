@@ -1,12 +1,27 @@
 package com.hivefi.services;
 
+import com.hivefi.db.FxRateDAO;
+import com.hivefi.models.RateQuote;
+import com.hivefi.services.fx.FrankfurterProvider;
+import com.hivefi.services.fx.FxProvider;
+import com.hivefi.services.fx.FxProviders;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.*;
 
 class FXServiceTest {
   private static MockWebServer server;
+  @TempDir static Path tmp;
 
   @BeforeAll static void start() throws Exception {
     server = new MockWebServer(); server.start();
@@ -26,4 +41,175 @@ class FXServiceTest {
     double r2 = fx.getRate("EUR","USD");
     assertEquals(1.10, r2, 1e-9);
   }
-}
\ No newline at end of file
+
+  @Test void concurrent_misses_share_one_request() throws Exception {
+    try (MockWebServer slow = new MockWebServer()) {
+      slow.enqueue(new MockResponse().setBody("{\"rates\":{\"JPY\":160.5}}").setBodyDelay(300, TimeUnit.MILLISECONDS));
+      slow.start();
+      FXService fx = new FXService(slow.url("/latest").toString() + "?from=%s&to=%s", null, 60);
+
+      List<CompletableFuture<Double>> calls = new ArrayList<>();
+      for (int i = 0; i < 20; i++) calls.add(fx.getRateAsync("eur", "JPY"));
+      for (CompletableFuture<Double> c : calls) assertEquals(160.5, c.get(5, TimeUnit.SECONDS), 1e-9);
+      assertEquals(1, slow.getRequestCount());
+      assertEquals(160.5, fx.getRate("EUR", "JPY"), 1e-9);
+      assertEquals(1, slow.getRequestCount());
+    }
+  }
+
+  @Test void failed_fetch_surfaces_as_runtime_exception() throws Exception {
+    try (MockWebServer down = new MockWebServer()) {
+      down.enqueue(new MockResponse().setResponseCode(503));
+      down.start();
+      FXService fx = new FXService(down.url("/latest").toString() + "?from=%s&to=%s", null, 60);
+      RuntimeException ex = assertThrows(RuntimeException.class, () -> fx.getRate("EUR", "GBP"));
+      assertTrue(ex.getMessage().contains("503"), ex.getMessage());
+    }
+  }
+
+  @Test void one_table_fetch_answers_inverse_and_cross_rates() throws Exception {
+    try (MockWebServer provider = new MockWebServer()) {
+      provider.enqueue(new MockResponse().setBody("{\"base\":\"EUR\",\"date\":\"2025-09-01\",\"rates\":{\"USD\":1.10,\"GBP\":0.85,\"JPY\":160.0}}"));
+      provider.start();
+      FXService fx = new FXService(null, provider.url("/latest").toString() + "?from=%s", null, 60);
+
+      assertEquals(0.85 / 1.10, fx.getRate("USD", "GBP"), 1e-12);
+      assertEquals(1.10 / 0.85, fx.getRate("GBP", "USD"), 1e-12);
+      assertEquals(160.0, fx.getRate("EUR", "JPY"), 1e-12);
+      assertEquals(1 / 160.0, fx.getRate("JPY", "EUR"), 1e-12);
+      assertEquals(1, provider.getRequestCount());
+      assertEquals("/latest?from=EUR", provider.takeRequest().getPath());
+    }
+  }
+
+  @Test void pair_provider_derives_the_inverse_locally() throws Exception {
+    try (MockWebServer provider = new MockWebServer()) {
+      provider.enqueue(new MockResponse().setBody("{\"result\":1.25}"));
+      provider.start();
+      FXService fx = new FXService(provider.url("/convert").toString() + "?from=%s&to=%s", null, 60);
+      assertEquals(1.25, fx.getRate("GBP", "USD"), 1e-12);
+      assertEquals(0.8, fx.getRate("USD", "GBP"), 1e-12);
+      assertEquals(1, provider.getRequestCount());
+    }
+  }
+
+  @Test void expired_rate_is_served_stale_while_refresh_runs() throws Exception {
+    try (MockWebServer provider = new MockWebServer()) {
+      provider.enqueue(new MockResponse().setBody("{\"base\":\"EUR\",\"rates\":{\"USD\":1.10}}"));
+      provider.enqueue(new MockResponse().setResponseCode(503));
+      provider.enqueue(new MockResponse().setBody("{\"base\":\"EUR\",\"rates\":{\"USD\":1.20}}"));
+      provider.start();
+      FXService fx = new FXService(FxProviders.configured(null, provider.url("/latest").toString() + "?from=%s", null, null),
+          Duration.ofMillis(100), 0.5, Duration.ofMinutes(5), null);
+
+      RateQuote first = fx.getQuote("EUR", "USD");
+      assertEquals(1.10, first.getRate(), 1e-12);
+      assertFalse(first.isStale());
+
+      Thread.sleep(150);
+      RateQuote stale = fx.getQuote("EUR", "USD"); // refresh fails with 503; the old rate keeps serving
+      assertTrue(stale.isStale());
+      assertEquals(1.10, stale.getRate(), 1e-12);
+      assertTrue(stale.getAge().toMillis() >= 100);
+      awaitRequests(provider, 2);
+      long failed = System.currentTimeMillis() + 5000;
+      while (fx.cacheStats().loadFailures == 0 && System.currentTimeMillis() < failed) Thread.sleep(10);
+
+      RateQuote again = fx.getQuote("EUR", "USD"); // still stale, starts the next refresh
+      assertEquals(1.10, again.getRate(), 1e-12);
+      awaitRequests(provider, 3);
+      long deadline = System.currentTimeMillis() + 5000;
+      while (fx.getRate("EUR", "USD") != 1.20 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+      assertEquals(1.20, fx.getRate("EUR", "USD"), 1e-12);
+      assertEquals(1, fx.cacheStats().loadFailures);
+    }
+  }
+
+  @Test void fresh_rate_past_refresh_point_refetches_in_background() throws Exception {
+    try (MockWebServer provider = new MockWebServer()) {
+      provider.enqueue(new MockResponse().setBody("{\"result\":1.25}"));
+      provider.enqueue(new MockResponse().setBody("{\"result\":1.30}").setBodyDelay(200, TimeUnit.MILLISECONDS));
+      provider.start();
+      FXService fx = new FXService(FxProviders.configured(provider.url("/convert").toString() + "?from=%s&to=%s", null, null, null),
+          Duration.ofMinutes(10), 0.0001, Duration.ZERO, null);
+
+      assertEquals(1.25, fx.getRate("GBP", "USD"), 1e-12);
+      Thread.sleep(100);
+      long t0 = System.nanoTime();
+      RateQuote q = fx.getQuote("GBP", "USD");
+      assertTrue(System.nanoTime() - t0 < TimeUnit.MILLISECONDS.toNanos(150), "served without waiting");
+      assertEquals(1.25, q.getRate(), 1e-12);
+      assertFalse(q.isStale());
+      for (int i = 0; i < 10; i++) fx.getQuote("USD", "GBP"); // joins the running refresh
+      awaitRequests(provider, 2);
+      long deadline = System.currentTimeMillis() + 5000;
+      while (fx.getRate("GBP", "USD") != 1.30 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+      assertEquals(1.30, fx.getRate("GBP", "USD"), 1e-12);
+    }
+  }
+
+  @Test void not_modified_refresh_keeps_rates_and_renews_age() throws Exception {
+    try (MockWebServer provider = new MockWebServer()) {
+      provider.enqueue(new MockResponse().setBody("{\"base\":\"EUR\",\"rates\":{\"USD\":1.10}}").setHeader("ETag", "\"v1\""));
+      provider.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+      provider.start();
+      FXService fx = new FXService(FxProviders.configured(null, provider.url("/etag").toString() + "?from=%s", null, null),
+          Duration.ofMillis(100), 0.5, Duration.ofMinutes(5), null);
+
+      assertEquals(1.10, fx.getRate("EUR", "USD"), 1e-12);
+      Thread.sleep(150);
+      assertTrue(fx.getQuote("EUR", "USD").isStale());
+      awaitRequests(provider, 2);
+      provider.takeRequest();
+      assertEquals("\"v1\"", provider.takeRequest().getHeader("If-None-Match"));
+
+      long deadline = System.currentTimeMillis() + 5000;
+      while (fx.getQuote("EUR", "USD").isStale() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+      RateQuote renewed = fx.getQuote("EUR", "USD");
+      assertFalse(renewed.isStale());
+      assertEquals(1.10, renewed.getRate(), 1e-12);
+      assertTrue(renewed.getAge().toMillis() < 100);
+      assertEquals(0, fx.cacheStats().loadFailures);
+    }
+  }
+
+  @Test void stored_rates_survive_a_restart_and_serve_history_locally() throws Exception {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("fx-store.db"));
+    try (MockWebServer provider = new MockWebServer()) {
+      provider.enqueue(new MockResponse().setBody("{\"base\":\"EUR\",\"date\":\"2025-09-01\",\"rates\":{\"USD\":1.10,\"GBP\":0.85}}"));
+      provider.enqueue(new MockResponse().setBody("{\"base\":\"EUR\",\"start_date\":\"2024-03-01\",\"end_date\":\"2024-03-04\","
+          + "\"rates\":{\"2024-03-01\":{\"USD\":1.08,\"GBP\":0.86},\"2024-03-04\":{\"USD\":1.09,\"GBP\":0.855}}}"));
+      provider.start();
+      FxProvider frankfurter = new FrankfurterProvider(provider.url("/").toString());
+      FxRateDAO store = new FxRateDAO();
+
+      FXService first = new FXService(frankfurter, Duration.ofMinutes(30), 0.8, Duration.ofHours(1), store);
+      assertEquals(1.10, first.getRate("EUR", "USD"), 1e-12);
+      long deadline = System.currentTimeMillis() + 5000;
+      while (store.count() < 2 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+      FXService restarted = new FXService(frankfurter, Duration.ofMinutes(30), 0.8, Duration.ofHours(1), store);
+      assertEquals(0.85 / 1.10, restarted.getRate("USD", "GBP"), 1e-12);
+      assertEquals(1, provider.getRequestCount());
+
+      assertEquals(4, restarted.backfill("EUR", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 4)).get(5, TimeUnit.SECONDS));
+      assertEquals("/latest?from=EUR", provider.takeRequest().getPath());
+      assertEquals("/2024-03-01..2024-03-04?from=EUR", provider.takeRequest().getPath());
+      assertEquals(0, restarted.backfill("EUR", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 4)).get(5, TimeUnit.SECONDS));
+
+      RateQuote sunday = restarted.getQuoteOn("GBP", "USD", LocalDate.of(2024, 3, 3)); // falls back to Friday
+      assertEquals(1.08 / 0.86, sunday.getRate(), 1e-12);
+      assertEquals(LocalDate.of(2024, 3, 1), LocalDate.ofInstant(sunday.getAsOf(), ZoneOffset.UTC));
+      assertEquals(1.09, restarted.getQuoteOn("EUR", "USD", LocalDate.of(2024, 3, 4)).getRate(), 1e-12);
+      assertEquals(2, provider.getRequestCount());
+    } finally {
+      System.clearProperty("HIVEFI_DB_URL");
+    }
+  }
+
+  private static void awaitRequests(MockWebServer server, int n) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (server.getRequestCount() < n && System.currentTimeMillis() < deadline) Thread.sleep(10);
+    assertEquals(n, server.getRequestCount());
+  }
+}
@@ -0,0 +1,89 @@
+package com.hivefi.services;
+
+import com.hivefi.db.ExpenseDAO;
+import com.hivefi.db.TransactionDAO;
+import com.hivefi.models.Expense;
+import com.hivefi.models.Transaction;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerWriterTest {
+  @TempDir static Path tmp;
+  @BeforeEach void setDb() {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("writer_test.db"));
+  }
+
+  @Test void concurrent_writes_share_batches_and_keep_chain() {
+    try (LedgerService ledger = new LedgerService(new ExpenseDAO())) {
+      List<CompletableFuture<Expense>> futures = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        futures.add(ledger.recordExpenseAsync("Food", "USD", 1.0 + i, "item " + i, "01/09/2025", "req-" + i));
+      }
+      CompletableFuture<Expense> dup = ledger.recordExpenseAsync("Food", "USD", 5.0, "dup", "01/09/2025", "req-7");
+      futures.forEach(CompletableFuture::join);
+      CompletionException ex = assertThrows(CompletionException.class, dup::join);
+      assertInstanceOf(IllegalStateException.class, ex.getCause());
+
+      assertEquals(200, ledger.count());
+      List<Transaction> txs = ledger.transactions();
+      assertEquals(200, txs.size());
+      String prev = "";
+      for (Transaction t : txs) {
+        assertEquals(prev, t.getPrevHash());
+        prev = t.getTxHash();
+      }
+    }
+  }
+
+  @Test void writer_rebuilds_batch_when_another_writer_moved_the_head() {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("writer_conflict.db"));
+    try (LedgerService ledger = new LedgerService(new ExpenseDAO())) {
+      ledger.recordExpense("Food", "USD", 3.0, "before", "01/09/2025", null);
+      TransactionDAO outsider = new TransactionDAO();
+      outsider.append(new Transaction(Transaction.Action.CREATE,
+          new Expense("Bills", "USD", 9.0, "outside", "01/09/2025"), outsider.lastHash()));
+
+      ledger.recordExpense("Food", "USD", 4.0, "after", "01/09/2025", null);
+      assertTrue(ledger.verifyChain().isOk());
+      List<Transaction> txs = ledger.transactions();
+      assertEquals("outside", txs.get(txs.size() - 2).getDescription());
+      assertEquals("after", txs.get(txs.size() - 1).getDescription());
+    }
+  }
+
+  @Test void writes_racing_close_all_complete() throws Exception {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("writer_close.db"));
+    ExpenseDAO dao = new ExpenseDAO();
+    for (int round = 0; round < 20; round++) {
+      LedgerWriter writer = new LedgerWriter(dao, new TransactionDAO());
+      List<CompletableFuture<Expense>> futures = new ArrayList<>();
+      CountDownLatch started = new CountDownLatch(1);
+      Thread submitter = new Thread(() -> {
+        started.countDown();
+        for (int i = 0; i < 200; i++) {
+          CompletableFuture<Expense> f = writer.submit(new Expense("Food", "USD", 1.0, "race", "01/09/2025"), null);
+          synchronized (futures) { futures.add(f); }
+        }
+      });
+      submitter.start();
+      started.await();
+      writer.close();
+      submitter.join();
+      for (CompletableFuture<Expense> f : futures) {
+        try {
+          f.get(5, TimeUnit.SECONDS);
+        } catch (java.util.concurrent.ExecutionException closed) {
+          assertInstanceOf(IllegalStateException.class, closed.getCause());
+        }
+      }
+    }
+  }
+}
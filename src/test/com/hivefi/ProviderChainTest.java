@@ -0,0 +1,87 @@
+package com.hivefi.services;
+
+import com.hivefi.services.fx.FxProvider;
+import com.hivefi.services.fx.FxProviders;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.*;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderChainTest {
+
+  private static FxProvider pairs(MockWebServer server) {
+    return FxProviders.configured(server.url("/convert").toString() + "?from=%s&to=%s", null, null, null);
+  }
+
+  private static FXService service(ProviderChain chain) {
+    return new FXService(chain, Duration.ofMinutes(10), 0.8, Duration.ZERO, null);
+  }
+
+  @Test void failing_primary_fails_over_to_the_next_provider() throws Exception {
+    try (MockWebServer primary = new MockWebServer(); MockWebServer backup = new MockWebServer()) {
+      primary.enqueue(new MockResponse().setResponseCode(503));
+      backup.enqueue(new MockResponse().setBody("{\"result\":1.25}"));
+      FXService fx = service(new ProviderChain(List.of(pairs(primary), pairs(backup)), 5, Duration.ofSeconds(30), Duration.ofSeconds(5)));
+
+      assertEquals(1.25, fx.getRate("GBP", "USD"), 1e-12);
+      assertEquals(1, primary.getRequestCount());
+      assertEquals(1, backup.getRequestCount());
+    }
+  }
+
+  @Test void slow_primary_is_hedged_and_the_faster_answer_wins() throws Exception {
+    try (MockWebServer primary = new MockWebServer(); MockWebServer backup = new MockWebServer()) {
+      primary.enqueue(new MockResponse().setBody("{\"result\":1.10}").setHeadersDelay(3, TimeUnit.SECONDS));
+      backup.enqueue(new MockResponse().setBody("{\"result\":1.20}"));
+      FXService fx = service(new ProviderChain(List.of(pairs(primary), pairs(backup)), 5, Duration.ofSeconds(30), Duration.ofMillis(50)));
+
+      long t0 = System.nanoTime();
+      assertEquals(1.20, fx.getRate("EUR", "USD"), 1e-12);
+      assertTrue(System.nanoTime() - t0 < TimeUnit.SECONDS.toNanos(2), "answered without waiting for the slow provider");
+      assertEquals(1, primary.getRequestCount());
+      assertEquals(1, backup.getRequestCount());
+      assertEquals(0, fx.cacheStats().loadFailures);
+    }
+  }
+
+  @Test void open_breaker_skips_the_provider_until_a_half_open_probe_succeeds() throws Exception {
+    try (MockWebServer primary = new MockWebServer(); MockWebServer backup = new MockWebServer()) {
+      FxProvider first = pairs(primary);
+      ProviderChain chain = new ProviderChain(List.of(first, pairs(backup)), 2, Duration.ofMillis(200), Duration.ofSeconds(5));
+      FXService fx = service(chain);
+      primary.enqueue(new MockResponse().setResponseCode(503));
+      primary.enqueue(new MockResponse().setResponseCode(503));
+      for (int i = 0; i < 4; i++) backup.enqueue(new MockResponse().setBody("{\"result\":2.0}"));
+
+      fx.getRate("USD", "AAA");
+      fx.getRate("USD", "BBB");
+      assertEquals(ProviderChain.State.OPEN, chain.state(first));
+      fx.getRate("USD", "CCC");
+      assertEquals(2, primary.getRequestCount(), "no request while the circuit is open");
+      assertEquals(3, backup.getRequestCount());
+
+      Thread.sleep(250);
+      primary.enqueue(new MockResponse().setBody("{\"result\":3.0}"));
+      assertEquals(3.0, fx.getRate("USD", "DDD"), 1e-12);
+      assertEquals(3, primary.getRequestCount());
+      assertEquals(ProviderChain.State.CLOSED, chain.state(first));
+    }
+  }
+
+  @Test void fails_fast_when_every_circuit_is_open() throws Exception {
+    try (MockWebServer only = new MockWebServer()) {
+      FxProvider provider = pairs(only);
+      FXService fx = service(new ProviderChain(List.of(provider), 1, Duration.ofMinutes(1), Duration.ofSeconds(5)));
+      only.enqueue(new MockResponse().setResponseCode(500));
+
+      RuntimeException first = assertThrows(RuntimeException.class, () -> fx.getRate("USD", "JPY"));
+      assertTrue(first.getMessage().contains("FX HTTP 500"));
+      RuntimeException second = assertThrows(RuntimeException.class, () -> fx.getRate("USD", "CHF"));
+      assertTrue(second.getMessage().contains("circuit open"));
+      assertEquals(1, only.getRequestCount());
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.hivefi.services;
+
+import com.hivefi.services.fx.FxProviders;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateWarmerTest {
+
+  private static FXService pairService(MockWebServer server, Duration ttl) {
+    return new FXService(FxProviders.configured(server.url("/convert").toString() + "?from=%s&to=%s", null, null, null),
+        ttl, 0.5, Duration.ZERO, null);
+  }
+
+  @Test void configured_pair_is_fetched_before_the_first_read() throws Exception {
+    try (MockWebServer provider = new MockWebServer()) {
+      provider.enqueue(new MockResponse().setBody("{\"result\":1.25}"));
+      FXService fx = pairService(provider, Duration.ofMinutes(10));
+      fx.startWarmup(List.of("gbp->usd"), false, Duration.ofMillis(50), 60);
+      try {
+        awaitRequests(provider, 1);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (fx.lastRefreshed().isEmpty() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+        Map<String, Instant> refreshed = fx.lastRefreshed();
+        assertEquals(List.of("GBP/USD"), List.copyOf(refreshed.keySet()));
+        assertEquals(1.25, fx.getRate("GBP", "USD"), 1e-12);
+        assertEquals(1.0 / 1.25, fx.getRate("USD", "GBP"), 1e-12);
+        Thread.sleep(200);
+        assertEquals(1, provider.getRequestCount(), "fresh entries are not refetched");
+      } finally {
+        fx.stopWarmup();
+      }
+    }
+  }
+
+  @Test void pairs_read_often_are_learned_and_kept_warm() throws Exception {
+    try (MockWebServer provider = new MockWebServer()) {
+      for (int i = 0; i < 50; i++) provider.enqueue(new MockResponse().setBody("{\"result\":" + (1.0 + i / 100.0) + "}"));
+      FXService fx = pairService(provider, Duration.ofMillis(200));
+      fx.startWarmup(List.of(), true, Duration.ofMillis(50), 6000);
+      try {
+        for (int i = 0; i < 10; i++) fx.getRate("EUR", "CHF");
+        fx.getRate("EUR", "SEK"); // read once: not hot
+        int before = provider.getRequestCount();
+        assertEquals(2, before);
+
+        Thread.sleep(600); // several TTLs with no reads
+        assertTrue(fx.lastRefreshed().containsKey("EUR/CHF"));
+        assertFalse(fx.lastRefreshed().containsKey("EUR/SEK"));
+        assertTrue(provider.getRequestCount() > before, "refreshed in the background");
+        Instant at = fx.lastRefreshed().get("EUR/CHF");
+        assertTrue(Duration.between(at, Instant.now()).toMillis() < 200);
+      } finally {
+        fx.stopWarmup();
+      }
+    }
+  }
+
+  @Test void warm_up_requests_respect_the_rate_limit() throws Exception {
+    try (MockWebServer provider = new MockWebServer()) {
+      for (int i = 0; i < 10; i++) provider.enqueue(new MockResponse().setBody("{\"result\":2.0}"));
+      FXService fx = pairService(provider, Duration.ofMinutes(10));
+      fx.startWarmup(List.of("USD/AAA", "USD/BBB", "USD/CCC", "USD/DDD", "USD/EEE"), false, Duration.ofMillis(20), 2);
+      try {
+        awaitRequests(provider, 2);
+        Thread.sleep(300);
+        assertEquals(2, provider.getRequestCount());
+        assertEquals(2, fx.lastRefreshed().size());
+      } finally {
+        fx.stopWarmup();
+      }
+    }
+  }
+
+  private static void awaitRequests(MockWebServer server, int n) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (server.getRequestCount() < n && System.currentTimeMillis() < deadline) Thread.sleep(10);
+    assertEquals(n, server.getRequestCount());
+  }
+}
@@ -0,0 +1,53 @@
+package com.hivefi.db;
+
+import com.hivefi.models.Expense;
+import com.hivefi.models.Money;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmountMigrationTest {
+  @TempDir static Path tmp;
+
+  @Test void real_amounts_become_minor_units() throws Exception {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("legacy.db"));
+    try (Connection c = DatabaseManager.getConnection(); Statement st = c.createStatement()) {
+      st.execute("CREATE TABLE expenses (id TEXT PRIMARY KEY, category TEXT NOT NULL, currency TEXT NOT NULL, "
+          + "amount REAL NOT NULL, description TEXT, date_display TEXT NOT NULL, date_iso TEXT NOT NULL)");
+      st.execute("CREATE INDEX idx_expenses_cat_cur_amt ON expenses(category, currency, amount)");
+      st.execute("INSERT INTO expenses VALUES ('a','Food','USD',10.1,'x','01/09/2025','2025-09-01')");
+      st.execute("INSERT INTO expenses VALUES ('b','Food','JPY',1500.0,'y','02/09/2025','2025-09-02')");
+    }
+
+    ExpenseDAO dao = new ExpenseDAO();
+    Expense a = dao.findById("a").orElseThrow();
+    Expense b = dao.findById("b").orElseThrow();
+    assertEquals(Money.ofMinor(1010, "USD"), a.getMoney());
+    assertEquals(Money.ofMinor(1500, "JPY"), b.getMoney());
+    assertEquals(Money.ofMinor(1010, "USD"), dao.sumByCategoryAndCurrency(null, null).get("Food").get("USD"));
+
+    try (Connection c = DatabaseManager.getConnection()) {
+      assertFalse(AmountMigration.hasColumn(c, "expenses", "amount"));
+    }
+    new ExpenseDAO(); // second run is a no-op
+  }
+
+  @Test void amounts_finer_than_the_currency_are_refused_and_left_alone() throws Exception {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("legacy_fine.db"));
+    try (Connection c = DatabaseManager.getConnection(); Statement st = c.createStatement()) {
+      st.execute("CREATE TABLE transactions (id TEXT PRIMARY KEY, action TEXT NOT NULL, expense_id TEXT NOT NULL, "
+          + "category TEXT, currency TEXT, amount REAL, date_display TEXT, description TEXT, "
+          + "timestamp TEXT NOT NULL, prev_hash TEXT, tx_hash TEXT NOT NULL)");
+      st.execute("INSERT INTO transactions VALUES ('t1','CREATE','e1','Food','USD',12.345,'01/09/2025','x',"
+          + "'2025-09-01T00:00:00Z','','h1')");
+
+      IllegalStateException e = assertThrows(IllegalStateException.class, () -> AmountMigration.toMinorUnits(c, "transactions"));
+      assertTrue(e.getMessage().contains("t1"), e.getMessage());
+      assertTrue(AmountMigration.hasColumn(c, "transactions", "amount"));
+      assertFalse(AmountMigration.hasColumn(c, "transactions", "amount_minor"));
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.hivefi.db;
+
+import com.hivefi.models.Expense;
+import com.hivefi.models.Transaction;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainVerifierTest {
+  @TempDir static Path tmp;
+  static TransactionDAO txDao;
+  static List<Transaction> chain;
+
+  @BeforeAll static void init() {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("chain.db"));
+    txDao = new TransactionDAO();
+    String head = "";
+    for (int i = 0; i < 50; i++) {
+      Expense e = new Expense("Food", i % 2 == 0 ? "USD" : "JPY", 10.25 + i, "café #" + i, "01/09/2025");
+      Transaction t = new Transaction(Transaction.Action.CREATE, e, head);
+      txDao.append(t);
+      head = t.getTxHash();
+    }
+    chain = txDao.findAll();
+  }
+
+  @Test void hash_matches_legacy_string_formula() throws Exception {
+    for (Transaction t : chain) {
+      String payload = "id=" + t.getId() + "|ts=" + t.getTimestamp() + "|action=" + t.getAction()
+          + "|exp=" + t.getExpenseId() + "|cat=" + t.getCategory() + "|cur=" + t.getCurrency()
+          + "|amt=" + t.getAmount() + "|date=" + t.getDate() + "|desc=" + t.getDescription()
+          + "|prev=" + t.getPrevHash();
+      byte[] dig = MessageDigest.getInstance("SHA-256").digest(payload.getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder();
+      for (byte b : dig) sb.append(String.format("%02x", b));
+      assertEquals(sb.toString(), t.getTxHash());
+    }
+  }
+
+  @Test void intact_chain_verifies_with_small_segments() {
+    ChainVerification r = txDao.verifyChain(new ForkJoinPool(3), 7);
+    assertTrue(r.isOk(), r.toString());
+    assertEquals(50, r.getChecked());
+  }
+
+  @Test void tampered_row_is_reported_first() throws Exception {
+    try (Connection c = DatabaseManager.getConnection(); Statement st = c.createStatement()) {
+      st.execute("UPDATE transactions SET amount_minor = amount_minor + 1 WHERE id = '" + chain.get(20).getId() + "'");
+      st.execute("UPDATE transactions SET prev_hash = 'x' WHERE id = '" + chain.get(40).getId() + "'");
+    }
+    try {
+      ChainVerification r = txDao.verifyChain(new ForkJoinPool(3), 7);
+      assertFalse(r.isOk());
+      assertEquals(20, r.getBrokenAtIndex());
+      assertEquals(chain.get(20).getId(), r.getBrokenTxId());
+    } finally {
+      try (Connection c = DatabaseManager.getConnection(); Statement st = c.createStatement()) {
+        st.execute("UPDATE transactions SET amount_minor = amount_minor - 1 WHERE id = '" + chain.get(20).getId() + "'");
+        st.execute("UPDATE transactions SET prev_hash = '" + chain.get(39).getTxHash() + "' WHERE id = '" + chain.get(40).getId() + "'");
+      }
+    }
+  }
+}
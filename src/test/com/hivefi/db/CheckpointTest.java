@@ -0,0 +1,76 @@
+package com.hivefi.db;
+
+import com.hivefi.models.Expense;
+import com.hivefi.models.Transaction;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointTest {
+  @TempDir static Path tmp;
+  static TransactionDAO txDao;
+
+  @BeforeAll static void init() throws Exception {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("checkpoints.db"));
+    System.setProperty("HIVEFI_CHECKPOINT_EVERY", "10");
+    System.setProperty("HIVEFI_CHECKPOINT_KEY", "test-key");
+    txDao = new TransactionDAO();
+    TransactionDAO.ChainHead start = txDao.head(), head = start;
+    Checkpoint none = txDao.checkpoints().last(), last;
+    try (Connection c = DatabaseManager.getConnection()) {
+      c.setAutoCommit(false);
+      for (int i = 0; i < 25; i++) {
+        Transaction t = new Transaction(Transaction.Action.CREATE,
+            new Expense("Food", "USD", 1.5 + i, "item " + i, "01/09/2025"), head.getHash());
+        head = txDao.append(c, head, t);
+      }
+      assertNull(none);
+      last = txDao.checkpointIfDue(c, none, head.getSeq());
+      assertEquals(20, last.getToSeq());
+      assertSame(last, txDao.checkpointIfDue(c, last, head.getSeq()));
+      c.commit();
+    }
+    txDao.advanceHead(start, head);
+    txDao.checkpoints().advance(none, last);
+  }
+
+  @AfterAll static void reset() {
+    System.clearProperty("HIVEFI_CHECKPOINT_EVERY");
+    System.clearProperty("HIVEFI_CHECKPOINT_KEY");
+  }
+
+  @Test void checkpoints_cover_full_ranges_and_chain() {
+    CheckpointDAO cps = txDao.checkpoints();
+    assertTrue(cps.isSigned());
+    List<Checkpoint> all = cps.findAll();
+    assertEquals(2, all.size());
+    assertEquals(1, all.get(0).getFromSeq());
+    assertEquals(10, all.get(0).getToSeq());
+    assertEquals(20, all.get(1).getToSeq());
+    assertEquals("", all.get(0).getPrevHash());
+    assertEquals(all.get(0).getCheckpointHash(), all.get(1).getPrevHash());
+    assertEquals(txDao.findAll().get(19).getTxHash(), all.get(1).getHeadHash());
+    assertEquals(all.get(1).getCheckpointHash(), cps.last().getCheckpointHash());
+    all.forEach(cp -> assertTrue(cps.isAuthentic(cp)));
+    assertFalse(new CheckpointDAO(10, "other-key".getBytes()).isAuthentic(all.get(1)));
+  }
+
+  @Test void incremental_verify_checks_only_the_tail() throws Exception {
+    ChainVerification ok = txDao.verifyChainSinceCheckpoint();
+    assertTrue(ok.isOk(), ok.toString());
+    assertEquals(5, ok.getChecked());
+
+    String victim = txDao.findAll().get(22).getId();
+    try (Connection c = DatabaseManager.getConnection(); Statement st = c.createStatement()) {
+      st.execute("UPDATE transactions SET description = 'edited' WHERE id = '" + victim + "'");
+    }
+    ChainVerification bad = txDao.verifyChainSinceCheckpoint();
+    assertFalse(bad.isOk());
+    assertEquals(victim, bad.getBrokenTxId());
+    assertEquals(22, bad.getBrokenAtIndex());
+  }
+}
@@ -0,0 +1,94 @@
+package com.hivefi.db;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+  @TempDir static Path tmp;
+
+  @Test void reuses_connections_with_pragmas_applied() throws Exception {
+    try (ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + tmp.resolve("pool.db"), 2, 100)) {
+      for (int i = 0; i < 5; i++) {
+        try (Connection c = pool.borrow(); Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA journal_mode")) {
+          assertTrue(rs.next());
+          assertEquals("wal", rs.getString(1).toLowerCase());
+        }
+      }
+      ConnectionPool.Stats s = pool.stats();
+      assertEquals(1, s.open);
+      assertEquals(5, s.borrows);
+      assertEquals(0, s.inUse());
+    }
+  }
+
+  @Test void borrow_times_out_when_exhausted() throws Exception {
+    try (ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + tmp.resolve("pool2.db"), 1, 50)) {
+      Connection held = pool.borrow();
+      try {
+        assertThrows(SQLTimeoutException.class, pool::borrow);
+      } finally {
+        held.close();
+      }
+      assertEquals(1, pool.stats().waits);
+      try (Connection again = pool.borrow()) { assertFalse(again.isClosed()); }
+    }
+  }
+
+  @Test void retired_pool_keeps_lent_connections_until_returned() throws Exception {
+    ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + tmp.resolve("pool3.db"), 2, 50);
+    Connection idle = pool.borrow(), held = pool.borrow();
+    idle.close();
+    pool.retire();
+    assertEquals(1, pool.stats().open);
+    assertThrows(SQLException.class, pool::borrow);
+
+    try (Statement st = held.createStatement(); ResultSet rs = st.executeQuery("SELECT 1")) {
+      assertTrue(rs.next());
+    }
+    held.close();
+    assertEquals(0, pool.stats().open);
+  }
+
+  @Test void switching_database_url_does_not_close_connections_in_use() throws Exception {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("first.db"));
+    try {
+      try (Connection c = DatabaseManager.getConnection()) {
+        System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("second.db"));
+        try (Connection other = DatabaseManager.getConnection()) { assertFalse(other.isClosed()); }
+        try (Statement st = c.createStatement()) {
+          st.execute("CREATE TABLE t (x INTEGER)");
+          st.execute("INSERT INTO t VALUES (1)");
+        }
+      }
+    } finally {
+      System.clearProperty("HIVEFI_DB_URL");
+    }
+  }
+
+  @Test void waiter_opens_a_replacement_when_a_lent_connection_is_discarded() throws Exception {
+    try (ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + tmp.resolve("pool4.db"), 1, 5_000)) {
+      Connection held = pool.borrow();
+      held.unwrap(Connection.class).close(); // broken underneath: it is discarded, not returned
+      CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+        try { return pool.borrow(); } catch (SQLException e) { throw new RuntimeException(e); }
+      });
+      Thread.sleep(100);
+      held.close();
+
+      try (Connection fresh = waiter.get(2, TimeUnit.SECONDS)) { // well inside the 5 s borrow timeout
+        assertFalse(fresh.isClosed());
+      }
+      assertEquals(1, pool.stats().open);
+    }
+  }
+}
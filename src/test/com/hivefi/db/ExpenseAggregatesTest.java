@@ -0,0 +1,52 @@
+package com.hivefi.db;
+
+import com.hivefi.models.Expense;
+import com.hivefi.models.Money;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseAggregatesTest {
+  @TempDir static Path tmp;
+  static ExpenseDAO dao;
+
+  @BeforeAll static void seed() {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("agg_test.db"));
+    dao = new ExpenseDAO();
+    dao.insert(new Expense("Food", "USD", 10.0, "a", "01/09/2025"));
+    dao.insert(new Expense("Food", "USD", 5.5, "b", "15/09/2025"));
+    dao.insert(new Expense("Food", "EUR", 3.0, "c", "02/10/2025"));
+    dao.insert(new Expense("Rent", "USD", 900.0, "d", "01/10/2025"));
+  }
+
+  @Test void counts_and_sums_in_sql() {
+    assertEquals(4, dao.count());
+    assertEquals(2, dao.count(LocalDate.of(2025, 9, 1), LocalDate.of(2025, 9, 30)));
+
+    Map<String, Map<String, Money>> byCat = dao.sumByCategoryAndCurrency(null, null);
+    assertEquals(Money.ofMinor(1550, "USD"), byCat.get("Food").get("USD"));
+    assertEquals(Money.ofMinor(300, "EUR"), byCat.get("Food").get("EUR"));
+    assertEquals(Money.ofMinor(90000, "USD"), byCat.get("Rent").get("USD"));
+
+    Map<YearMonth, Map<String, Money>> byMonth = dao.sumByMonth(LocalDate.of(2025, 10, 1), null);
+    assertEquals(1, byMonth.size());
+    assertEquals(Money.ofMinor(90000, "USD"), byMonth.get(YearMonth.of(2025, 10)).get("USD"));
+  }
+
+  @Test void ranged_breakdown_uses_covering_index() throws Exception {
+    try (Connection c = DatabaseManager.getConnection(); Statement st = c.createStatement();
+         ResultSet rs = st.executeQuery("EXPLAIN QUERY PLAN SELECT category, currency, SUM(amount_minor) FROM expenses "
+             + "WHERE date_iso BETWEEN '2025-09-01' AND '2025-09-30' GROUP BY category, currency")) {
+      StringBuilder plan = new StringBuilder();
+      while (rs.next()) plan.append(rs.getString("detail")).append('\n');
+      assertTrue(plan.toString().contains("COVERING INDEX"), plan.toString());
+    }
+  }
+}
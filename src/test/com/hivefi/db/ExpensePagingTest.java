@@ -0,0 +1,57 @@
+package com.hivefi.db;
+
+import com.hivefi.models.Expense;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpensePagingTest {
+  @TempDir static Path tmp;
+  static ExpenseDAO dao;
+
+  @BeforeAll static void seed() {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("paging_test.db"));
+    dao = new ExpenseDAO();
+    for (int i = 0; i < 53; i++) {
+      // several rows share a date, so the id tiebreaker matters
+      dao.insert(new Expense(i % 2 == 0 ? "Food" : "Rent", "USD", 1.0 + i, "e" + i,
+          String.format("%02d/09/2025", 1 + i / 5)));
+    }
+  }
+
+  @Test void pages_cover_every_row_once_in_order() {
+    Set<String> seen = new HashSet<>();
+    String token = null;
+    String lastDate = null;
+    int pages = 0;
+    do {
+      Page<Expense> p = dao.pageAll(token, 10);
+      for (Expense e : p.getItems()) {
+        assertTrue(seen.add(e.getID()), "duplicate " + e.getID());
+        String iso = e.getDate().substring(6) + e.getDate().substring(3, 5) + e.getDate().substring(0, 2);
+        if (lastDate != null) assertTrue(iso.compareTo(lastDate) <= 0);
+        lastDate = iso;
+      }
+      token = p.getNextToken();
+      pages++;
+    } while (token != null);
+    assertEquals(53, seen.size());
+    assertEquals(6, pages);
+  }
+
+  @Test void category_pages_and_bad_token() {
+    int total = 0;
+    String token = null;
+    do {
+      Page<Expense> p = dao.pageByCategory("Food", token, 7);
+      p.getItems().forEach(e -> assertEquals("Food", e.getCategory()));
+      total += p.getItems().size();
+      token = p.getNextToken();
+    } while (token != null);
+    assertEquals(27, total);
+    assertThrows(IllegalArgumentException.class, () -> dao.pageAll("not-a-token", 5));
+  }
+}
@@ -0,0 +1,41 @@
+package com.hivefi.db;
+
+import com.hivefi.models.RateTable;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FxRateDAOTest {
+  @TempDir static Path tmp;
+
+  @BeforeAll static void setup() {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("fx.db"));
+  }
+  @AfterAll static void cleanup() { System.clearProperty("HIVEFI_DB_URL"); }
+
+  @Test void stores_tables_by_date_and_finds_the_last_business_day() {
+    FxRateDAO dao = new FxRateDAO();
+    Instant at = Instant.parse("2024-03-05T10:00:00Z");
+    LocalDate fri = LocalDate.of(2024, 3, 1), mon = LocalDate.of(2024, 3, 4);
+    assertEquals(4, dao.saveAll(List.of(
+        new RateTable("EUR", Map.of("USD", 1.08, "GBP", 0.86), at, fri),
+        new RateTable("EUR", Map.of("USD", 1.09, "GBP", 0.855), at, mon))));
+    dao.save(new RateTable("eur", Map.of("USD", 1.081), at, fri)); // upsert
+
+    assertEquals(4, dao.count());
+    assertEquals(1.081, dao.find("EUR", fri).orElseThrow().rate("EUR", "USD"), 1e-12);
+    assertEquals(fri, dao.findOnOrBefore("EUR", LocalDate.of(2024, 3, 3), 7).orElseThrow().getDate());
+    assertTrue(dao.findOnOrBefore("EUR", LocalDate.of(2024, 2, 29), 7).isEmpty());
+    assertTrue(dao.findOnOrBefore("EUR", LocalDate.of(2024, 3, 20), 7).isEmpty());
+    assertEquals(mon, dao.latest("EUR").orElseThrow().getDate());
+    assertEquals(0.855, dao.latest("EUR", "GBP").orElseThrow().rate("EUR", "GBP"), 1e-12);
+    assertEquals(at, dao.latest("EUR").orElseThrow().getFetchedAt());
+    assertEquals(List.of(fri, mon), List.copyOf(dao.datesStored("EUR", fri, mon)));
+    assertTrue(dao.latest("USD").isEmpty());
+  }
+}
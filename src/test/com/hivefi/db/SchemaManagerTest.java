@@ -0,0 +1,55 @@
+package com.hivefi.db;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaManagerTest {
+  @TempDir static Path tmp;
+
+  @AfterAll static void clearDb() { System.clearProperty("HIVEFI_DB_URL"); }
+
+  @Test void fresh_database_is_migrated_once_to_the_latest_version() throws Exception {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("fresh.db"));
+    try (Connection c = DatabaseManager.getConnection()) {
+      assertEquals(0, SchemaManager.version(c));
+      assertEquals(SchemaManager.LATEST, SchemaManager.migrate(c));
+      assertEquals(SchemaManager.LATEST, SchemaManager.version(c));
+      assertEquals(0, SchemaManager.migrate(c));
+      for (String table : new String[]{"expenses", "processed_requests", "transactions", "tx_checkpoints",
+          "tx_archive_segments", "fx_rates"}) {
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name = '" + table + "'")) {
+          assertTrue(rs.next(), table);
+        }
+      }
+    }
+  }
+
+  @Test void unversioned_database_is_upgraded_and_keeps_its_rows() throws Exception {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("unversioned.db"));
+    try (Connection c = DatabaseManager.getConnection(); Statement st = c.createStatement()) {
+      st.execute("CREATE TABLE expenses (id TEXT PRIMARY KEY, category TEXT NOT NULL, currency TEXT NOT NULL, "
+          + "amount_minor INTEGER NOT NULL, description TEXT, date_display TEXT NOT NULL, date_iso TEXT NOT NULL)");
+      st.execute("INSERT INTO expenses VALUES ('a','Food','USD',1010,'x','01/09/2025','2025-09-01')");
+    }
+
+    ExpenseDAO dao = new ExpenseDAO();
+    assertEquals(1, dao.count());
+    try (Connection c = DatabaseManager.getConnection()) {
+      assertEquals(SchemaManager.LATEST, SchemaManager.version(c));
+    }
+  }
+
+  @Test void newer_schema_is_refused() throws Exception {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("future.db"));
+    try (Connection c = DatabaseManager.getConnection(); Statement st = c.createStatement()) {
+      st.execute("PRAGMA user_version = " + (SchemaManager.LATEST + 1));
+      assertThrows(IllegalStateException.class, () -> SchemaManager.migrate(c));
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package com.hivefi.db;
+
+import com.hivefi.models.Expense;
+import com.hivefi.models.Transaction;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class TransactionArchiveTest {
+  @TempDir static Path tmp;
+  static TransactionDAO txDao;
+  static List<Transaction> before;
+  static Expense tracked;
+
+  @BeforeAll static void init() throws Exception {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("archive.db"));
+    System.setProperty("HIVEFI_ARCHIVE_DIR", tmp.resolve("segments").toString());
+    System.setProperty("HIVEFI_ARCHIVE_SEGMENT_ROWS", "8");
+    System.setProperty("HIVEFI_CHECKPOINT_EVERY", "10");
+    txDao = new TransactionDAO();
+    tracked = new Expense("Hotel", "EUR", 120.0, "inn", "03/09/2025");
+    for (int i = 0; i < 35; i++) {
+      Expense e = i % 12 == 1 ? tracked : new Expense("Food", "USD", 1.0 + i, "item " + i, "01/09/2025");
+      txDao.append(new Transaction(Transaction.Action.CREATE, e, txDao.lastHash()));
+    }
+    try (Connection c = DatabaseManager.getConnection()) {
+      txDao.checkpointIfDue(c);
+    }
+    before = txDao.findAll();
+    assertEquals(30, txDao.archiveOlderThan(Duration.ZERO));
+  }
+
+  @AfterAll static void reset() {
+    System.clearProperty("HIVEFI_ARCHIVE_DIR");
+    System.clearProperty("HIVEFI_ARCHIVE_SEGMENT_ROWS");
+    System.clearProperty("HIVEFI_CHECKPOINT_EVERY");
+  }
+
+  static List<String> ids(List<Transaction> txs) {
+    return txs.stream().map(Transaction::getId).collect(Collectors.toList());
+  }
+
+  @Test void rows_moved_to_segment_files_up_to_last_checkpoint() throws Exception {
+    assertEquals(30, txDao.archive().archivedThrough());
+    assertEquals(4, txDao.archive().segmentCount());
+    try (Stream<Path> files = Files.list(tmp.resolve("segments"))) {
+      assertEquals(4, files.filter(p -> p.toString().endsWith(".seg")).count());
+    }
+    try (Connection c = DatabaseManager.getConnection(); Statement st = c.createStatement();
+         ResultSet rs = st.executeQuery("SELECT COUNT(*), MIN(seq) FROM transactions")) {
+      rs.next();
+      assertEquals(5, rs.getInt(1));
+      assertEquals(31, rs.getInt(2));
+    }
+    assertEquals(0, txDao.archiveOlderThan(Duration.ZERO)); // nothing more is sealed by a checkpoint
+  }
+
+  @Test void reads_and_verification_span_both_tiers() {
+    assertEquals(ids(before), ids(txDao.findAll()));
+    ChainVerification full = txDao.verifyChain();
+    assertTrue(full.isOk(), full.toString());
+    assertEquals(35, full.getChecked());
+    assertTrue(txDao.verifyChainSinceCheckpoint().isOk());
+
+    List<Transaction> history = txDao.findByExpense(tracked.getID());
+    assertEquals(3, history.size());
+    assertEquals(ids(before.stream().filter(t -> t.getExpenseId().equals(tracked.getID())).collect(Collectors.toList())), ids(history));
+
+    List<Transaction> paged = new ArrayList<>();
+    String token = null;
+    do {
+      Page<Transaction> p = txDao.page(token, 7);
+      paged.addAll(p.getItems());
+      token = p.getNextToken();
+    } while (token != null);
+    assertEquals(ids(before), ids(paged));
+
+    Instant from = Instant.parse(before.get(5).getTimestamp());
+    try (Stream<Transaction> s = txDao.streamByTimestampRange(from, null)) {
+      assertEquals(ids(before.subList(5, 35)).size(), s.count());
+    }
+  }
+
+  @Test void segment_block_and_expense_indexes() throws Exception {
+    List<SeqRow> rows = new ArrayList<>();
+    Expense rare = new Expense("Gifts", "JPY", 3000.0, "rare", "05/09/2025");
+    String prev = "";
+    for (int i = 1; i <= 1300; i++) {
+      Expense e = i == 777 ? rare : new Expense("Food", "USD", i, "bulk " + i, "01/09/2025");
+      Transaction t = new Transaction(Transaction.Action.CREATE, e, prev);
+      rows.add(new SeqRow(1000 + i, t));
+      prev = t.getTxHash();
+    }
+    Path file = tmp.resolve("unit.seg");
+    TxSegment.write(file, rows);
+    TxSegment seg = TxSegment.open(file);
+    assertEquals(1001, seg.fromSeq());
+    assertEquals(2300, seg.toSeq());
+    assertEquals(500, seg.stream(1600, 2100).count());
+    assertEquals(1601, seg.stream(1600, 2100).findFirst().orElseThrow().seq);
+    assertEquals(rows.get(1199).tx.getTxHash(), seg.hashAt(2200).orElseThrow());
+    List<SeqRow> hits = seg.findByExpense(rare.getID());
+    assertEquals(1, hits.size());
+    assertEquals(1777, hits.get(0).seq);
+    assertTrue(hits.get(0).tx.hasValidHash());
+  }
+
+  @Test @Order(Integer.MAX_VALUE) void appends_continue_from_live_head() {
+    Transaction next = new Transaction(Transaction.Action.CREATE,
+        new Expense("Food", "USD", 2.0, "later", "04/09/2025"), txDao.lastHash());
+    txDao.append(next);
+    assertTrue(txDao.verifyChain().isOk());
+    assertEquals(next.getId(), txDao.findAll().get(35).getId());
+  }
+}
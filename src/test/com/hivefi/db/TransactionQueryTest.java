@@ -0,0 +1,79 @@
+package com.hivefi.db;
+
+import com.hivefi.models.Expense;
+import com.hivefi.models.Transaction;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionQueryTest {
+  @TempDir static Path tmp;
+  static TransactionDAO txDao;
+  static List<Transaction> all;
+  static Expense tracked;
+
+  @BeforeAll static void init() {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("tx_queries.db"));
+    txDao = new TransactionDAO();
+    tracked = new Expense("Travel", "EUR", 40.0, "train", "02/09/2025");
+    for (int i = 0; i < 45; i++) {
+      Expense e = i % 10 == 3 ? tracked : new Expense("Food", "USD", 1.0 + i, "item " + i, "01/09/2025");
+      Transaction.Action a = e == tracked && i > 3 ? Transaction.Action.UPDATE : Transaction.Action.CREATE;
+      txDao.append(new Transaction(a, e, txDao.lastHash()));
+    }
+    all = txDao.findAll();
+  }
+
+  @Test void pages_walk_the_whole_log_in_chain_order() {
+    List<String> seen = new ArrayList<>();
+    String token = null;
+    int pages = 0;
+    do {
+      Page<Transaction> p = txDao.page(token, 20);
+      p.getItems().forEach(t -> seen.add(t.getId()));
+      token = p.getNextToken();
+      pages++;
+    } while (token != null);
+    assertEquals(3, pages);
+    assertEquals(all.stream().map(Transaction::getId).collect(Collectors.toList()), seen);
+    assertThrows(IllegalArgumentException.class, () -> txDao.page("not-a-token", 20));
+  }
+
+  @Test void expense_history_and_timestamp_range() {
+    List<Transaction> history = txDao.findByExpense(tracked.getID());
+    assertEquals(5, history.size());
+    assertEquals(Transaction.Action.CREATE, history.get(0).getAction());
+    history.forEach(t -> assertEquals(tracked.getID(), t.getExpenseId()));
+
+    Instant from = Instant.parse(all.get(10).getTimestamp());
+    try (Stream<Transaction> s = txDao.streamByTimestampRange(from, null)) {
+      List<Transaction> tail = s.collect(Collectors.toList());
+      assertFalse(tail.isEmpty());
+      tail.forEach(t -> assertTrue(Instant.parse(t.getTimestamp()).compareTo(from) >= 0));
+    }
+  }
+
+  @Test void lookups_use_indexes() throws Exception {
+    assertPlanUses("SELECT * FROM transactions WHERE expense_id = 'x' ORDER BY seq", "idx_tx_expense");
+    assertPlanUses("SELECT * FROM transactions WHERE timestamp >= 'a' AND timestamp < 'b' ORDER BY timestamp", "idx_tx_timestamp");
+    assertPlanUses("SELECT * FROM transactions WHERE seq > 100 ORDER BY seq LIMIT 21", "idx_tx_seq");
+  }
+
+  private static void assertPlanUses(String sql, String index) throws Exception {
+    try (Connection c = DatabaseManager.getConnection(); Statement st = c.createStatement();
+         ResultSet rs = st.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+      StringBuilder plan = new StringBuilder();
+      while (rs.next()) plan.append(rs.getString("detail")).append('\n');
+      assertTrue(plan.toString().contains(index), plan.toString());
+    }
+  }
+}
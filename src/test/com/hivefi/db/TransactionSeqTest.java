@@ -0,0 +1,104 @@
+package com.hivefi.db;
+
+import com.hivefi.models.Expense;
+import com.hivefi.models.Transaction;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionSeqTest {
+  @TempDir Path tmp;
+
+  static Transaction tx(String prev, int i) {
+    return new Transaction(Transaction.Action.CREATE, new Expense("Food", "USD", 2.0 + i, "t" + i, "01/09/2025"), prev);
+  }
+
+  @Test void legacy_table_gets_seq_from_insertion_order() throws Exception {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("legacy_tx.db"));
+    Transaction a = tx("", 1), b = tx(a.getTxHash(), 2);
+    try (Connection c = DatabaseManager.getConnection(); Statement st = c.createStatement()) {
+      st.execute("CREATE TABLE transactions (id TEXT PRIMARY KEY, action TEXT NOT NULL, expense_id TEXT NOT NULL, "
+          + "category TEXT, currency TEXT, amount_minor INTEGER, date_display TEXT, description TEXT, "
+          + "timestamp TEXT NOT NULL, prev_hash TEXT, tx_hash TEXT NOT NULL)");
+      for (Transaction t : List.of(a, b)) {
+        // identical timestamps: the old ORDER BY timestamp could not tell these apart
+        st.execute("INSERT INTO transactions VALUES ('" + t.getId() + "','CREATE','" + t.getExpenseId() + "','Food','USD',"
+            + t.getAmountMinor() + ",'" + t.getDate() + "','" + t.getDescription() + "','" + t.getTimestamp() + "','"
+            + t.getPrevHash() + "','" + t.getTxHash() + "')");
+      }
+    }
+    TransactionDAO dao = new TransactionDAO();
+    assertEquals(2, dao.head().getSeq());
+    assertEquals(b.getTxHash(), dao.lastHash());
+    assertEquals(List.of(a.getId(), b.getId()), dao.findAll().stream().map(Transaction::getId).toList());
+    assertTrue(dao.verifyChain().isOk());
+  }
+
+  @Test void stale_head_is_detected_and_reloaded() {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("two_writers.db"));
+    TransactionDAO first = new TransactionDAO();
+    TransactionDAO second = new TransactionDAO();
+
+    Transaction t1 = tx(first.lastHash(), 1);
+    first.append(t1);
+    assertEquals(1, first.head().getSeq());
+    assertEquals(0, second.head().getSeq()); // still cached from startup
+
+    Transaction stale = tx(second.lastHash(), 2);
+    try (Connection c = DatabaseManager.getConnection()) {
+      assertThrows(ChainConflictException.class, () -> second.append(c, second.head(), stale));
+      assertThrows(IllegalArgumentException.class, () -> second.append(c, second.head(), tx("not-the-head", 4)));
+    } catch (Exception e) {
+      fail(e);
+    }
+    assertEquals(t1.getTxHash(), second.lastHash());
+
+    Transaction t2 = tx(second.lastHash(), 3);
+    second.append(t2);
+    assertEquals(2, second.head().getSeq());
+    assertTrue(second.verifyChain().isOk());
+  }
+
+  @Test void concurrent_appends_through_the_public_entry_point_keep_one_chain() throws Exception {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("concurrent_append.db"));
+    TransactionDAO dao = new TransactionDAO();
+    int perThread = 20;
+    CountDownLatch go = new CountDownLatch(1);
+    List<Throwable> errors = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int n = 0; n < 2; n++) {
+      int base = n * perThread;
+      Thread th = new Thread(() -> {
+        try {
+          go.await();
+          for (int i = 0; i < perThread; i++) {
+            while (true) {
+              try {
+                dao.append(tx(dao.lastHash(), base + i));
+                break;
+              } catch (ChainConflictException lost) {
+                // the other thread extended the chain first; rebuild on the new head
+              }
+            }
+          }
+        } catch (Throwable e) {
+          synchronized (errors) { errors.add(e); }
+        }
+      });
+      th.start();
+      threads.add(th);
+    }
+    go.countDown();
+    for (Thread th : threads) th.join();
+
+    assertEquals(List.of(), errors);
+    assertEquals(2L * perThread, dao.head().getSeq());
+    assertTrue(dao.verifyChain().isOk(), dao.verifyChain().toString());
+  }
+}
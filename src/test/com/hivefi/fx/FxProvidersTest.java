@@ -0,0 +1,75 @@
+package com.hivefi.services.fx;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.hivefi.models.RateTable;
+import org.junit.jupiter.api.*;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FxProvidersTest {
+  private static final JsonFactory JSON = new JsonFactory();
+
+  private static JsonParser json(String body) throws Exception {
+    return JSON.createParser(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test void named_adapters_build_their_urls() {
+    assertEquals("https://api.frankfurter.app/latest?from=EUR", FxProviders.named("frankfurter", null, null).tableUrl("EUR"));
+    assertEquals("http://x/2024-01-01..2024-01-31?from=USD",
+        FxProviders.named("frankfurter", "http://x/", null).seriesUrl("USD", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)));
+    assertEquals("https://v6.exchangerate-api.com/v6/k/pair/GBP/USD", FxProviders.named("exchangerate-api", null, "k").pairUrl("GBP", "USD"));
+    assertFalse(FxProviders.named("currencyapi", null, "k").supportsSeries());
+    assertTrue(FxProviders.configured(null, null, null, null) instanceof FrankfurterProvider);
+    assertFalse(FxProviders.configured("http://x/convert?from=%s&to=%s", null, null, null).supportsTables());
+    assertEquals("http://x/convert?from=GBP&to=USD&amount=1", FxProviders.configured("http://x/convert", null, null, null).pairUrl("GBP", "USD"));
+    assertThrows(IllegalArgumentException.class, () -> FxProviders.named("nope", null, null));
+  }
+
+  @Test void each_adapter_reads_its_own_table_shape() throws Exception {
+    RateTable f = new FrankfurterProvider().parseTable(
+        json("{\"amount\":1.0,\"base\":\"EUR\",\"date\":\"2025-09-01\",\"rates\":{\"USD\":1.1,\"GBP\":0.85}}"), "EUR");
+    assertEquals(1.1, f.rate("EUR", "USD"), 1e-12);
+    assertEquals(LocalDate.of(2025, 9, 1), f.getDate());
+
+    RateTable h = new ExchangeRateHostProvider("http://x", "k").parseTable(
+        json("{\"success\":true,\"source\":\"USD\",\"quotes\":{\"USDEUR\":0.9,\"USDGBP\":0.8}}"), "USD");
+    assertEquals(0.8 / 0.9, h.rate("EUR", "GBP"), 1e-12);
+
+    RateTable a = new ExchangeRateApiProvider("http://x", "k").parseTable(
+        json("{\"result\":\"success\",\"base_code\":\"USD\",\"conversion_rates\":{\"USD\":1,\"EUR\":0.9}}"), "USD");
+    assertEquals(0.9, a.rate("USD", "EUR"), 1e-12);
+
+    RateTable c = new CurrencyApiProvider("http://x", "k").parseTable(
+        json("{\"meta\":{\"last_updated_at\":\"2025-09-01T23:59:59Z\"},\"data\":{\"EUR\":{\"code\":\"EUR\",\"value\":0.9}}}"), "USD");
+    assertEquals(0.9, c.rate("USD", "EUR"), 1e-12);
+    assertEquals(LocalDate.of(2025, 9, 1), c.getDate());
+
+    assertNull(new FrankfurterProvider().parseTable(json("{\"message\":\"not found\"}"), "EUR"));
+    assertNull(new FrankfurterProvider().parseTable(json("[1,2]"), "EUR"));
+  }
+
+  @Test void generic_adapter_accepts_every_known_pair_shape() throws Exception {
+    GenericProvider g = new GenericProvider("http://x?from=%s&to=%s", null, null, null);
+    assertEquals(1.25, g.parsePair(json("{\"query\":{\"from\":\"GBP\"},\"result\":1.25}"), "GBP", "USD"), 1e-12);
+    assertEquals(1.26, g.parsePair(json("{\"info\":{\"timestamp\":1,\"rate\":1.26}}"), "GBP", "USD"), 1e-12);
+    assertEquals(1.27, g.parsePair(json("{\"from\":\"GBP\",\"rate\":1.27}"), "GBP", "USD"), 1e-12);
+    assertEquals(1.28, g.parsePair(json("{\"conversion_rate\":1.28}"), "GBP", "USD"), 1e-12);
+    assertEquals(1.29, g.parsePair(json("{\"base\":\"GBP\",\"rates\":{\"EUR\":1.1,\"USD\":1.29}}"), "GBP", "USD"), 1e-12);
+    assertEquals(1.30, g.parsePair(json("{\"data\":{\"EUR\":1.1,\"USD\":1.30}}"), "GBP", "USD"), 1e-12);
+    assertEquals(1.31, g.parsePair(json("{\"meta\":{},\"data\":{\"USD\":{\"code\":\"USD\",\"value\":1.31}}}"), "GBP", "USD"), 1e-12);
+    assertNull(g.parsePair(json("{\"error\":\"rate limited\"}"), "GBP", "USD"));
+  }
+
+  @Test void series_become_daily_tables() throws Exception {
+    List<RateTable> days = new ExchangeRateHostProvider("http://x", "k").parseSeries(json(
+        "{\"source\":\"USD\",\"quotes\":{\"2024-01-02\":{\"USDEUR\":0.91},\"2024-01-03\":{\"USDEUR\":0.92}}}"), "USD");
+    assertEquals(2, days.size());
+    assertEquals(LocalDate.of(2024, 1, 3), days.get(1).getDate());
+    assertEquals(0.92, days.get(1).rate("USD", "EUR"), 1e-12);
+    assertTrue(new FrankfurterProvider().parseSeries(json("{\"base\":\"EUR\",\"rates\":{}}"), "EUR").isEmpty());
+  }
+}
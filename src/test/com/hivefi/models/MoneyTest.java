@@ -0,0 +1,33 @@
+package com.hivefi.models;
+
+import org.junit.jupiter.api.*;
+import java.math.BigDecimal;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+  @Test void uses_currency_exponent() {
+    assertEquals(1234, Money.of(12.34, "USD").getMinorUnits());
+    assertEquals(1200, Money.of(1200, "JPY").getMinorUnits());
+    assertEquals(1235, Money.of(new BigDecimal("1.2345"), "KWD").getMinorUnits());
+    assertEquals(2, Money.exponent("XYZ"));
+  }
+
+  @Test void exact_arithmetic_and_legacy_double_rendering() {
+    Money total = Money.zero("USD");
+    for (int i = 0; i < 10; i++) total = total.plus(Money.of(0.1, "USD"));
+    assertEquals(Money.ofMinor(100, "USD"), total);
+    assertEquals("10.1", Double.toString(Money.of(10.1, "USD").toDouble()));
+    Money usd = total;
+    assertThrows(IllegalArgumentException.class, () -> usd.plus(Money.ofMinor(1, "EUR")));
+    assertEquals("1200 JPY", Money.ofMinor(1200, "jpy").toString());
+  }
+
+  @Test void exact_refuses_rounding_and_overflow() {
+    assertEquals(Money.ofMinor(1250, "USD"), Money.exact(new BigDecimal("12.50"), "usd"));
+    assertEquals(Money.ofMinor(1500, "JPY"), Money.exact(1500.0, "JPY"));
+    assertThrows(IllegalArgumentException.class, () -> Money.exact(new BigDecimal("0.001"), "USD"));
+    assertThrows(IllegalArgumentException.class, () -> Money.exact(new BigDecimal("1.5"), "JPY"));
+    assertThrows(IllegalArgumentException.class, () -> Money.exact(new BigDecimal("1e30"), "USD"));
+    assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("1e30"), "USD"));
+  }
+}
@@ -0,0 +1,20 @@
+package com.hivefi.models;
+
+import org.junit.jupiter.api.*;
+import java.time.Instant;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateTableTest {
+  @Test void derives_inverse_and_cross_rates_through_the_base() {
+    RateTable t = new RateTable("usd", Map.of("EUR", 0.9, "jpy", 150.0, "BAD", 0.0), Instant.now());
+    assertEquals("USD", t.getBase());
+    assertEquals(0.9, t.rate("USD", "EUR"), 1e-12);
+    assertEquals(1 / 0.9, t.rate("EUR", "USD"), 1e-12);
+    assertEquals(150.0 / 0.9, t.rate("EUR", "JPY"), 1e-12);
+    assertEquals(1.0, t.rate("JPY", "jpy"), 1e-12);
+    assertNull(t.rate("EUR", "CHF"));
+    assertFalse(t.covers("BAD"));
+    assertEquals(0.95, t.with("CHF", 0.95).rate("USD", "CHF"), 1e-12);
+  }
+}
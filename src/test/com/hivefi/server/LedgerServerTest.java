@@ -0,0 +1,154 @@
+package com.hivefi.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hivefi.db.ExpenseDAO;
+import com.hivefi.services.FXService;
+import com.hivefi.services.LedgerService;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerServerTest {
+  @TempDir static Path tmp;
+  private static final ObjectMapper JSON = new ObjectMapper();
+  private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+  private static MockWebServer provider;
+  private static LedgerService ledger;
+  private static LedgerServer server;
+
+  @BeforeAll static void start() throws Exception {
+    System.setProperty("HIVEFI_DB_URL", "jdbc:sqlite:" + tmp.resolve("server.db"));
+    provider = new MockWebServer();
+    provider.enqueue(new MockResponse().setBody("{\"base\":\"EUR\",\"rates\":{\"USD\":1.25,\"GBP\":0.80}}"));
+    provider.start();
+    ledger = new LedgerService(new ExpenseDAO());
+    FXService fx = new FXService(null, provider.url("/latest").toString() + "?from=%s", null, 60);
+    server = new LedgerServer(ledger, fx, new InetSocketAddress("127.0.0.1", 0), 4, 16).start();
+  }
+
+  @AfterAll static void stop() throws Exception {
+    server.close();
+    ledger.close();
+    provider.shutdown();
+    System.clearProperty("HIVEFI_DB_URL");
+  }
+
+  private static HttpResponse<String> get(String path) throws Exception {
+    return CLIENT.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path)).build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static HttpResponse<String> post(String path, String body, String idempotencyKey) throws Exception {
+    HttpRequest.Builder b = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path))
+        .POST(HttpRequest.BodyPublishers.ofString(body));
+    if (idempotencyKey != null) b.header("Idempotency-Key", idempotencyKey);
+    return CLIENT.send(b.build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  @Test void records_lists_and_totals_expenses() throws Exception {
+    HttpResponse<String> created = post("/expenses",
+        "{\"category\":\"Food\",\"amount\":\"12.50\",\"currency\":\"usd\",\"description\":\"lunch\",\"date\":\"2025-03-02\"}", "req-1");
+    assertEquals(201, created.statusCode(), created.body());
+    JsonNode e = JSON.readTree(created.body());
+    assertEquals("USD", e.get("currency").asText());
+    assertEquals("2025-03-02", e.get("date").asText());
+    assertEquals(0, e.get("amount").decimalValue().compareTo(new java.math.BigDecimal("12.50")));
+
+    assertEquals(409, post("/expenses",
+        "{\"category\":\"Food\",\"amount\":\"12.50\",\"currency\":\"USD\",\"date\":\"2025-03-02\"}", "req-1").statusCode());
+    assertEquals(201, post("/expenses",
+        "{\"category\":\"Travel\",\"amount\":8,\"currency\":\"GBP\",\"date\":\"2025-03-05\"}", null).statusCode());
+    assertTrue(JSON.readTree(get("/stats").body()).get("expenses").asLong() >= 2);
+
+    JsonNode march = JSON.readTree(get("/expenses?from=2025-03-01&to=2025-03-31&limit=1").body());
+    assertEquals(1, march.get("items").size());
+    assertEquals("Travel", march.get("items").get(0).get("category").asText());
+    assertFalse(march.get("nextPageToken").isNull());
+    JsonNode rest = JSON.readTree(get("/expenses?from=2025-03-01&to=2025-03-31&limit=1&pageToken="
+        + march.get("nextPageToken").asText()).body());
+    assertEquals("Food", rest.get("items").get(0).get("category").asText());
+
+    String fromSql = get("/totals?from=2025-03-01&to=2025-03-31").body();
+    JsonNode totals = JSON.readTree(fromSql);
+    assertEquals(0, totals.get("Food").get("USD").decimalValue().compareTo(new java.math.BigDecimal("12.50")));
+    ledger.enableSnapshot();
+    assertEquals(fromSql, get("/totals?from=2025-03-01&to=2025-03-31").body(), "same answer from the snapshot");
+
+    JsonNode eur = JSON.readTree(get("/totals?from=2025-03-01&to=2025-03-31&currency=EUR").body());
+    assertEquals(0, eur.get("total").decimalValue().compareTo(new java.math.BigDecimal("20.00")));
+    assertEquals(1, provider.getRequestCount());
+  }
+
+  @Test void rejects_bad_input_with_client_errors() throws Exception {
+    HttpResponse<String> noAmount = post("/expenses", "{\"category\":\"Food\",\"currency\":\"USD\"}", null);
+    assertEquals(400, noAmount.statusCode());
+    assertTrue(JSON.readTree(noAmount.body()).get("error").asText().contains("Amount"));
+    assertEquals(400, post("/expenses", "not json", null).statusCode());
+    assertEquals(400, post("/expenses", "{\"category\":\"Food\",\"amount\":\"0.001\",\"currency\":\"USD\"}", null).statusCode());
+    assertEquals(400, post("/expenses", "{\"category\":\"Food\",\"amount\":\"1e30\",\"currency\":\"USD\"}", null).statusCode());
+    assertEquals(400, get("/expenses?from=03/02/2025").statusCode());
+    assertEquals(405, CLIENT.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/totals"))
+        .DELETE().build(), HttpResponse.BodyHandlers.ofString()).statusCode());
+  }
+
+  @Test void serves_fx_rates_from_the_shared_cache() throws Exception {
+    HttpResponse<String> r = get("/fx/rate?from=usd&to=gbp");
+    assertEquals(200, r.statusCode(), r.body());
+    JsonNode q = JSON.readTree(r.body());
+    assertEquals(0.80 / 1.25, q.get("rate").asDouble(), 1e-12);
+    assertFalse(q.get("stale").asBoolean());
+    assertEquals(400, get("/fx/rate?from=USD").statusCode());
+
+    JsonNode status = JSON.readTree(get("/fx/status").body());
+    assertTrue(status.get("cache").get("hits").asLong() + status.get("cache").get("misses").asLong() > 0);
+    JsonNode health = JSON.readTree(get("/health").body());
+    assertEquals("ok", health.get("status").asText());
+    assertNull(health.get("expenses"));
+  }
+
+  @Test void fx_provider_failures_are_bad_gateway() throws Exception {
+    try (MockWebServer failing = new MockWebServer()) {
+      failing.enqueue(new MockResponse().setResponseCode(500));
+      FXService fx = new FXService(null, failing.url("/latest").toString() + "?from=%s", null, 60);
+      try (LedgerServer other = new LedgerServer(ledger, fx, new InetSocketAddress("127.0.0.1", 0), 1, 4).start()) {
+        HttpResponse<String> r = CLIENT.send(HttpRequest.newBuilder(
+            URI.create("http://127.0.0.1:" + other.port() + "/fx/rate?from=USD&to=GBP")).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(502, r.statusCode(), r.body());
+        assertTrue(JSON.readTree(r.body()).get("error").asText().contains("FX HTTP 500"));
+      }
+    }
+  }
+
+  @Test void full_queue_is_answered_with_503() throws Exception {
+    try (MockWebServer slow = new MockWebServer()) {
+      slow.enqueue(new MockResponse().setBody("{\"base\":\"EUR\",\"rates\":{\"USD\":1.25}}").setHeadersDelay(1, TimeUnit.SECONDS));
+      FXService fx = new FXService(null, slow.url("/latest").toString() + "?from=%s", null, 60);
+      try (LedgerServer small = new LedgerServer(ledger, fx, new InetSocketAddress("127.0.0.1", 0), 1, 1).start()) {
+        URI rate = URI.create("http://127.0.0.1:" + small.port() + "/fx/rate?from=EUR&to=USD");
+        CompletableFuture<HttpResponse<String>> running = CLIENT.sendAsync(HttpRequest.newBuilder(rate).build(), HttpResponse.BodyHandlers.ofString());
+        Thread.sleep(200);
+        CompletableFuture<HttpResponse<String>> queued = CLIENT.sendAsync(HttpRequest.newBuilder(rate).build(), HttpResponse.BodyHandlers.ofString());
+        Thread.sleep(200);
+
+        HttpResponse<String> turnedAway = CLIENT.send(HttpRequest.newBuilder(
+            URI.create("http://127.0.0.1:" + small.port() + "/health")).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(503, turnedAway.statusCode());
+        assertEquals("1", turnedAway.headers().firstValue("Retry-After").orElse(null));
+        assertEquals(200, running.get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(200, queued.get(5, TimeUnit.SECONDS).statusCode());
+      }
+    }
+  }
+}